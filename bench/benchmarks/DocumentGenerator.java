@@ -0,0 +1,356 @@
+package benchmarks;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * DocumentGenerator.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * Writes synthetic XML documents for the benchmarks. A document is made of
+ * one {@link Shape} of content repeated under a {@code <doc>} root until it
+ * reaches the requested size, from a few kilobytes to gigabytes, and is then
+ * closed. The content is drawn from a {@link SplittableRandom} with a fixed
+ * seed, so the same shape, size and seed always give the same bytes and a
+ * benchmark run can be repeated exactly.
+ *
+ * Documents are written as they are generated, so memory use does not depend
+ * on their size. Every byte is ASCII, and no tag is self-closing, so the
+ * parser under test and the StAX baseline see the same number of tags.
+ *
+ * Usage: java -cp benchmarks.jar benchmarks.DocumentGenerator <shape> <size>[k|m|g] <out-file> [seed]
+ */
+public final class DocumentGenerator {
+    public static final long DEFAULT_SEED = 304;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_DEPTH = 1000; // Deepest nesting of the deep shape, below any parser's default limit
+
+    private static final String[] NAMES = {
+        "record", "item", "name", "value", "entry", "group", "field", "note", "data", "node", "list", "meta"
+    };
+    private static final String[] WORDS = {
+        "lorem", "ipsum", "dolor", "sit", "amet", "consectetur", "adipiscing", "elit", "sed", "do",
+        "eiusmod", "tempor", "incididunt", "ut", "labore", "et", "dolore", "magna", "aliqua"
+    };
+
+
+    /**
+     * The kinds of document, each stressing a different part of a parser.
+     */
+    public enum Shape {
+        /** Tags nested hundreds of levels deep, then closed again. */
+        DEEP,
+        /** Many short sibling records under the root. */
+        WIDE,
+        /** Elements with up to a dozen quoted attributes each. */
+        ATTRIBUTES,
+        /** Long comments, CDATA sections and processing instructions between small elements. */
+        COMMENTS,
+        /** Records with an error every few lines: mismatched, stray, malformed and unclosed tags. */
+        ERRORS
+    }
+
+
+    private final Shape shape;
+    private final SplittableRandom random;
+    private final StringBuilder pending = new StringBuilder(); // Text not yet written out
+    private OutputStream out;
+    private long written;
+    private long tags;
+
+
+    /**
+     * Creates a generator for one document.
+     *
+     * @param shape the kind of document
+     * @param seed  the seed of the random content
+     */
+    public DocumentGenerator(Shape shape, long seed) {
+        if (shape == null) throw new NullPointerException("Shape cannot be null");
+        this.shape = shape;
+        this.random = new SplittableRandom(seed);
+    }
+
+
+    /**
+     * Writes a document to a file, replacing the file if it exists.
+     *
+     * @param file the file to write
+     * @param size the size to reach; the document ends with the closing tags still open, so it is slightly larger
+     * @return the number of opening and closing tags written, not counting malformed ones
+     * @throws IOException if the file cannot be written
+     */
+    public long write(Path file, long size) throws IOException {
+        try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE)) {
+            return write(stream, size);
+        }
+    }
+
+
+    /**
+     * Writes a document to a stream. The stream is not closed.
+     *
+     * @param stream the stream to write to
+     * @param size   the size to reach; the document ends with the closing tags still open, so it is slightly larger
+     * @return the number of opening and closing tags written, not counting malformed ones
+     * @throws IOException if the stream cannot be written
+     */
+    public long write(OutputStream stream, long size) throws IOException {
+        if (size < 0) throw new IllegalArgumentException("Size cannot be negative");
+        out = stream;
+        written = 0;
+        tags = 0;
+
+        pending.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        open("doc");
+        pending.append('\n');
+        while (written + pending.length() < size) {
+            switch (shape) {
+                case DEEP -> deep();
+                case WIDE -> wide();
+                case ATTRIBUTES -> attributes();
+                case COMMENTS -> comments();
+                case ERRORS -> errors();
+            }
+            if (pending.length() >= BUFFER_SIZE) {
+                flush();
+            }
+        }
+        close("doc");
+        pending.append('\n');
+        flush();
+        out = null;
+        return tags;
+    }
+
+
+    /**
+     * Nests a few hundred tags, with some text on the way down, then closes them all.
+     */
+    private void deep() {
+        int depth = 100 + random.nextInt(MAX_DEPTH - 100);
+        String[] stack = new String[depth];
+
+        for (int i = 0; i < depth; i++) {
+            stack[i] = name();
+            open(stack[i]);
+            if (random.nextInt(8) == 0) {
+                words(1 + random.nextInt(3));
+            }
+            if (i % 8 == 7) {
+                pending.append('\n');
+            }
+        }
+        for (int i = depth - 1; i >= 0; i--) {
+            close(stack[i]);
+            if (i % 8 == 0) {
+                pending.append('\n');
+            }
+        }
+    }
+
+
+    /**
+     * Writes one flat record of a few fields.
+     */
+    private void wide() {
+        open("record");
+        for (int i = 2 + random.nextInt(4); i > 0; i--) {
+            String name = name();
+            open(name);
+            words(1 + random.nextInt(4));
+            close(name);
+        }
+        close("record");
+        pending.append('\n');
+    }
+
+
+    /**
+     * Writes one element with many attributes and a short text.
+     */
+    private void attributes() {
+        String name = name();
+        pending.append('<').append(name);
+        for (int i = 0, count = 4 + random.nextInt(9); i < count; i++) {
+            pending.append(" a").append(i).append("=\"");
+            words(1 + random.nextInt(3));
+            pending.append('"');
+        }
+        pending.append('>');
+        tags++;
+        words(1 + random.nextInt(5));
+        close(name);
+        pending.append('\n');
+    }
+
+
+    /**
+     * Writes a comment, a CDATA section or a processing instruction, holding
+     * text that looks like tags, followed by a small element.
+     */
+    private void comments() {
+        int kind = random.nextInt(3);
+        pending.append(kind == 0 ? "<!-- " : kind == 1 ? "<![CDATA[ " : "<?process ");
+        for (int line = 1 + random.nextInt(4); line > 0; line--) {
+            words(4 + random.nextInt(8));
+            pending.append(" <").append(name()).append("> ");
+            words(2 + random.nextInt(4));
+            pending.append('\n');
+        }
+        pending.append(kind == 0 ? " -->" : kind == 1 ? " ]]>" : " ?>").append('\n');
+
+        String name = name();
+        open(name);
+        words(1 + random.nextInt(3));
+        close(name);
+        pending.append('\n');
+    }
+
+
+    /**
+     * Writes a record of a few fields, one of which holds an error.
+     */
+    private void errors() {
+        open("record");
+        pending.append('\n');
+        int broken = random.nextInt(4);
+        for (int i = 0; i < 4; i++) {
+            String name = name();
+            if (i != broken) {
+                open(name);
+                words(1 + random.nextInt(3));
+                close(name);
+            } else {
+                switch (random.nextInt(4)) {
+                    case 0 -> { // Mismatched: closed with another name
+                        open(name);
+                        words(1);
+                        close(name.equals("item") ? "entry" : "item");
+                    }
+                    case 1 -> { // Stray closing tag
+                        words(1);
+                        close("orphan");
+                    }
+                    case 2 -> { // Malformed: the '>' is missing
+                        pending.append('<').append(name).append(' ');
+                        words(1);
+                    }
+                    default -> { // Never closed
+                        open(name);
+                        words(2);
+                    }
+                }
+            }
+            pending.append('\n');
+        }
+        close("record");
+        pending.append('\n');
+    }
+
+
+    /**
+     * Appends an opening tag.
+     */
+    private void open(String name) {
+        pending.append('<').append(name).append('>');
+        tags++;
+    }
+
+
+    /**
+     * Appends a closing tag.
+     */
+    private void close(String name) {
+        pending.append("</").append(name).append('>');
+        tags++;
+    }
+
+
+    /**
+     * Appends a few words separated by spaces.
+     */
+    private void words(int count) {
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                pending.append(' ');
+            }
+            pending.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+    }
+
+
+    /**
+     * Picks a tag name.
+     */
+    private String name() {
+        return NAMES[random.nextInt(NAMES.length)];
+    }
+
+
+    /**
+     * Writes out the pending text, which is all ASCII.
+     */
+    private void flush() throws IOException {
+        int length = pending.length();
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) pending.charAt(i);
+        }
+        out.write(bytes);
+        written += length;
+        pending.setLength(0);
+    }
+
+
+    /**
+     * Reads a number of bytes, optionally ending in {@code k}, {@code m} or {@code g}.
+     *
+     * @param size the text of the size
+     * @return the number of bytes
+     * @throws NumberFormatException if the text is not a size
+     */
+    public static long parseSize(String size) {
+        String lower = size.toLowerCase();
+        int shift = lower.endsWith("k") ? 10 : lower.endsWith("m") ? 20 : lower.endsWith("g") ? 30 : 0;
+        long value = Long.parseLong(shift == 0 ? lower : lower.substring(0, lower.length() - 1));
+        if (value < 0 || value > Long.MAX_VALUE >> shift) throw new NumberFormatException("Size out of range: " + size);
+        return value << shift;
+    }
+
+
+    /**
+     * Writes one document.
+     *
+     * @param args the shape, the size, the output file and optionally the seed
+     */
+    public static void main(String[] args) {
+        if (args.length < 3 || args.length > 4) {
+            System.out.println("Usage: java -cp benchmarks.jar benchmarks.DocumentGenerator <shape> <size>[k|m|g] <out-file> [seed]");
+            System.out.println("       shape: deep | wide | attributes | comments | errors");
+            System.exit(3);
+        }
+
+        try {
+            Shape shape = Shape.valueOf(args[0].toUpperCase());
+            long size = parseSize(args[1]);
+            long seed = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_SEED;
+
+            Path file = Path.of(args[2]);
+            long tags = new DocumentGenerator(shape, seed).write(file, size);
+            System.out.println("Wrote " + Files.size(file) + " bytes and " + tags + " tags to " + file);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Bad argument: " + e.getMessage());
+            System.exit(3);
+        } catch (IOException e) {
+            System.out.println("Could not write the document: " + e.getMessage());
+            System.exit(4);
+        }
+    }
+}
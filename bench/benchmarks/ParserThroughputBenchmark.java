@@ -0,0 +1,216 @@
+package benchmarks;
+
+import appDomain.ParserEngine;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ParserThroughputBenchmark.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * JMH benchmarks of the parser's reading paths on documents written by the
+ * {@link DocumentGenerator}, with the JDK's StAX parser as a baseline on the
+ * same files. Each shape is generated once per fork at each size, with a
+ * fixed seed, so every path and every run reads the same bytes.
+ *
+ * Each invocation checks the whole file, and the {@link Volume} counters add
+ * up the bytes and tags it covered. Scores are per microsecond, so the
+ * {@code bytes} row reads as MB/s (10^6 bytes) and the {@code tags} row as
+ * millions of tags per second; the primary score counts files.
+ *
+ * StAX stops at the first well-formedness error, so on the {@code ERRORS}
+ * shape it only counts the bytes and tags before that error and is not a
+ * like-for-like baseline there.
+ *
+ * Run with {@code ant bench}, or pick shapes and sizes from the command line,
+ * such as {@code ant bench -Dbench.args="-p shape=DEEP -p size=1g"}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class ParserThroughputBenchmark {
+
+    @Param({"DEEP", "WIDE", "ATTRIBUTES", "COMMENTS", "ERRORS"})
+    public DocumentGenerator.Shape shape;
+
+    @Param({"64k", "16m"})
+    public String size;
+
+    private Path file;
+    private long bytes; // Size of the generated file
+    private long tags;  // Opening and closing tags in it
+
+
+    /**
+     * Bytes and tags checked during one iteration, reported by JMH as rates.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Volume {
+        public long bytes;
+        public long tags;
+
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            bytes = 0;
+            tags = 0;
+        }
+    }
+
+
+    /**
+     * A parser engine per thread that counts errors instead of keeping them.
+     */
+    @State(Scope.Thread)
+    public static class Engine {
+        final ParserEngine engine = new ParserEngine();
+        long errors;
+
+
+        @Setup(Level.Trial)
+        public void countErrors() {
+            engine.setErrorSink(error -> errors++);
+        }
+    }
+
+
+    /**
+     * A StAX factory set up like the parser under test: no DTDs and no namespaces.
+     */
+    @State(Scope.Thread)
+    public static class Stax {
+        final XMLInputFactory factory = XMLInputFactory.newFactory();
+
+
+        @Setup(Level.Trial)
+        public void configure() {
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+            factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        }
+    }
+
+
+    /**
+     * A way of reading the file into a parser engine.
+     */
+    private interface ReadPath {
+        void read(ParserEngine engine, String filePath) throws IOException;
+    }
+
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        file = Files.createTempFile("xmlparser-bench-" + shape.name().toLowerCase() + "-" + size, ".xml");
+        tags = new DocumentGenerator(shape, DocumentGenerator.DEFAULT_SEED).write(file, DocumentGenerator.parseSize(size));
+        bytes = Files.size(file);
+    }
+
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+
+    @Benchmark
+    public long streaming(Engine state, Volume volume) throws IOException {
+        return check(ParserEngine::parseFile, state, volume);
+    }
+
+
+    @Benchmark
+    public long mapped(Engine state, Volume volume) throws IOException {
+        return check(ParserEngine::parseMappedFile, state, volume);
+    }
+
+
+    @Benchmark
+    public long parallel(Engine state, Volume volume) throws IOException {
+        return check(ParserEngine::parseFileInParallel, state, volume);
+    }
+
+
+    @Benchmark
+    public long pipelined(Engine state, Volume volume) throws IOException {
+        return check(ParserEngine::parseFilePipelined, state, volume);
+    }
+
+
+    /**
+     * Reads the file with the JDK's StAX parser, counting start and end elements.
+     *
+     * @return the number of elements read
+     */
+    @Benchmark
+    public long stax(Stax state, Volume volume) throws IOException, XMLStreamException {
+        long read = 0;
+        long offset = bytes;
+
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+            XMLStreamReader reader = state.factory.createXMLStreamReader(in);
+            try {
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT || event == XMLStreamConstants.END_ELEMENT) {
+                        read++;
+                    }
+                }
+            } catch (XMLStreamException e) {
+                // Not well-formed: count what was read before the error, which is ASCII
+                offset = Math.max(0, e.getLocation() == null ? 0 : e.getLocation().getCharacterOffset());
+            } finally {
+                reader.close();
+            }
+        }
+
+        volume.bytes += offset;
+        volume.tags += read;
+        return read;
+    }
+
+
+    /**
+     * Checks the whole file with one reading path of a reset engine.
+     *
+     * @return the number of errors found, so the work cannot be optimised away
+     */
+    private long check(ReadPath path, Engine state, Volume volume) throws IOException {
+        state.engine.reset();
+        state.errors = 0;
+        path.read(state.engine, file.toString());
+        state.engine.finish();
+
+        volume.bytes += bytes;
+        volume.tags += tags;
+        return state.errors;
+    }
+}
@@ -0,0 +1,418 @@
+package appDomain;
+
+import implementations.MyQueue;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * BatchValidator.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * Checks many XML files in one JVM. Files, directories and glob patterns are
+ * expanded into a sorted list of files, and every file is checked on its own
+ * virtual thread with an engine taken from a {@link ParserEnginePool}.
+ *
+ * Each file's errors are written together to a {@link ReportWriter}, in the
+ * sorted file order, regardless of the order in which the checks finish. A
+ * file is only started once the file {@code maxOpenFiles} places before it
+ * has been written, which limits both the files open at the same time and
+ * the results held for files that finished early.
+ *
+ * An error limit applies to each file separately: a file stops being read
+ * once it has that many errors, and the other files are still checked.
+ *
+ * With a {@link ResultCache}, a file that has not changed since a previous
+ * run is not parsed; its stored errors are reported instead.
+ *
+ * A {@code .gz} file is inflated on its own thread while it is parsed. A
+ * {@code .zip} archive is reported as one file per {@code .xml} or
+ * {@code .xml.gz} entry, named {@code archive.zip!/entry.xml}. Its entries are inflated and checked in
+ * parallel, up to one per core, and reported in the order they appear in
+ * the archive. Archives are not cached.
+ */
+public class BatchValidator {
+    public static final int DEFAULT_MAX_OPEN_FILES = 64;
+
+    private final int maxOpenFiles;
+    private final int errorLimit; // 0 for no limit
+    private final ParserEnginePool engines;
+    private ResultCache cache; // Null when results are not cached
+
+
+    /**
+     * The errors found in one file, or the reason it could not be read.
+     */
+    private static class FileResult {
+        final String name; // The name the file is reported under
+        final MyQueue<ParseError> errors = new MyQueue<>();
+        String readError;
+        boolean stopped; // The file's error limit was reached
+
+
+        FileResult(String name) {
+            this.name = name;
+        }
+    }
+
+
+    /**
+     * Creates a batch validator.
+     *
+     * @param maxOpenFiles the maximum number of files checked or waiting to be written at the same time
+     */
+    public BatchValidator(int maxOpenFiles) {
+        this(maxOpenFiles, 0);
+    }
+
+
+    /**
+     * Creates a batch validator that stops checking a file after a number of errors.
+     *
+     * @param maxOpenFiles the maximum number of files checked or waiting to be written at the same time
+     * @param errorLimit   the maximum number of errors reported per file, or 0 for no limit
+     */
+    public BatchValidator(int maxOpenFiles, int errorLimit) {
+        if (maxOpenFiles <= 0) throw new IllegalArgumentException("Open file limit must be positive");
+        if (errorLimit < 0) throw new IllegalArgumentException("Error limit cannot be negative");
+        this.maxOpenFiles = maxOpenFiles;
+        this.errorLimit = errorLimit;
+        this.engines = new ParserEnginePool(maxOpenFiles);
+    }
+
+
+    /**
+     * Sets the depth and stack memory limits applied to every file.
+     *
+     * @param maxDepth         the greatest number of tags open at once, or 0 for no limit
+     * @param stackMemoryLimit the heap a tag stack may use before it spills to disk, and the tag names of a document, or 0 for no limit
+     */
+    public void setLimits(int maxDepth, long stackMemoryLimit) {
+        engines.setLimits(maxDepth, stackMemoryLimit);
+    }
+
+
+    /**
+     * Reuses the results of unchanged files from a cache, and stores the results
+     * of the files that are parsed. The caller saves the cache.
+     *
+     * @param cache the cache to use, or null to parse every file
+     */
+    public void setCache(ResultCache cache) {
+        this.cache = cache;
+    }
+
+
+    /**
+     * Expands files, directories and glob patterns into a sorted list of files.
+     * Directories are searched recursively for {@code .xml} and {@code .xml.gz} files. A path that
+     * does not exist and is not a pattern is kept so that it is reported as unreadable.
+     *
+     * @param arguments the paths and patterns given on the command line
+     * @return the files to check, sorted and without duplicates
+     * @throws IOException if a directory cannot be listed
+     */
+    public static Path[] expand(String[] arguments) throws IOException {
+        TreeSet<Path> files = new TreeSet<>();
+
+        for (String argument : arguments) {
+            Path path = Path.of(argument);
+
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> walk = Files.walk(path)) {
+                    walk.filter(p -> Files.isRegularFile(p) && isXml(p.toString()))
+                        .forEach(p -> files.add(p.normalize()));
+                }
+            } else if (!Files.exists(path) && patternStart(argument) != -1) {
+                PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + argument);
+                try (Stream<Path> walk = Files.walk(patternBase(argument))) {
+                    walk.filter(p -> Files.isRegularFile(p) && matcher.matches(p))
+                        .forEach(p -> files.add(p.normalize()));
+                }
+            } else {
+                files.add(path.normalize());
+            }
+        }
+        return files.toArray(new Path[0]);
+    }
+
+
+    /**
+     * Checks every file and prints each file's errors in order as a text log.
+     *
+     * @param files the files to check
+     * @return the number of files that had errors or could not be read
+     */
+    public int validate(Path[] files) {
+        TextReportWriter report = new TextReportWriter(System.out, null);
+        int failed = validate(files, report);
+        report.close();
+        return failed;
+    }
+
+
+    /**
+     * Checks every file and writes each file's errors in order, followed by a summary.
+     * The report is not closed, so more can be added to it.
+     *
+     * @param files  the files to check
+     * @param report the report the errors are written to
+     * @return the number of files that had errors or could not be read
+     */
+    public int validate(Path[] files, ReportWriter report) {
+        int checked = 0;
+        int failed = 0;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            MyQueue<Future<FileResult[]>> pending = new MyQueue<>(); // In file order
+            int submitted = 0;
+
+            while (submitted < maxOpenFiles && submitted < files.length) {
+                Path file = files[submitted++];
+                pending.enqueue(executor.submit(() -> check(file)));
+            }
+
+            // Write the results in file order, submitting the next file as each one is written
+            for (int i = 0; i < files.length; i++) {
+                FileResult[] results = join(files[i], pending.dequeue());
+                if (submitted < files.length) {
+                    Path file = files[submitted++];
+                    pending.enqueue(executor.submit(() -> check(file)));
+                }
+
+                for (FileResult result : results) {
+                    checked++;
+                    if (result.readError != null || !result.errors.isEmpty()) {
+                        failed++;
+                    }
+                    write(result, report);
+                }
+            }
+        }
+
+        report.summary(checked, failed);
+        return failed;
+    }
+
+
+    /**
+     * Checks one file, taking its result from the cache when the file is
+     * unchanged and otherwise parsing it with a pooled engine.
+     *
+     * @return the file's result, or one result per entry of a zip archive
+     */
+    private FileResult[] check(Path file) throws InterruptedException {
+        FileResult result = new FileResult(file.toString());
+
+        try {
+            if (isZip(file.toString())) {
+                return checkArchive(file);
+            }
+
+            ResultCache.Result cached = cache == null ? null : cache.lookup(file, errorLimit);
+            if (cached != null) {
+                cached.copyTo(result.errors);
+                result.stopped = cached.isStopped();
+            } else {
+                parse(file, result);
+            }
+        } catch (IOException e) {
+            result.readError = e.getMessage();
+        }
+        return new FileResult[] { result };
+    }
+
+
+    /**
+     * Checks every {@code .xml} and {@code .xml.gz} entry of a zip archive in parallel, one virtual
+     * thread per entry and at most one entry per core at a time.
+     *
+     * @return one result per entry, in the order of the archive
+     * @throws IOException if the archive cannot be opened
+     */
+    private FileResult[] checkArchive(Path archive) throws IOException, InterruptedException {
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            ArrayList<ZipEntry> entries = new ArrayList<>();
+            for (Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements(); ) {
+                ZipEntry entry = e.nextElement();
+                if (!entry.isDirectory() && isXml(entry.getName())) entries.add(entry);
+            }
+
+            Semaphore cores = new Semaphore(Runtime.getRuntime().availableProcessors());
+            FileResult[] results = new FileResult[entries.size()];
+
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < results.length; i++) {
+                    ZipEntry entry = entries.get(i);
+                    FileResult result = new FileResult(archive + "!/" + entry.getName());
+                    results[i] = result;
+
+                    executor.submit(() -> {
+                        cores.acquire();
+                        try (InputStream in = new PipelinedInputStream(openEntry(zip, entry))) {
+                            parse(in, result);
+                        } catch (IOException e) {
+                            result.readError = e.getMessage();
+                        } finally {
+                            cores.release();
+                        }
+                        return null;
+                    });
+                }
+            }
+            return results;
+        }
+    }
+
+
+    /**
+     * Opens an entry of an archive, inflating a {@code .gz} entry the way a {@code .gz} file is.
+     */
+    private static InputStream openEntry(ZipFile zip, ZipEntry entry) throws IOException {
+        InputStream in = zip.getInputStream(entry);
+        if (!ParserEngine.isGzip(entry.getName())) return in;
+        try {
+            return new GZIPInputStream(in, PipelinedInputStream.DEFAULT_BUFFER_SIZE);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Parses one file with a pooled engine, and stores its result in the cache if there is one.
+     */
+    private void parse(Path file, FileResult result) throws IOException {
+        ParserEngine engine = engines.acquire();
+        try {
+            ResultCache.Stamp stamp = cache == null ? null : ResultCache.stamp(file);
+
+            engine.setErrorLimit(errorLimit);
+            engine.parseMappedFile(file.toString());
+            engine.finish();
+            result.stopped = engine.isStopped();
+            engine.drainErrorsTo(result.errors);
+
+            if (cache != null) {
+                cache.store(file, stamp, result.errors, result.stopped, errorLimit);
+            }
+        } finally {
+            engines.release(engine);
+        }
+    }
+
+
+    /**
+     * Parses one entry of an archive with a pooled engine.
+     */
+    private void parse(InputStream in, FileResult result) throws IOException {
+        ParserEngine engine = engines.acquire();
+        try {
+            engine.setErrorLimit(errorLimit);
+            engine.parse(in);
+            engine.finish();
+            result.stopped = engine.isStopped();
+            engine.drainErrorsTo(result.errors);
+        } finally {
+            engines.release(engine);
+        }
+    }
+
+
+    /**
+     * Waits for a file's results, turning an unexpected failure into a read error.
+     */
+    private static FileResult[] join(Path file, Future<FileResult[]> future) {
+        FileResult result = new FileResult(file.toString());
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.readError = "Interrupted";
+        } catch (ExecutionException e) {
+            result.readError = String.valueOf(e.getCause());
+        }
+        return new FileResult[] { result };
+    }
+
+
+    /**
+     * Writes the errors of one file to the report.
+     */
+    private static void write(FileResult result, ReportWriter report) {
+        report.beginFile(result.name);
+
+        if (result.readError != null) {
+            report.fileError(result.readError);
+        } else {
+            while (!result.errors.isEmpty()) {
+                report.accept(result.errors.dequeue());
+            }
+            report.endFile(result.stopped);
+        }
+    }
+
+
+    /**
+     * Checks whether a file name is that of an XML file, possibly gzip-compressed.
+     * Directories are searched, and watched by {@link WatchValidator}, for these names.
+     */
+    static boolean isXml(String name) {
+        String lower = name.toLowerCase();
+        return lower.endsWith(".xml") || lower.endsWith(".xml.gz");
+    }
+
+
+    /**
+     * Checks whether a file is a zip archive, judging by its name.
+     *
+     * @param filePath the path to the file
+     * @return true if the name ends in {@code .zip}
+     */
+    public static boolean isZip(String filePath) {
+        return filePath.toLowerCase().endsWith(".zip");
+    }
+
+
+    /**
+     * Returns the index of the first glob character in an argument, or -1 if there is none.
+     */
+    private static int patternStart(String argument) {
+        int start = -1;
+        for (char c : "*?[{".toCharArray()) {
+            int index = argument.indexOf(c);
+            if (index != -1 && (start == -1 || index < start)) start = index;
+        }
+        return start;
+    }
+
+
+    /**
+     * Returns the directory a glob pattern is rooted at: the part before the
+     * last separator that precedes the first glob character.
+     */
+    private static Path patternBase(String pattern) {
+        int start = patternStart(pattern);
+        int separator = Math.max(pattern.lastIndexOf('/', start), pattern.lastIndexOf(File.separatorChar, start));
+        return separator == -1 ? Path.of("") : Path.of(pattern.substring(0, separator + 1));
+    }
+}
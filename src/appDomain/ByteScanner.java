@@ -0,0 +1,102 @@
+package appDomain;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * ByteScanner.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * Finds the delimiters the {@link XMLTokenizer} looks for: newlines, '<',
+ * '>' and quotes. This class checks one byte at a time. When the incubating
+ * {@code jdk.incubator.vector} module is present, {@link #INSTANCE} is a
+ * {@link VectorByteScanner} instead, which checks a whole vector of 32 or 64
+ * bytes per step.
+ *
+ * The module is only present when the JVM is started with
+ * {@code --add-modules jdk.incubator.vector}. Without it, or with the
+ * property {@code xmlparser.vector=false}, this scalar scanner is used.
+ * Only one class is ever loaded, so the JIT inlines its methods into the
+ * tokenizer's loops.
+ */
+public class ByteScanner {
+    public static final ByteScanner INSTANCE = create();
+
+
+    /**
+     * Creates a scalar scanner. Use {@link #INSTANCE} instead.
+     */
+    protected ByteScanner() {
+    }
+
+
+    /**
+     * Picks the vector scanner when the Vector API can be loaded, and this scanner otherwise.
+     */
+    private static ByteScanner create() {
+        if (!Boolean.parseBoolean(System.getProperty("xmlparser.vector", "true"))) return new ByteScanner();
+
+        try {
+            return (ByteScanner) Class.forName("appDomain.VectorByteScanner").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new ByteScanner(); // The module is not present
+        }
+    }
+
+
+    /**
+     * Returns a short name of the scanning method, for reports and benchmarks.
+     *
+     * @return {@code scalar}, or the vector shape used
+     */
+    public String name() {
+        return "scalar";
+    }
+
+
+    /**
+     * Finds the first occurrence of a byte.
+     *
+     * @param source the bytes to search
+     * @param b      the byte to find
+     * @param from   the first offset to search
+     * @param limit  the offset to stop at (exclusive)
+     * @return the offset of the byte, or -1 if it is not present
+     */
+    public long indexOf(MemorySegment source, byte b, long from, long limit) {
+        for (long i = from; i < limit; i++) {
+            if (source.get(ValueLayout.JAVA_BYTE, i) == b) return i;
+        }
+        return -1;
+    }
+
+
+    /**
+     * Finds the first occurrence of either of two bytes.
+     *
+     * @return the offset of the byte, or -1 if neither is present
+     */
+    public long indexOf(MemorySegment source, byte a, byte b, long from, long limit) {
+        for (long i = from; i < limit; i++) {
+            byte c = source.get(ValueLayout.JAVA_BYTE, i);
+            if (c == a || c == b) return i;
+        }
+        return -1;
+    }
+
+
+    /**
+     * Finds the first occurrence of any of four bytes.
+     *
+     * @return the offset of the byte, or -1 if none is present
+     */
+    public long indexOf(MemorySegment source, byte a, byte b, byte c, byte d, long from, long limit) {
+        for (long i = from; i < limit; i++) {
+            byte x = source.get(ValueLayout.JAVA_BYTE, i);
+            if (x == a || x == b || x == c || x == d) return i;
+        }
+        return -1;
+    }
+}
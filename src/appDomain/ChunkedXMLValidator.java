@@ -0,0 +1,438 @@
+package appDomain;
+
+import implementations.MyQueue;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * ChunkedXMLValidator.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * Checks a single large XML file on all cores. The file is mapped into memory
+ * and split into chunks at line boundaries. Each chunk is scanned by a
+ * fork-join task with its own stack, at most two per core ahead of the merge.
+ *
+ * Tags, comments and CDATA sections may span lines, so a chunk does not know
+ * for certain that it starts in text. Every chunk is scanned as if it does.
+ * When merging, a chunk whose predecessor ended inside markup is scanned again,
+ * sequentially, continuing from the predecessor's tokenizer state. Chunk
+ * boundaries almost always fall in text, so this is rare.
+ *
+ * A chunk does not know which tags were opened before it, so it only resolves
+ * closing tags that match a tag it opened itself. Everything else is kept, in
+ * order, as a short summary: the errors it found, the tags it left open with
+ * their line numbers, and the closing tags it could not match. Replaying the
+ * summaries in file order through one {@link MappedXMLValidator}, each as soon
+ * as its chunk and all those before it are done, produces the same error log
+ * as the sequential run.
+ *
+ * Memory stays bounded however many errors a file has. The summaries waiting
+ * to be replayed hold at most {@link #MAX_BUFFERED_EVENTS} entries between
+ * them: a chunk whose summary outgrows its share stops early, and is scanned
+ * again when its turn comes, on the merging thread, with each entry replayed
+ * as it is found. A file dense with errors is then checked at sequential
+ * speed, which its report would limit anyway.
+ *
+ * With an error limit, the replay stops at the error that reaches it, and
+ * chunks not started yet are never scanned.
+ */
+public class ChunkedXMLValidator {
+    public static final long DEFAULT_CHUNK_SIZE = 8L << 20; // 8 MB per task
+    static final int MAX_BUFFERED_EVENTS = 1 << 16;         // Summary entries held by the chunks scanned ahead
+    private static final int MIN_CHUNK_EVENTS = 1 << 10;    // Smallest share of a chunk, with many cores
+
+    private final ErrorSink sink;
+    private final long chunkSize;
+    private int errorLimit; // 0 for no limit
+    private boolean stopped;
+    long tags; // Tags scanned by the last check, for ParserMetrics
+
+
+    /**
+     * Creates a validator that uses the default chunk size.
+     *
+     * @param errorQueue the queue that receives the errors found
+     */
+    public ChunkedXMLValidator(MyQueue<ParseError> errorQueue) {
+        this(errorQueue, DEFAULT_CHUNK_SIZE);
+    }
+
+
+    /**
+     * Creates a validator with a specific chunk size.
+     * Chunks are extended to the end of the line they stop in.
+     *
+     * @param errorQueue the queue that receives the errors found
+     * @param chunkSize  the approximate number of bytes scanned by each task
+     */
+    public ChunkedXMLValidator(MyQueue<ParseError> errorQueue, long chunkSize) {
+        this(ErrorSink.queue(errorQueue), chunkSize);
+    }
+
+
+    /**
+     * Creates a validator that hands each error to a sink during the merge,
+     * using the default chunk size.
+     *
+     * @param sink the sink that receives the errors found
+     */
+    public ChunkedXMLValidator(ErrorSink sink) {
+        this(sink, DEFAULT_CHUNK_SIZE);
+    }
+
+
+    /**
+     * Creates a validator that hands each error to a sink during the merge.
+     *
+     * @param sink      the sink that receives the errors found
+     * @param chunkSize the approximate number of bytes scanned by each task
+     */
+    public ChunkedXMLValidator(ErrorSink sink, long chunkSize) {
+        if (sink == null) throw new NullPointerException("Error sink cannot be null");
+        if (chunkSize <= 0) throw new IllegalArgumentException("Chunk size must be positive");
+
+        this.sink = sink;
+        this.chunkSize = chunkSize;
+    }
+
+
+    /**
+     * Sets the number of errors after which the replay stops.
+     *
+     * @param errorLimit the maximum number of errors to report, or 0 for no limit
+     */
+    public void setErrorLimit(int errorLimit) {
+        if (errorLimit < 0) throw new IllegalArgumentException("Error limit cannot be negative");
+        this.errorLimit = errorLimit;
+    }
+
+
+    /**
+     * Checks whether the last check stopped because the error limit was reached.
+     *
+     * @return true if the error limit was reached
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+
+    /**
+     * Maps the file and checks it in parallel, including any tags left unclosed at the end.
+     *
+     * @param filePath the path to the XML file
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public void validate(String filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ);
+             Arena arena = Arena.ofShared()) {
+            long size = channel.size();
+            MemorySegment source = size == 0
+                    ? MemorySegment.ofArray(new byte[0])
+                    : channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena);
+
+            validate(source);
+        }
+    }
+
+
+    /**
+     * Checks a segment holding a whole document in parallel.
+     * The segment must be accessible from the fork-join worker threads.
+     *
+     * @param source the UTF-8 encoded XML bytes
+     */
+    public void validate(MemorySegment source) {
+        long[] bounds = split(source);
+        int count = bounds.length - 1;
+        int ahead = Math.max(1, Math.min(count, 2 * ForkJoinPool.getCommonPoolParallelism()));
+        int eventLimit = Math.max(MIN_CHUNK_EVENTS, MAX_BUFFERED_EVENTS / ahead);
+
+        MappedXMLValidator merged = new MappedXMLValidator(sink);
+        merged.setErrorLimit(errorLimit);
+        Replay replay = new Replay(source, merged);
+        MyQueue<ForkJoinTask<ChunkScanner>> scanning = new MyQueue<>(); // In file order
+        int submitted = 0;
+        tags = 0;
+
+        try {
+            while (submitted < ahead && submitted < count) {
+                scanning.enqueue(submit(source, bounds, submitted++, eventLimit));
+            }
+
+            // Replay the summaries in file order as the chunks finish
+            ChunkScanner previous = null;
+            for (int c = 0; c < count && !merged.isStopped(); c++) {
+                ChunkScanner chunk = scanning.dequeue().join();
+                if (submitted < count) {
+                    scanning.enqueue(submit(source, bounds, submitted++, eventLimit));
+                }
+
+                boolean wrongStart = previous != null && previous.tokenizer.isInMarkup();
+                if (wrongStart || chunk.overflowed) {
+                    // The guess that the chunk starts in text was wrong, or its summary was too long to keep
+                    chunk = new ChunkScanner(replay);
+                    chunk.scan(source, bounds[c], bounds[c + 1], wrongStart ? previous.tokenizer : null,
+                               wrongStart ? -previous.lines : 0, c == count - 1);
+                } else {
+                    while (!chunk.events.isEmpty() && !merged.isStopped()) {
+                        replay.accept(chunk.events.dequeue());
+                    }
+                }
+
+                replay.linesBefore += chunk.lines;
+                tags += chunk.tags;
+                previous = chunk;
+            }
+        } finally {
+            // Chunks scanned ahead of an early stop are dropped; the source must outlive their tasks
+            while (!scanning.isEmpty()) {
+                ForkJoinTask<ChunkScanner> task = scanning.dequeue();
+                task.cancel(false);
+                task.quietlyJoin();
+            }
+        }
+
+        merged.finish();
+        stopped = merged.isStopped();
+    }
+
+
+    /**
+     * Starts scanning one chunk on the common pool, keeping at most {@code eventLimit} summary entries.
+     */
+    private static ForkJoinTask<ChunkScanner> submit(MemorySegment source, long[] bounds, int chunk, int eventLimit) {
+        return ForkJoinPool.commonPool().submit(() -> {
+            ChunkScanner scanner = new ChunkScanner(eventLimit);
+            scanner.scan(source, bounds[chunk], bounds[chunk + 1], null, 0, chunk == bounds.length - 2);
+            return scanner;
+        });
+    }
+
+
+    /**
+     * Finds the chunk boundaries. Every chunk except the last ends just after a newline.
+     *
+     * @param source the bytes to split
+     * @return the start offset of every chunk, followed by the size of the source
+     */
+    private long[] split(MemorySegment source) {
+        long size = source.byteSize();
+        long[] bounds = new long[16];
+        int count = 0;
+        long start = 0;
+
+        while (start < size) {
+            if (count == bounds.length) {
+                bounds = Arrays.copyOf(bounds, count * 2);
+            }
+            bounds[count++] = start;
+
+            long newline = start + chunkSize >= size ? -1 : XMLTokenizer.indexOf(source, (byte) '\n', start + chunkSize, size);
+            start = newline == -1 ? size : newline + 1;
+        }
+
+        bounds = Arrays.copyOf(bounds, count + 1);
+        bounds[count] = size;
+        return bounds;
+    }
+
+
+    /**
+     * One entry of a chunk summary. Line numbers are relative to the start of the chunk.
+     */
+    static class ChunkEvent {
+        static final int ERROR = 0; // An error found inside the chunk
+        static final int OPEN = 1;  // An open tag left on the stack
+        static final int CLOSE = 2; // A closing tag left unmatched
+
+        final int type;
+        final int line;
+        final int column;
+        final long offset;      // Offset of the error text or of the tag's '<'
+        final ErrorKind errorKind;
+        final String text;
+        final long tagEnd;
+        final long nameStart;
+        final int nameLength;
+
+
+        /**
+         * Creates an error event.
+         */
+        ChunkEvent(ErrorKind errorKind, String text, int line, int column, long offset) {
+            this(ERROR, line, column, offset, errorKind, text, -1, -1, 0);
+        }
+
+
+        /**
+         * Creates a tag event, in the form passed to {@link MappedXMLValidator#push}
+         * or {@link MappedXMLValidator#close}.
+         */
+        ChunkEvent(int type, long tagStart, long tagEnd, long nameStart, int nameLength, int line, int column) {
+            this(type, line, column, tagStart, null, null, tagEnd, nameStart, nameLength);
+        }
+
+
+        private ChunkEvent(int type, int line, int column, long offset, ErrorKind errorKind, String text,
+                           long tagEnd, long nameStart, int nameLength) {
+            this.type = type;
+            this.line = line;
+            this.column = column;
+            this.offset = offset;
+            this.errorKind = errorKind;
+            this.text = text;
+            this.tagEnd = tagEnd;
+            this.nameStart = nameStart;
+            this.nameLength = nameLength;
+        }
+    }
+
+
+    /**
+     * Replays summary entries through the merging validator, in file order.
+     */
+    static final class Replay {
+        private final MemorySegment source;
+        private final MappedXMLValidator merged;
+        int linesBefore; // Lines in the chunks already replayed
+
+
+        Replay(MemorySegment source, MappedXMLValidator merged) {
+            this.source = source;
+            this.merged = merged;
+        }
+
+
+        /**
+         * Replays one entry of the next chunk, unless the merge has stopped.
+         */
+        void accept(ChunkEvent event) {
+            if (merged.isStopped()) return;
+
+            int lineNum = linesBefore + event.line;
+            if (event.type == ChunkEvent.ERROR) {
+                merged.error(event.errorKind, event.text, lineNum, event.column, event.offset);
+            } else if (event.type == ChunkEvent.OPEN) {
+                merged.push(source, event.nameStart, event.nameLength, lineNum, event.column, event.offset);
+            } else {
+                merged.close(source, event.offset, event.tagEnd, event.nameStart, event.nameLength, lineNum, event.column);
+            }
+        }
+
+
+        /**
+         * Checks whether the merge has stopped at the error limit.
+         */
+        boolean isStopped() {
+            return merged.isStopped();
+        }
+    }
+
+
+    /**
+     * Scans one chunk and records its summary instead of reporting errors
+     * directly, or replays each entry as soon as it is found.
+     */
+    static class ChunkScanner extends MappedXMLValidator {
+        final MyQueue<ChunkEvent> events = new MyQueue<>();
+        int lines;          // Number of lines in the chunk
+        boolean overflowed; // Set when the summary outgrew its limit and the scan stopped
+        private final int eventLimit; // Entries the summary may hold, when it is kept
+        private final Replay replay;  // Where entries go as they are found, or null to keep them
+
+
+        /**
+         * Creates a scanner that keeps up to {@code eventLimit} summary entries.
+         */
+        ChunkScanner(int eventLimit) {
+            this.eventLimit = eventLimit;
+            this.replay = null;
+        }
+
+
+        /**
+         * Creates a scanner that replays each entry as it is found, for the chunk being merged.
+         */
+        ChunkScanner(Replay replay) {
+            this.eventLimit = 0;
+            this.replay = replay;
+        }
+
+
+        /**
+         * Scans the chunk between {@code from} and {@code to}.
+         *
+         * @param previous  the tokenizer of the preceding chunk to continue from, or null to start in text
+         * @param lineShift the amount added to the line numbers held by {@code previous}
+         * @param last      whether this is the last chunk, so markup still open at its end is reported
+         */
+        void scan(MemorySegment source, long from, long to, XMLTokenizer previous, int lineShift, boolean last) {
+            if (previous != null) {
+                tokenizer.resume(previous, lineShift);
+            }
+
+            lines = tokenizer.tokenize(source, from, to, 1) - 1;
+            if (last && !overflowed) {
+                tokenizer.finish();
+            }
+            flushOpenTags();
+        }
+
+
+        @Override
+        void unmatchedClose(MemorySegment source, long tagStart, long tagEnd, long start, int length, int line, int column) {
+            // The tag may close one opened in an earlier chunk, which is only known when merging
+            flushOpenTags();
+            record(new ChunkEvent(ChunkEvent.CLOSE, tagStart, tagEnd, start, length, line, column));
+        }
+
+
+        @Override
+        void error(ErrorKind kind, String text, int line, int column, long offset) {
+            record(new ChunkEvent(kind, text, line, column, offset));
+        }
+
+
+        /**
+         * Adds an entry to the summary, or replays it. A summary that reaches
+         * its limit is dropped and the scan stops, since the chunk will be
+         * scanned again.
+         */
+        private void record(ChunkEvent event) {
+            if (replay != null) {
+                replay.accept(event);
+                if (replay.isStopped()) {
+                    tokenizer.stop();
+                }
+            } else if (!overflowed) {
+                events.enqueue(event);
+                if (events.size() == eventLimit) {
+                    overflowed = true;
+                    events.dequeueAll();
+                    tokenizer.stop();
+                }
+            }
+        }
+
+
+        /**
+         * Moves the local stack into the summary, bottom first.
+         */
+        private void flushOpenTags() {
+            for (int i = 0; i < depth; i++) {
+                record(new ChunkEvent(ChunkEvent.OPEN, tagOffset[i], -1, nameStart[i], nameLength[i], tagLine[i], tagColumn[i]));
+            }
+            clearStack();
+        }
+    }
+}
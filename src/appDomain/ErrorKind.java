@@ -0,0 +1,61 @@
+package appDomain;
+
+/**
+ * ErrorKind.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * The kinds of structural error the parser reports. Each kind carries the
+ * message printed in the error log, and a sentence describing the problem
+ * for machine-readable reports.
+ */
+public enum ErrorKind {
+    INVALID_CLOSING_TAG("Invalid closing tag ", "A '>' appears in text without a matching '<'"),
+    INVALID_OPENING_TAG("Invalid opening tag", "A '>' appears in text before a tag on the same line"),
+    MISSING_CLOSING_BRACKET("Missing closing tag '>'", "A tag is not closed with '>'"),
+    UNMATCHED_CLOSING_TAG("Unmatched closing tag", "A closing tag appears while no tag is open"),
+    MISMATCHED_TAG("Error ", "Tags are not closed in the order they were opened"),
+    UNCLOSED_TAG("Unclosed tag", "A tag is still open at the end of the document"),
+    UNCLOSED_COMMENT("Unclosed comment", "A comment is not closed with '-->'"),
+    UNCLOSED_CDATA("Unclosed CDATA section", "A CDATA section is not closed with ']]>'"),
+    UNCLOSED_PROCESSING_INSTRUCTION("Unclosed processing instruction", "A processing instruction is not closed with '?>'"),
+    UNCLOSED_DECLARATION("Unclosed declaration", "A declaration is not closed with '>'"),
+    TOO_DEEP("Nesting too deep", "A tag is nested deeper than the depth limit"),
+    TOO_MANY_NAMES("Too many tag names", "A document has more distinct tag names than the memory limit holds");
+
+    private final String message;
+    private final String description;
+
+
+    /**
+     * Creates an error kind with its log message and description.
+     *
+     * @param message     the message printed for this kind of error
+     * @param description a sentence describing this kind of error
+     */
+    ErrorKind(String message, String description) {
+        this.message = message;
+        this.description = description;
+    }
+
+
+    /**
+     * Returns the message printed in the error log for this kind of error.
+     *
+     * @return the log message
+     */
+    public String getMessage() {
+        return message;
+    }
+
+
+    /**
+     * Returns a sentence describing this kind of error.
+     *
+     * @return the description
+     */
+    public String getDescription() {
+        return description;
+    }
+}
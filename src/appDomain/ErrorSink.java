@@ -0,0 +1,44 @@
+package appDomain;
+
+import implementations.MyQueue;
+
+/**
+ * ErrorSink.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * Receives the errors of a document in the order they are found. A parser
+ * hands each error over as soon as it is found, so a sink that writes errors
+ * out, instead of collecting them, keeps memory use independent of the number
+ * of errors.
+ */
+public interface ErrorSink {
+
+    /**
+     * Receives one error.
+     *
+     * @param error the error found
+     */
+    void accept(ParseError error);
+
+
+    /**
+     * Writes out any errors the sink is still holding.
+     * The default does nothing, for sinks that hold nothing back.
+     */
+    default void flush() {
+    }
+
+
+    /**
+     * Returns a sink that adds every error to a queue.
+     *
+     * @param errorQueue the queue that receives the errors
+     * @return a sink backed by the queue
+     */
+    static ErrorSink queue(MyQueue<ParseError> errorQueue) {
+        if (errorQueue == null) throw new NullPointerException("Error queue cannot be null");
+        return errorQueue::enqueue;
+    }
+}
@@ -0,0 +1,754 @@
+package appDomain;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+/**
+ * IncrementalValidator.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * Checks a memory-mapped XML file again after an edit, scanning only the part
+ * of it around the change.
+ *
+ * Every time the scan passes another {@link #DEFAULT_INTERVAL} bytes, at the
+ * next line that starts in text, it takes a checkpoint: the byte offset, the
+ * line number, the number of errors found so far and the tags opened since
+ * the previous checkpoint that are still open. The checkpoints, a hash of the
+ * bytes between each pair of them and the errors found are saved in a sidecar
+ * file next to the document. The errors are written to it as they are found.
+ *
+ * On the next check the hashes are compared with the file. Intervals before
+ * the first one that changed are trusted, so their errors are reported from
+ * the sidecar and the scan resumes at the checkpoint starting the changed
+ * interval with its stack restored. Intervals at the end of the file that
+ * still match, shifted by the change in file size, give the points where the
+ * scan may catch up with the old run. Once the scan reaches one of them with
+ * the same tag names open, the rest of the old run is replayed from the
+ * sidecar with its lines and offsets moved, and the rest of the file is not
+ * scanned.
+ *
+ * Hashing reads the file much faster than scanning it, so after a one-line
+ * edit a check costs a hash of the file and a scan of about two intervals.
+ * The sidecar is not written when the check stops at an error limit, and a
+ * sidecar that cannot be written is reported as a warning.
+ */
+public class IncrementalValidator extends MappedXMLValidator {
+    public static final long DEFAULT_INTERVAL = 8L << 20;        // A checkpoint every 8 MB
+    public static final String SIDECAR_SUFFIX = ".checkpoints"; // Appended to the document's file name
+
+    private static final int MAGIC = 0x58504b31;  // "XPK1"
+    private static final int FORMAT_VERSION = 2;  // Raise whenever the parser reports errors differently
+    private static final int HEADER_SIZE = 36;    // The errors follow the header, and the checkpoints follow the errors
+    private static final ErrorKind[] KINDS = ErrorKind.values();
+
+    private final long interval;
+    private final ArrayList<Checkpoint> checkpoints = new ArrayList<>();
+    private final Stack last = new Stack(); // The stack at the last checkpoint taken
+    private Spool spool;                    // The new sidecar, while the check writes one
+    private int found;                      // Errors of this check
+    private long bytesScanned;
+
+
+    /**
+     * The state of a check at the start of a line in text. Only the top of the
+     * stack is stored: the entries above those it shares with the previous
+     * checkpoint, bottom first, as columns in the form passed to {@link MappedXMLValidator#push}.
+     */
+    static final class Checkpoint {
+        final long offset;
+        final int line;
+        final int errorCount; // Errors found before the offset
+        long hash;            // Of the bytes up to the next checkpoint or the end of the file
+        final int kept;       // Stack entries shared with the previous checkpoint
+        final String[] names;
+        final long[] nameStarts;
+        final int[] nameLengths;
+        final int[] lines;
+        final int[] columns;
+        final long[] offsets;
+
+
+        Checkpoint(long offset, int line, int errorCount, long hash, int kept, int pushed) {
+            this.offset = offset;
+            this.line = line;
+            this.errorCount = errorCount;
+            this.hash = hash;
+            this.kept = kept;
+            this.names = new String[pushed];
+            this.nameStarts = new long[pushed];
+            this.nameLengths = new int[pushed];
+            this.lines = new int[pushed];
+            this.columns = new int[pushed];
+            this.offsets = new long[pushed];
+        }
+    }
+
+
+    /**
+     * The whole stack at a checkpoint, rebuilt from the checkpoints before it.
+     */
+    private static final class Stack {
+        int depth;
+        int at = -1; // The checkpoint applied last
+        String[] names = new String[16];
+        long[] nameStarts = new long[16];
+        int[] nameLengths = new int[16];
+        int[] lines = new int[16];
+        int[] columns = new int[16];
+        long[] offsets = new long[16];
+
+
+        /**
+         * Moves the stack on to a checkpoint that follows the one it holds.
+         */
+        void apply(Checkpoint checkpoint) {
+            int pushed = checkpoint.names.length;
+            depth = checkpoint.kept + pushed;
+            if (depth > names.length) {
+                int capacity = Math.max(depth, 2 * names.length);
+                names = Arrays.copyOf(names, capacity);
+                nameStarts = Arrays.copyOf(nameStarts, capacity);
+                nameLengths = Arrays.copyOf(nameLengths, capacity);
+                lines = Arrays.copyOf(lines, capacity);
+                columns = Arrays.copyOf(columns, capacity);
+                offsets = Arrays.copyOf(offsets, capacity);
+            }
+            System.arraycopy(checkpoint.names, 0, names, checkpoint.kept, pushed);
+            System.arraycopy(checkpoint.nameStarts, 0, nameStarts, checkpoint.kept, pushed);
+            System.arraycopy(checkpoint.nameLengths, 0, nameLengths, checkpoint.kept, pushed);
+            System.arraycopy(checkpoint.lines, 0, lines, checkpoint.kept, pushed);
+            System.arraycopy(checkpoint.columns, 0, columns, checkpoint.kept, pushed);
+            System.arraycopy(checkpoint.offsets, 0, offsets, checkpoint.kept, pushed);
+        }
+
+
+        /**
+         * Applies the checkpoints of a run up to and including {@code to}.
+         */
+        void advance(Checkpoint[] run, int to) {
+            while (at < to) {
+                apply(run[++at]);
+            }
+        }
+
+
+        void clear() {
+            depth = 0;
+            at = -1;
+        }
+    }
+
+
+    /**
+     * The checkpoints of the last check, read from a sidecar file, and a
+     * reader over its errors, which are read in order as they are replayed.
+     */
+    private static final class Saved implements AutoCloseable {
+        final long size;       // Size of the file that was checked
+        final int errorCount;
+        final Checkpoint[] checkpoints;
+        private final FileChannel channel;
+        private final DataInputStream errors;
+        private int next;      // The index of the next error to read
+
+
+        Saved(long size, int errorCount, Checkpoint[] checkpoints, FileChannel channel) throws IOException {
+            this.size = size;
+            this.errorCount = errorCount;
+            this.checkpoints = checkpoints;
+            this.channel = channel;
+            this.errors = reader(channel, HEADER_SIZE);
+        }
+
+
+        /**
+         * Reads an error, skipping those before it. Errors are read in order.
+         */
+        ParseError error(int e) throws IOException {
+            while (next < e) {
+                readError(errors);
+                next++;
+            }
+            next++;
+            return readError(errors);
+        }
+
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+
+    /**
+     * A new sidecar, written to a temporary file that replaces the old one in
+     * one move: the errors as they are found, then the checkpoints and the
+     * header once the check is done. The first write that fails is kept and
+     * the rest are skipped.
+     */
+    private static final class Spool implements AutoCloseable {
+        private final Path sidecar;
+        private Path temporary;
+        private FileChannel channel;
+        private DataOutputStream out;
+        private IOException failure;
+
+
+        Spool(Path sidecar) {
+            this.sidecar = sidecar;
+            try {
+                Path directory = sidecar.toAbsolutePath().getParent();
+                temporary = Files.createTempFile(directory, sidecar.getFileName().toString(), ".tmp");
+                channel = FileChannel.open(temporary, StandardOpenOption.WRITE);
+                out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+                out.write(new byte[HEADER_SIZE]); // Filled in by commit
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+
+        void add(ErrorKind kind, String text, int line, int column, long offset) {
+            if (failure != null) return;
+            try {
+                out.writeByte(kind.ordinal());
+                out.writeInt(line);
+                out.writeInt(column);
+                out.writeLong(offset);
+                out.writeUTF(text);
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+
+        /**
+         * Writes the checkpoints and the header, and moves the file over the sidecar.
+         */
+        void commit(long interval, long size, int errorCount, ArrayList<Checkpoint> checkpoints) {
+            if (failure != null) return;
+            try {
+                out.flush();
+                long checkpointsAt = channel.position();
+
+                out.writeInt(checkpoints.size());
+                for (Checkpoint checkpoint : checkpoints) {
+                    writeCheckpoint(out, checkpoint);
+                }
+                out.flush();
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(interval).putLong(size)
+                        .putInt(errorCount).putLong(checkpointsAt).flip();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                channel.close();
+                Files.move(temporary, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+
+        /**
+         * Removes the temporary file unless it was moved over the sidecar.
+         */
+        @Override
+        public void close() {
+            try {
+                if (channel != null) channel.close();
+                if (temporary != null) Files.deleteIfExists(temporary);
+            } catch (IOException e) {
+                // A temporary file left behind does not change the result of the check
+            }
+        }
+    }
+
+
+    /**
+     * Creates a validator that takes a checkpoint every {@link #DEFAULT_INTERVAL} bytes.
+     *
+     * @param sink the sink that receives the errors found
+     */
+    public IncrementalValidator(ErrorSink sink) {
+        this(sink, DEFAULT_INTERVAL);
+    }
+
+
+    /**
+     * Creates a validator with a specific checkpoint interval. A sidecar
+     * written with a different interval is ignored.
+     *
+     * @param sink     the sink that receives the errors found
+     * @param interval the approximate number of bytes between checkpoints
+     */
+    public IncrementalValidator(ErrorSink sink, long interval) {
+        super(sink);
+        if (interval <= 0) throw new IllegalArgumentException("Checkpoint interval must be positive");
+        this.interval = interval;
+    }
+
+
+    /**
+     * Returns the sidecar file holding the checkpoints of a document.
+     *
+     * @param file the XML file
+     * @return the path of its sidecar file
+     */
+    public static Path sidecarOf(Path file) {
+        return file.resolveSibling(file.getFileName() + SIDECAR_SUFFIX);
+    }
+
+
+    /**
+     * Returns the number of bytes the last check scanned. Bytes whose errors
+     * were taken from the sidecar are not counted.
+     *
+     * @return the bytes scanned
+     */
+    public long getBytesScanned() {
+        return bytesScanned;
+    }
+
+
+    /**
+     * Maps the file and checks it, resuming from its sidecar file if there is
+     * one, then saves the new checkpoints to the sidecar.
+     *
+     * @param filePath the path to the XML file
+     * @throws IOException if the file cannot be mapped or the sidecar cannot be read
+     */
+    @Override
+    public void validate(String filePath) throws IOException {
+        Path file = Path.of(filePath);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             Arena arena = Arena.ofConfined()) {
+            long size = channel.size();
+            MemorySegment source = size == 0
+                    ? MemorySegment.ofArray(new byte[0])
+                    : channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena);
+
+            validate(source, sidecarOf(file));
+        }
+    }
+
+
+    /**
+     * Checks a segment holding a whole document against the checkpoints in a
+     * sidecar file, then saves the new checkpoints to it. A sidecar that
+     * cannot be written is reported on standard error and the check stands.
+     *
+     * @param source  the UTF-8 encoded XML bytes
+     * @param sidecar the sidecar file, which need not exist yet
+     * @throws IOException if the sidecar fails while its errors are read back
+     */
+    public void validate(MemorySegment source, Path sidecar) throws IOException {
+        begin();
+        checkpoints.clear();
+        last.clear();
+        found = 0;
+        bytesScanned = 0;
+
+        Saved saved = read(sidecar, interval);
+        try (saved) {
+            int first = saved == null ? 0 : firstChange(source, saved);
+            if (saved != null && first == saved.checkpoints.length && source.byteSize() == saved.size) {
+                replay(saved, saved.errorCount);
+                return; // The file has not changed, so neither has its sidecar
+            }
+
+            try (Spool written = new Spool(sidecar)) {
+                spool = written;
+                if (saved == null) {
+                    scan(source, 0, 1, null, 0, 0);
+                } else {
+                    resume(source, saved, first);
+                }
+                if (isStopped()) return;
+
+                written.commit(interval, source.byteSize(), found, checkpoints);
+                if (written.failure != null) {
+                    System.err.println("Could not save the checkpoints to " + sidecar + ": " + written.failure.getMessage());
+                }
+            } finally {
+                spool = null;
+            }
+        }
+    }
+
+
+    /**
+     * Returns the first interval of the old run whose bytes changed, or the
+     * number of intervals if none did.
+     */
+    private static int firstChange(MemorySegment source, Saved saved) {
+        int first = 0;
+        while (first < saved.checkpoints.length && intervalMatches(source, saved, first, 0)) {
+            first++;
+        }
+        return first;
+    }
+
+
+    /**
+     * Checks a document that has changed since its sidecar was written:
+     * reports the unchanged start from the sidecar and scans from the
+     * checkpoint before the first change.
+     *
+     * @param first the first interval that changed
+     */
+    private void resume(MemorySegment source, Saved saved, int first) throws IOException {
+        Checkpoint[] old = saved.checkpoints;
+        long delta = source.byteSize() - saved.size;
+
+        // With only text appended every interval matches, so the scan resumes at the last one
+        int start = Math.min(first, old.length - 1);
+
+        int suffix = old.length;
+        while (suffix > start + 1 && intervalMatches(source, saved, suffix - 1, delta)) {
+            suffix--;
+        }
+
+        for (int i = 0; i < start; i++) {
+            checkpoints.add(old[i]);
+            last.apply(old[i]);
+        }
+        replay(saved, old[start].errorCount);
+        if (isStopped()) return;
+
+        Stack from = new Stack();
+        from.advance(old, start);
+        for (int d = 0; d < from.depth; d++) {
+            push(source, from.nameStarts[d], from.nameLengths[d], from.lines[d], from.columns[d], from.offsets[d]);
+        }
+        scan(source, old[start].offset, old[start].line, saved, suffix, delta);
+    }
+
+
+    /**
+     * Scans from a line in text to the end of the document, taking
+     * checkpoints, until the scan catches up with a checkpoint of the old run.
+     *
+     * @param from      the offset of the first line
+     * @param line      the number of the first line
+     * @param saved     the old run, or null if there is none
+     * @param candidate the first old checkpoint the rest of the file still matches
+     * @param delta     the change in file size since the old run
+     */
+    private void scan(MemorySegment source, long from, int line, Saved saved, int candidate, long delta) throws IOException {
+        long size = source.byteSize();
+        Checkpoint[] old = saved == null ? new Checkpoint[0] : saved.checkpoints;
+        Stack reached = new Stack(); // The stack at the candidate
+        checkpoints.add(capture(from, line));
+
+        while (from < size && !isStopped()) {
+            // The next point where the old run can be caught up with, which must start a line
+            while (candidate < old.length && (old[candidate].offset + delta <= from
+                    || source.get(ValueLayout.JAVA_BYTE, old[candidate].offset + delta - 1) != '\n')) {
+                candidate++;
+            }
+
+            long to = nextBoundary(source, from);
+            if (candidate < old.length) {
+                to = Math.min(to, old[candidate].offset + delta);
+            }
+
+            line = tokenizer.tokenize(source, from, to, line);
+            bytesScanned += to - from;
+            from = to;
+            if (from == size || isStopped() || tokenizer.isInMarkup()) continue;
+
+            checkpoints.get(checkpoints.size() - 1).hash = hash(source, checkpoints.get(checkpoints.size() - 1).offset, from);
+            if (candidate < old.length && from == old[candidate].offset + delta) {
+                reached.advance(old, candidate);
+                if (stackMatches(reached)) {
+                    splice(saved, candidate, reached, delta, line - old[candidate].line);
+                    return;
+                }
+            }
+            checkpoints.add(capture(from, line));
+        }
+
+        checkpoints.get(checkpoints.size() - 1).hash = hash(source, checkpoints.get(checkpoints.size() - 1).offset, size);
+        tokenizer.finish();
+        finish();
+    }
+
+
+    /**
+     * Takes the rest of the check from the old run, once the scan has reached
+     * one of its checkpoints with the same tags open. Positions after the
+     * checkpoint move with the edit. Positions of the open tags are taken from
+     * the stack, since tags opened inside the rescanned part may have moved by
+     * less than the whole edit.
+     *
+     * @param k         the old checkpoint that was reached
+     * @param at        the stack at that checkpoint
+     * @param delta     the change in file size
+     * @param lineDelta the change in the number of lines
+     */
+    private void splice(Saved saved, int k, Stack at, long delta, int lineDelta) throws IOException {
+        Checkpoint reached = saved.checkpoints[k];
+        int errorDelta = found - reached.errorCount;
+
+        // Tags opened after the checkpoint reached moved with the edit
+        Checkpoint first = capture(reached.offset + delta, reached.line + lineDelta);
+        first.hash = reached.hash;
+        checkpoints.add(first);
+        for (int m = k + 1; m < saved.checkpoints.length; m++) {
+            Checkpoint before = saved.checkpoints[m];
+            Checkpoint after = new Checkpoint(before.offset + delta, before.line + lineDelta,
+                    before.errorCount + errorDelta, before.hash, before.kept, before.names.length);
+
+            for (int d = 0; d < before.names.length; d++) {
+                after.names[d] = before.names[d];
+                after.nameStarts[d] = before.nameStarts[d] + delta;
+                after.nameLengths[d] = before.nameLengths[d];
+                after.lines[d] = before.lines[d] + lineDelta;
+                after.columns[d] = before.columns[d];
+                after.offsets[d] = before.offsets[d] + delta;
+            }
+            checkpoints.add(after);
+        }
+
+        // An error before the checkpoint reached can only be for a tag open on its stack
+        for (int e = reached.errorCount; e < saved.errorCount && !isStopped(); e++) {
+            ParseError error = saved.error(e);
+            int d = error.getOffset() < reached.offset ? Arrays.binarySearch(at.offsets, 0, at.depth, error.getOffset()) : -1;
+
+            if (d >= 0) {
+                error(error.getKind(), error.getText(), tagLine[d], error.getColumn(), tagOffset[d]);
+            } else if (error.getOffset() >= reached.offset) {
+                error(error.getKind(), error.getText(), error.getLine() + lineDelta, error.getColumn(), error.getOffset() + delta);
+            } else {
+                error(error.getKind(), error.getText(), error.getLine(), error.getColumn(), error.getOffset());
+            }
+        }
+        clearStack();
+    }
+
+
+    /**
+     * Reports the old run's errors before {@code to} unchanged.
+     */
+    private void replay(Saved saved, int to) throws IOException {
+        for (int e = 0; e < to && !isStopped(); e++) {
+            ParseError error = saved.error(e);
+            error(error.getKind(), error.getText(), error.getLine(), error.getColumn(), error.getOffset());
+        }
+    }
+
+
+    @Override
+    void error(ErrorKind kind, String text, int line, int column, long offset) {
+        if (!isStopped()) {
+            found++;
+            if (spool != null) {
+                spool.add(kind, text, line, column, offset);
+            }
+        }
+        super.error(kind, text, line, column, offset);
+    }
+
+
+    /**
+     * Takes a checkpoint holding the tags opened since the last one that are still open.
+     */
+    private Checkpoint capture(long offset, int line) {
+        int kept = 0;
+        while (kept < depth && kept < last.depth && last.offsets[kept] == tagOffset[kept]) {
+            kept++;
+        }
+        Checkpoint checkpoint = new Checkpoint(offset, line, found, 0, kept, depth - kept);
+
+        for (int d = kept; d < depth; d++) {
+            checkpoint.names[d - kept] = nameOf(d);
+            checkpoint.nameStarts[d - kept] = nameStart[d];
+            checkpoint.nameLengths[d - kept] = nameLength[d];
+            checkpoint.lines[d - kept] = tagLine[d];
+            checkpoint.columns[d - kept] = tagColumn[d];
+            checkpoint.offsets[d - kept] = tagOffset[d];
+        }
+        last.apply(checkpoint);
+        return checkpoint;
+    }
+
+
+    /**
+     * Checks whether the same tag names are open, at the same columns, as at an old checkpoint.
+     * Those decide every error the rest of the document produces.
+     */
+    private boolean stackMatches(Stack stack) {
+        if (stack.depth != depth) return false;
+
+        for (int d = 0; d < depth; d++) {
+            if (stack.columns[d] != tagColumn[d] || !stack.names[d].equals(nameOf(d))) return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * Checks whether an interval of the old run holds the same bytes in the
+     * file, starting {@code shift} bytes later.
+     */
+    private static boolean intervalMatches(MemorySegment source, Saved saved, int i, long shift) {
+        Checkpoint[] old = saved.checkpoints;
+        long start = old[i].offset + shift;
+        long end = (i + 1 < old.length ? old[i + 1].offset : saved.size) + shift;
+
+        return start >= 0 && end <= source.byteSize() && hash(source, start, end) == old[i].hash;
+    }
+
+
+    /**
+     * Returns the start of the first line beginning at least one interval after {@code from},
+     * or the end of the source.
+     */
+    private long nextBoundary(MemorySegment source, long from) {
+        long size = source.byteSize();
+        long newline = from + interval >= size ? -1 : XMLTokenizer.indexOf(source, (byte) '\n', from + interval, size);
+        return newline == -1 ? size : newline + 1;
+    }
+
+
+    /**
+     * Hashes a range of the source.
+     */
+    private static long hash(MemorySegment source, long from, long to) {
+        return ResultCache.hash(source.asSlice(from, to - from));
+    }
+
+
+    /**
+     * Reads the checkpoints of a sidecar file and checks that its errors can
+     * be read back. A missing or damaged sidecar, or one written with another
+     * interval or format, reads as null.
+     */
+    private static Saved read(Path sidecar, long interval) {
+        if (!Files.exists(sidecar)) return null;
+
+        try {
+            FileChannel channel = FileChannel.open(sidecar, StandardOpenOption.READ);
+            Saved saved = null;
+            try {
+                saved = parse(channel, interval);
+                return saved;
+            } finally {
+                if (saved == null) channel.close();
+            }
+        } catch (IOException | RuntimeException e) {
+            return null; // A damaged sidecar is rebuilt by a full scan
+        }
+    }
+
+
+    /**
+     * Reads the header and the checkpoints of an open sidecar file.
+     */
+    private static Saved parse(FileChannel channel, long interval) throws IOException {
+        DataInputStream in = reader(channel, 0);
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || in.readLong() != interval) return null;
+
+        long size = in.readLong();
+        int errorCount = in.readInt();
+        long checkpointsAt = in.readLong();
+
+        in = reader(channel, checkpointsAt);
+        Checkpoint[] checkpoints = new Checkpoint[in.readInt()];
+        if (checkpoints.length == 0) return null;
+
+        int depth = 0;
+        for (int i = 0; i < checkpoints.length; i++) {
+            Checkpoint checkpoint = readCheckpoint(in);
+            if (checkpoint.kept < 0 || checkpoint.kept > depth) return null;
+            depth = checkpoint.kept + checkpoint.names.length;
+            checkpoints[i] = checkpoint;
+        }
+        if (in.read() != -1) return null;
+
+        // A damaged error must be found before any error has been reported
+        in = reader(channel, HEADER_SIZE);
+        for (int e = 0; e < errorCount; e++) {
+            readError(in);
+        }
+        return new Saved(size, errorCount, checkpoints, channel);
+    }
+
+
+    /**
+     * Opens a buffered reader at an offset of a file. Closing the channel closes the reader.
+     */
+    private static DataInputStream reader(FileChannel channel, long offset) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(offset)), 1 << 16));
+    }
+
+
+    private static Checkpoint readCheckpoint(DataInputStream in) throws IOException {
+        long offset = in.readLong();
+        int line = in.readInt();
+        int errorCount = in.readInt();
+        long hash = in.readLong();
+        int kept = in.readInt();
+        Checkpoint checkpoint = new Checkpoint(offset, line, errorCount, hash, kept, in.readInt());
+
+        for (int d = 0; d < checkpoint.names.length; d++) {
+            checkpoint.names[d] = in.readUTF();
+            checkpoint.nameStarts[d] = in.readLong();
+            checkpoint.nameLengths[d] = in.readInt();
+            checkpoint.lines[d] = in.readInt();
+            checkpoint.columns[d] = in.readInt();
+            checkpoint.offsets[d] = in.readLong();
+        }
+        return checkpoint;
+    }
+
+
+    private static void writeCheckpoint(DataOutputStream out, Checkpoint checkpoint) throws IOException {
+        out.writeLong(checkpoint.offset);
+        out.writeInt(checkpoint.line);
+        out.writeInt(checkpoint.errorCount);
+        out.writeLong(checkpoint.hash);
+        out.writeInt(checkpoint.kept);
+        out.writeInt(checkpoint.names.length);
+
+        for (int d = 0; d < checkpoint.names.length; d++) {
+            out.writeUTF(checkpoint.names[d]);
+            out.writeLong(checkpoint.nameStarts[d]);
+            out.writeInt(checkpoint.nameLengths[d]);
+            out.writeInt(checkpoint.lines[d]);
+            out.writeInt(checkpoint.columns[d]);
+            out.writeLong(checkpoint.offsets[d]);
+        }
+    }
+
+
+    private static ParseError readError(DataInputStream in) throws IOException {
+        ErrorKind kind = KINDS[in.readUnsignedByte()];
+        int line = in.readInt();
+        int column = in.readInt();
+        long offset = in.readLong();
+        return new ParseError(kind, line, column, offset, in.readUTF());
+    }
+}
@@ -0,0 +1,89 @@
+package appDomain;
+
+import java.io.OutputStream;
+
+/**
+ * JsonLinesReportWriter.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * Writes one JSON object per line, for scripts and log pipelines. Every
+ * object has a {@code type}:
+ * - {@code error}: one error, with its file, kind, description, line,
+ *   column, byte offset (-1 if unknown) and offending text.
+ * - {@code limitReached}: checking of the file stopped at the error limit.
+ * - {@code readError}: the file could not be read.
+ * A file without errors writes nothing.
+ */
+public class JsonLinesReportWriter extends ReportWriter {
+    private String file;
+
+
+    /**
+     * Creates a JSON Lines writer.
+     *
+     * @param out the stream the report is written to
+     */
+    public JsonLinesReportWriter(OutputStream out) {
+        super(out, DEFAULT_BUFFER_SIZE);
+    }
+
+
+    @Override
+    public void beginFile(String file) {
+        this.file = file;
+    }
+
+
+    @Override
+    protected void writeError(ParseError error) {
+        startRecord("error");
+        write(",\"kind\":");
+        writeJson(error.getKind().name());
+        write(",\"message\":");
+        writeJson(error.getKind().getDescription());
+        write(",\"line\":");
+        write(error.getLine());
+        write(",\"column\":");
+        write(error.getColumn());
+        write(",\"offset\":");
+        write(error.getOffset());
+        write(",\"text\":");
+        writeJson(error.getText());
+        write("}\n");
+    }
+
+
+    @Override
+    public void endFile(boolean stopped) {
+        if (stopped) {
+            startRecord("limitReached");
+            write("}\n");
+        }
+        flush();
+    }
+
+
+    @Override
+    public void fileError(String message) {
+        startRecord("readError");
+        write(",\"message\":");
+        writeJson(String.valueOf(message));
+        write("}\n");
+        flush();
+    }
+
+
+    /**
+     * Writes the start of an object with its type and file.
+     */
+    private void startRecord(String type) {
+        write("{\"type\":");
+        writeJson(type);
+        if (file != null) {
+            write(",\"file\":");
+            writeJson(file);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package appDomain;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * Counts durations in a fixed set of buckets so percentiles can be read at
+ * any time without keeping every sample. Each power of two is split into
+ * {@link #SUB_BUCKETS} equal buckets, so a percentile is accurate to about 6%
+ * of its value from one microsecond up to hours.
+ *
+ * Recording is one atomic increment, so many threads can record at once
+ * without a lock and without allocating.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // Buckets per power of two
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+
+    /**
+     * Records one duration.
+     *
+     * @param micros the duration in microseconds; negative values count as 0
+     */
+    public void record(long micros) {
+        counts.incrementAndGet(bucket(Math.max(0, micros)));
+    }
+
+
+    /**
+     * Returns the number of durations recorded.
+     *
+     * @return the sample count
+     */
+    public long count() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+
+    /**
+     * Returns a duration that the given fraction of the recorded durations do not exceed.
+     *
+     * @param fraction the percentile as a fraction, such as 0.99
+     * @return the upper bound of the bucket holding that percentile in
+     *         microseconds, or 0 if nothing was recorded
+     */
+    public long percentile(double fraction) {
+        if (fraction < 0 || fraction > 1) throw new IllegalArgumentException("Fraction must be between 0 and 1");
+
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) return upperBound(i);
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+
+    /**
+     * Describes the count and the usual percentiles on one line.
+     *
+     * @return text such as {@code count=120 p50=85us p90=140us p99=610us p999=900us}
+     */
+    public String summary() {
+        return "count=" + count() + " p50=" + percentile(0.5) + "us p90=" + percentile(0.9)
+                + "us p99=" + percentile(0.99) + "us p999=" + percentile(0.999) + "us";
+    }
+
+
+    /**
+     * Returns the bucket of a value. Values below {@link #SUB_BUCKETS} get a bucket each.
+     */
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+
+        int magnitude = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS; // Shift that leaves 4 significant bits
+        int sub = (int) (value >>> magnitude) - SUB_BUCKETS;                      // The bits below the leading one
+        return (magnitude + 1) * SUB_BUCKETS + sub;
+    }
+
+
+    /**
+     * Returns the largest value that falls in a bucket.
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+
+        int magnitude = bucket / SUB_BUCKETS - 1;
+        long sub = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << magnitude) - 1;
+    }
+}
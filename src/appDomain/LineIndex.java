@@ -0,0 +1,132 @@
+package appDomain;
+
+import java.util.Arrays;
+
+/**
+ * LineIndex.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * Turns the offset of an open tag back into its line and column when, and
+ * only when, the tag is reported. A stack entry then holds just the tag's
+ * offset, and line numbers stay out of the code that pushes and pops tags.
+ *
+ * The index holds the start offset and number of lines, in the order they
+ * were read, as two parallel primitive columns. A line is only added when a
+ * tag is opened on it, and a line that is already the last one is not added
+ * again. The position of an offset is found by binary search on the starts.
+ *
+ * Only lines holding a tag that is still open are ever needed, so when the
+ * columns fill up, {@link #retain} drops every other line before growing
+ * them. The index stays about as small as the tag stack, whatever the length
+ * of the document.
+ */
+final class LineIndex {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long[] starts = new long[INITIAL_CAPACITY]; // Offset of the first byte of each line
+    private int[] lines = new int[INITIAL_CAPACITY];    // Number of each line
+    private int size;
+
+
+    /**
+     * Records the line a tag is opened on, unless it is the last line recorded.
+     *
+     * @param lineStart the offset of the first byte of the line
+     * @param line      the line number
+     */
+    void mark(long lineStart, int line) {
+        if (size > 0 && starts[size - 1] == lineStart) return;
+
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            lines = Arrays.copyOf(lines, size * 2);
+        }
+        starts[size] = lineStart;
+        lines[size] = line;
+        size++;
+    }
+
+
+    /**
+     * Checks whether the next new line would make the columns grow.
+     */
+    boolean isFull() {
+        return size == starts.length;
+    }
+
+
+    /**
+     * Keeps only the lines that hold one of the given offsets, and grows the
+     * columns if that does not free at least half of them.
+     *
+     * @param offsets the offsets still needed, in increasing order
+     * @param count   the number of offsets
+     */
+    void retain(long[] offsets, int count) {
+        int kept = 0;
+        int line = 0;
+        for (int i = 0; i < count; i++) {
+            while (line + 1 < size && starts[line + 1] <= offsets[i]) {
+                line++;
+            }
+            if (kept == 0 || starts[kept - 1] != starts[line]) {
+                starts[kept] = starts[line];
+                lines[kept] = lines[line];
+                kept++;
+            }
+        }
+        size = kept;
+
+        if (size > starts.length / 2) {
+            starts = Arrays.copyOf(starts, starts.length * 2);
+            lines = Arrays.copyOf(lines, lines.length * 2);
+        }
+    }
+
+
+    /**
+     * Finds the line holding an offset.
+     *
+     * @param offset an offset at or after the first line recorded
+     * @return the index of the line, for {@link #line} and {@link #column}
+     */
+    int find(long offset) {
+        int low = 0;
+        int high = size - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (starts[middle] <= offset) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+
+    /**
+     * Returns the number of a line found by {@link #find}.
+     */
+    int line(int index) {
+        return lines[index];
+    }
+
+
+    /**
+     * Returns the column of an offset on a line found by {@link #find}.
+     */
+    int column(int index, long offset) {
+        return (int) (offset - starts[index] + 1);
+    }
+
+
+    /**
+     * Forgets every line, keeping the columns for reuse.
+     */
+    void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,350 @@
+package appDomain;
+
+import implementations.MyQueue;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * MappedXMLValidator.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * Checks an XML file that is mapped into memory with {@code FileChannel.map}.
+ * The file is scanned in place as a {@code MemorySegment}, so files larger
+ * than 2 GB are supported and a file already in the page cache is checked
+ * without being copied.
+ *
+ * Open tags are kept as offsets into the mapping instead of strings. Tag
+ * names are given ids by a {@link SymbolTable}, so closing tags are matched
+ * by comparing ints. A {@code String} is only built
+ * when a tag or line is reported as an error, so heap usage depends on the
+ * nesting depth and the number of errors, not on the size of the file.
+ *
+ * The number of open tags of each name is counted, so a closing tag whose
+ * name is not open is rejected without searching the stack.
+ *
+ * An error limit can be set. Once that many errors have been reported the
+ * scan stops, so a broken file is rejected without reading the rest of it.
+ */
+public class MappedXMLValidator implements XMLTokenizer.TagListener {
+    private static final int INITIAL_CAPACITY = 64; // Default initial stack depth
+
+    private final ErrorSink sink;
+    private final SymbolTable symbols = new SymbolTable();
+    final XMLTokenizer tokenizer;
+
+    // The open-tag stack, stored as parallel columns
+    int[] tagName = new int[INITIAL_CAPACITY];
+    long[] nameStart = new long[INITIAL_CAPACITY];
+    int[] nameLength = new int[INITIAL_CAPACITY];
+    int[] tagLine = new int[INITIAL_CAPACITY];
+    int[] tagColumn = new int[INITIAL_CAPACITY];
+    long[] tagOffset = new long[INITIAL_CAPACITY];
+    int depth;
+    long tags;   // Tags scanned since the document began, for ParserMetrics
+    int deepest; // Deepest the stack has been since the document began
+    private int[] openCounts = new int[INITIAL_CAPACITY]; // Open tags per name id
+
+    private int errorLimit; // 0 for no limit
+    private int errorCount;
+    private boolean stopped;
+
+
+    /**
+     * Creates a validator that reports errors to the given queue.
+     *
+     * @param errorQueue the queue that receives the errors found
+     */
+    public MappedXMLValidator(MyQueue<ParseError> errorQueue) {
+        this(ErrorSink.queue(errorQueue));
+    }
+
+
+    /**
+     * Creates a validator that hands each error to a sink as soon as it is found.
+     *
+     * @param sink the sink that receives the errors found
+     */
+    @SuppressWarnings("this-escape") // The tokenizer keeps this listener but calls it only while scanning
+    public MappedXMLValidator(ErrorSink sink) {
+        if (sink == null) throw new NullPointerException("Error sink cannot be null");
+        this.sink = sink;
+        this.tokenizer = new XMLTokenizer(this);
+    }
+
+
+    /**
+     * Creates a validator without an error sink, for subclasses that override {@link #error}.
+     */
+    @SuppressWarnings("this-escape")
+    MappedXMLValidator() {
+        this.sink = null;
+        this.tokenizer = new XMLTokenizer(this);
+    }
+
+
+    /**
+     * Sets the number of errors after which a check stops. Errors found after
+     * the limit, including unclosed tags, are not reported.
+     *
+     * @param errorLimit the maximum number of errors to report, or 0 for no limit
+     */
+    public void setErrorLimit(int errorLimit) {
+        if (errorLimit < 0) throw new IllegalArgumentException("Error limit cannot be negative");
+        this.errorLimit = errorLimit;
+    }
+
+
+    /**
+     * Checks whether the last check stopped because the error limit was reached.
+     *
+     * @return true if the error limit was reached
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+
+    /**
+     * Maps the file and checks it, including any tags left unclosed at the end.
+     *
+     * @param filePath the path to the XML file
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public void validate(String filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ);
+             Arena arena = Arena.ofConfined()) {
+            long size = channel.size();
+            MemorySegment source = size == 0
+                    ? MemorySegment.ofArray(new byte[0])
+                    : channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena);
+
+            validate(source);
+        }
+    }
+
+
+    /**
+     * Checks a segment holding a whole document, including any tags left unclosed at the end.
+     *
+     * @param source the UTF-8 encoded XML bytes
+     */
+    public void validate(MemorySegment source) {
+        begin();
+        tokenizer.tokenize(source, 1);
+        finish();
+    }
+
+
+    /**
+     * Clears the stack, the tag names and the error count before a new document.
+     */
+    void begin() {
+        clearStack();
+        tags = 0;
+        deepest = 0;
+        symbols.clear();
+        errorCount = 0;
+        stopped = false;
+        tokenizer.restart();
+    }
+
+
+    /**
+     * Reports every tag still on the stack as unclosed, innermost first.
+     */
+    void finish() {
+        while (depth > 0) {
+            depth--;
+            openCounts[tagName[depth]]--;
+            error(ErrorKind.UNCLOSED_TAG, openTag(depth), tagLine[depth], tagColumn[depth], tagOffset[depth]);
+        }
+    }
+
+
+    @Override
+    public void tag(MemorySegment source, long lineStart, long tagStart, long tagEnd, long contentStart, long contentEnd, int lineNum) {
+        int column = (int) (tagStart - lineStart + 1);
+        tags++;
+
+        if (contentEnd == contentStart || source.get(ValueLayout.JAVA_BYTE, contentStart) != '/') {
+            push(source, contentStart, (int) (contentEnd - contentStart), lineNum, column, tagStart);
+        } else {
+            close(source, tagStart, tagEnd, contentStart + 1, (int) (contentEnd - contentStart - 1), lineNum, column);
+        }
+    }
+
+
+    @Override
+    public void lineError(MemorySegment source, long lineStart, long textStart, long textEnd, ErrorKind kind, int lineNum) {
+        error(kind, XMLTokenizer.decode(source, textStart, textEnd), lineNum, (int) (textStart - lineStart + 1), textStart);
+    }
+
+
+    @Override
+    public void markupError(ErrorKind kind, String text, int lineNum, int column, long offset) {
+        error(kind, text, lineNum, column, offset);
+    }
+
+
+    /**
+     * Pushes an open tag onto the stack, growing the columns when full.
+     *
+     * @param source the bytes being scanned
+     * @param start  offset of the tag name
+     * @param length length of the tag name in bytes
+     * @param line   the line the tag is on
+     * @param column the column of the tag's '<'
+     * @param offset offset of the tag's '<'
+     */
+    void push(MemorySegment source, long start, int length, int line, int column, long offset) {
+        if (depth == nameStart.length) {
+            int capacity = depth * 2;
+            tagName = Arrays.copyOf(tagName, capacity);
+            nameStart = Arrays.copyOf(nameStart, capacity);
+            nameLength = Arrays.copyOf(nameLength, capacity);
+            tagLine = Arrays.copyOf(tagLine, capacity);
+            tagColumn = Arrays.copyOf(tagColumn, capacity);
+            tagOffset = Arrays.copyOf(tagOffset, capacity);
+        }
+
+        int name = symbols.intern(source, start, length);
+        if (name >= openCounts.length) {
+            openCounts = Arrays.copyOf(openCounts, Math.max(openCounts.length * 2, name + 1));
+        }
+
+        openCounts[name]++;
+        tagName[depth] = name;
+        nameStart[depth] = start;
+        nameLength[depth] = length;
+        tagLine[depth] = line;
+        tagColumn[depth] = column;
+        tagOffset[depth] = offset;
+        depth++;
+        if (depth > deepest) {
+            deepest = depth;
+        }
+    }
+
+
+    /**
+     * Matches a closing tag against the stack. When the name is open below the
+     * top, every tag opened after it is reported and removed.
+     *
+     * @param source   the bytes being scanned
+     * @param tagStart offset of the tag's '<'
+     * @param tagEnd   offset of the tag's '>'
+     * @param start    offset of the name after the '/'
+     * @param length   length of the name in bytes
+     * @param line     the line the tag is on
+     * @param column   the column of the tag's '<'
+     */
+    void close(MemorySegment source, long tagStart, long tagEnd, long start, int length, int line, int column) {
+        // Most closing tags close the innermost tag, which is checked without a lookup
+        if (depth > 0 && topEquals(source, start, length)) {
+            depth--;
+            openCounts[tagName[depth]]--;
+            return;
+        }
+
+        int name = symbols.find(source, start, length);
+        if (name < 0 || name >= openCounts.length || openCounts[name] == 0) {
+            unmatchedClose(source, tagStart, tagEnd, start, length, line, column);
+            return;
+        }
+
+        int match = depth - 2;
+        while (tagName[match] != name) {
+            match--;
+        }
+
+        // Every tag opened after the match was left unclosed
+        for (int i = match + 1; i < depth; i++) {
+            openCounts[tagName[i]]--;
+            error(ErrorKind.MISMATCHED_TAG, openTag(i), tagLine[i], tagColumn[i], tagOffset[i]);
+        }
+        openCounts[name]--;
+        depth = match;
+    }
+
+
+    /**
+     * Empties the stack without reporting the tags on it.
+     */
+    void clearStack() {
+        while (depth > 0) {
+            depth--;
+            openCounts[tagName[depth]]--;
+        }
+    }
+
+
+    /**
+     * Handles a closing tag whose name is not open anywhere on the stack.
+     * The arguments are the same as for {@link #close}.
+     */
+    void unmatchedClose(MemorySegment source, long tagStart, long tagEnd, long start, int length, int line, int column) {
+        ErrorKind kind = depth == 0 ? ErrorKind.UNMATCHED_CLOSING_TAG : ErrorKind.MISMATCHED_TAG;
+        error(kind, XMLTokenizer.fullTag(source, tagStart, tagEnd), line, column, tagStart);
+    }
+
+
+    /**
+     * Reports an error, and stops the scan when it is the last one the error limit allows.
+     *
+     * @param kind   the kind of error
+     * @param text   the offending tag or line
+     * @param line   the line the error was found on
+     * @param column the column of the offending text
+     * @param offset the offset of the offending text in the source
+     */
+    void error(ErrorKind kind, String text, int line, int column, long offset) {
+        if (stopped) return;
+
+        sink.accept(new ParseError(kind, line, column, offset, text));
+        if (++errorCount == errorLimit) {
+            stopped = true;
+            tokenizer.stop();
+        }
+    }
+
+
+    /**
+     * Compares the name of the innermost open tag with a range of the source.
+     */
+    private boolean topEquals(MemorySegment source, long start, int length) {
+        if (nameLength[depth - 1] != length) return false;
+
+        long open = nameStart[depth - 1];
+        for (int i = 0; i < length; i++) {
+            if (source.get(ValueLayout.JAVA_BYTE, open + i) != source.get(ValueLayout.JAVA_BYTE, start + i)) return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * Returns the tag name of a stack entry.
+     *
+     * @param entry the index of the entry, 0 for the outermost open tag
+     * @return the decoded name
+     */
+    String nameOf(int entry) {
+        return symbols.name(tagName[entry]);
+    }
+
+
+    /**
+     * Builds the reporting text of a stack entry.
+     */
+    private String openTag(int entry) {
+        return "<" + symbols.name(tagName[entry]) + ">";
+    }
+}
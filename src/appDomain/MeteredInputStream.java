@@ -0,0 +1,62 @@
+package appDomain;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * MeteredInputStream.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * Counts the bytes read from a stream and the time spent waiting for them,
+ * for the read phase of {@link ParserMetrics}. Only a document that is being
+ * measured is read through one, and the clock is read once per buffer, never
+ * per byte.
+ *
+ * The counters are plain fields: they are written by the one thread reading
+ * the stream and read after that thread is done with it.
+ */
+final class MeteredInputStream extends InputStream {
+    private final InputStream source;
+    long bytes;
+    long nanos;
+
+
+    /**
+     * Creates a stream that reads from {@code source}, which it closes when it is closed.
+     */
+    MeteredInputStream(InputStream source) {
+        this.source = source;
+    }
+
+
+    @Override
+    public int read() throws IOException {
+        long start = System.nanoTime();
+        int b = source.read();
+        nanos += System.nanoTime() - start;
+        if (b != -1) {
+            bytes++;
+        }
+        return b;
+    }
+
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        long start = System.nanoTime();
+        int read = source.read(b, off, len);
+        nanos += System.nanoTime() - start;
+        if (read > 0) {
+            bytes += read;
+        }
+        return read;
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+}
@@ -0,0 +1,98 @@
+package appDomain;
+
+/**
+ * ParseError.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * One structural error found in a document. It records the kind of error,
+ * where it was found (line, column and byte offset in the source) and the
+ * offending tag or line text that is shown in the error log.
+ *
+ * The text is cut to {@link #MAX_TEXT_LENGTH} characters, so an error on a
+ * very long line does not keep the whole line in memory.
+ */
+public final class ParseError {
+    public static final int MAX_TEXT_LENGTH = 1024; // Longer text is cut and ends with "..."
+
+    private final ErrorKind kind;
+    private final int line;
+    private final int column;
+    private final long offset;
+    private final String text;
+
+
+    /**
+     * Creates an error record.
+     *
+     * @param kind   the kind of error
+     * @param line   the 1-based line the error was found on
+     * @param column the 1-based position of the offending text in its line
+     * @param offset the byte offset of the offending text in the source, or -1 if unknown
+     * @param text   the offending tag or line, cut if longer than {@link #MAX_TEXT_LENGTH}
+     */
+    public ParseError(ErrorKind kind, int line, int column, long offset, String text) {
+        if (kind == null) throw new NullPointerException("Error kind cannot be null");
+        if (text == null) throw new NullPointerException("Error text cannot be null");
+
+        this.kind = kind;
+        this.line = line;
+        this.column = column;
+        this.offset = offset;
+        this.text = shorten(text);
+    }
+
+
+    /**
+     * @return the kind of error
+     */
+    public ErrorKind getKind() {
+        return kind;
+    }
+
+
+    /**
+     * @return the 1-based line the error was found on
+     */
+    public int getLine() {
+        return line;
+    }
+
+
+    /**
+     * @return the 1-based position of the offending text in its line
+     */
+    public int getColumn() {
+        return column;
+    }
+
+
+    /**
+     * @return the byte offset of the offending text in the source, or -1 if unknown
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+
+    /**
+     * @return the offending tag or line
+     */
+    public String getText() {
+        return text;
+    }
+
+
+    /**
+     * Cuts text longer than {@link #MAX_TEXT_LENGTH} and marks the cut with "...".
+     * A surrogate pair is never split.
+     */
+    private static String shorten(String text) {
+        if (text.length() <= MAX_TEXT_LENGTH) return text;
+
+        int end = MAX_TEXT_LENGTH;
+        if (Character.isHighSurrogate(text.charAt(end - 1))) end--;
+        return text.substring(0, end) + "...";
+    }
+}
@@ -0,0 +1,167 @@
+package appDomain;
+
+import java.io.File;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+/**
+ * ParseStats.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * The measurements of the document a {@link ParserEngine} is checking, handed
+ * to {@link ParserMetrics} when the document ends. The engine owns one and
+ * clears it with the rest of its state, so measuring allocates nothing per
+ * tag.
+ *
+ * Tags, the deepest nesting and errors are always counted. Whether the clock
+ * is read at all is decided once, when the document begins: only then are the
+ * input stream metered and the phases timed.
+ *
+ * Time nested inside a phase is taken out of it with {@link #clock()}, which
+ * leaves out the time spent reporting errors, so the phases never overlap on
+ * the engine's thread.
+ */
+final class ParseStats {
+    private static final int READ = ParserMetrics.Phase.READ.ordinal();
+    private static final int LEX = ParserMetrics.Phase.LEX.ordinal();
+    private static final int REPORT = ParserMetrics.Phase.REPORT.ordinal();
+
+    long tags;   // Opening and closing tags checked
+    int deepest; // Deepest nesting seen, or -1 if it was not tracked
+    int errors;  // Errors handed to the sink
+    boolean timed; // Set when this document is measured
+
+    String file;
+    long bytes;
+    long elapsedNanos;
+    long allocatedBytes;
+    final long[] phaseNanos = new long[ParserMetrics.Phase.values().length];
+
+    private boolean open;        // Set between the start and the end of a document
+    private boolean lexMeasured; // Set when the lex phase was timed on its own
+    private long start;
+    private long allocatedAtStart;
+    private MeteredInputStream input;
+    private ParserMetrics.FileParsedEvent event;
+
+
+    /**
+     * Starts a document, unless one is already started. The other parse
+     * methods an engine falls back on call this again, and the first call wins.
+     *
+     * @param file the path of the document, or null if it has none
+     */
+    void begin(String file) {
+        if (open) return;
+        open = true;
+        timed = ParserMetrics.isActive();
+        if (!timed) return;
+
+        this.file = file;
+        bytes = file == null ? 0 : new File(file).length();
+        event = ParserMetrics.beginEvent();
+        allocatedAtStart = Allocation.current();
+        start = System.nanoTime();
+    }
+
+
+    /**
+     * Returns the stream to read the document from: {@code in} itself, or,
+     * when the document is measured, a stream that meters it.
+     */
+    InputStream meter(InputStream in) {
+        if (!timed) return in;
+        input = new MeteredInputStream(in);
+        return input;
+    }
+
+
+    /**
+     * Adds time to a phase.
+     *
+     * @param phase the phase
+     * @param nanos the time in nanoseconds
+     */
+    void add(ParserMetrics.Phase phase, long nanos) {
+        phaseNanos[phase.ordinal()] += nanos;
+        if (phase == ParserMetrics.Phase.LEX) {
+            lexMeasured = true;
+        }
+    }
+
+
+    /**
+     * Reads a clock that stops while errors are reported. The difference of
+     * two readings is the time between them less the time spent reporting.
+     */
+    long clock() {
+        return System.nanoTime() - phaseNanos[REPORT];
+    }
+
+
+    /**
+     * Ends the document and records it, if it was measured. Calls after the first do nothing.
+     */
+    void end() {
+        if (!open) return;
+        open = false;
+        if (!timed) return;
+
+        elapsedNanos = System.nanoTime() - start;
+        allocatedBytes = Math.max(0, Allocation.current() - allocatedAtStart);
+        if (input != null) {
+            bytes = input.bytes;
+            phaseNanos[READ] += input.nanos;
+            input = null;
+        }
+        if (!lexMeasured) {
+            // Scanning and the tag checks called from it make up the rest of a single-threaded check
+            long others = 0;
+            for (int i = 0; i < phaseNanos.length; i++) {
+                others += i == LEX ? 0 : phaseNanos[i];
+            }
+            phaseNanos[LEX] = Math.max(0, elapsedNanos - others);
+        }
+
+        ParserMetrics.record(this, event);
+        event = null;
+    }
+
+
+    /**
+     * Forgets the document so the next one starts from zero.
+     */
+    void clear() {
+        tags = 0;
+        deepest = 0;
+        errors = 0;
+        timed = false;
+        open = false;
+        lexMeasured = false;
+        file = null;
+        input = null;
+        event = null;
+        Arrays.fill(phaseNanos, 0);
+    }
+
+
+    /**
+     * Reads the heap allocated by the current thread. The management beans are
+     * only loaded the first time a document is measured.
+     */
+    private static final class Allocation {
+        private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+
+        static long current() {
+            if (THREADS instanceof com.sun.management.ThreadMXBean threads && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getCurrentThreadAllocatedBytes();
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package appDomain;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * ParserBenchmark.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * Compares the throughput of the original {@code Scanner} reading path with the
+ * streaming {@link XMLTokenizer} path, the memory-mapped path, the parallel
+ * chunked path and the three-thread pipelined path on the same file. Each path
+ * is warmed up first so the JIT has compiled it, then timed over several runs
+ * and the best run is reported in MB/s.
+ * Run with and without {@code --add-modules jdk.incubator.vector} to compare the
+ * vector and scalar delimiter search.
+ *
+ * It can also write a pathological input for the mismatch recovery: a deeply
+ * nested document followed by many closing tags that match nothing. A parser
+ * that searches the whole stack for every stray closing tag takes time
+ * proportional to depth times strays on this file.
+ *
+ * Usage: java -cp assignment2StartingCode.jar appDomain.ParserBenchmark <file-path> [runs]
+ *        java -cp assignment2StartingCode.jar appDomain.ParserBenchmark --stray-closes <out-file> [depth] [strays]
+ */
+public class ParserBenchmark {
+    private static final int WARMUP_RUNS = 3;
+    private static final int DEFAULT_RUNS = 5;
+    private static final int DEFAULT_DEPTH = 50000;
+    private static final int DEFAULT_STRAYS = 50000;
+
+
+    /**
+     * A way of reading the file into a parser engine.
+     */
+    private interface ReadPath {
+        void read(ParserEngine engine, String filePath) throws IOException;
+    }
+
+
+    /**
+     * Times one reading path and returns its best throughput.
+     *
+     * @param path     the reading path to time
+     * @param filePath the file to parse
+     * @param runs     the number of measured runs
+     * @param bytes    the size of the file in bytes
+     * @return the best observed throughput in MB/s
+     * @throws IOException if the file cannot be read
+     */
+    private static double measure(ReadPath path, String filePath, int runs, long bytes) throws IOException {
+        ParserEngine engine = new ParserEngine();
+
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            engine.reset();
+            path.read(engine, filePath);
+        }
+
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            engine.reset();
+            long start = System.nanoTime();
+            path.read(engine, filePath);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        return (bytes / (1024.0 * 1024.0)) / (best / 1e9);
+    }
+
+
+    /**
+     * Writes a document with {@code depth} nested open tags, then {@code strays}
+     * closing tags whose name is never opened, then the closing tags of the nest.
+     *
+     * @param filePath the file to write
+     * @param depth    the nesting depth
+     * @param strays   the number of unmatched closing tags
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeStrayCloses(String filePath, int depth, int strays) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            for (int i = 0; i < depth; i++) {
+                writer.write(String.format("<t%02d>\n", i % 16));
+            }
+            for (int i = 0; i < strays; i++) {
+                writer.write("</t99>\n"); // Same length and prefix as the open names
+            }
+            for (int i = depth - 1; i >= 0; i--) {
+                writer.write(String.format("</t%02d>\n", i % 16));
+            }
+        }
+    }
+
+
+    /**
+     * Runs the comparison and prints the results, or writes the pathological input.
+     *
+     * @param args the file path, optionally followed by the number of measured runs
+     */
+    public static void main(String[] args) {
+        if (args.length >= 2 && args.length <= 4 && args[0].equals("--stray-closes")) {
+            try {
+                int depth = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_DEPTH;
+                int strays = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_STRAYS;
+                writeStrayCloses(args[1], depth, strays);
+                System.out.println(String.format("Wrote %s (depth %d, %d stray closing tags)", args[1], depth, strays));
+            } catch (NumberFormatException e) {
+                System.out.println("Error: depth and strays must be whole numbers.");
+            } catch (IOException e) {
+                System.out.println("Error writing file: " + e.getMessage());
+            }
+            return;
+        }
+
+        if (args.length < 1 || args.length > 2) {
+            System.out.println("Usage: java -cp assignment2StartingCode.jar appDomain.ParserBenchmark <file-path> [runs]");
+            System.out.println("       java -cp assignment2StartingCode.jar appDomain.ParserBenchmark --stray-closes <out-file> [depth] [strays]");
+            return;
+        }
+
+        String filePath = args[0];
+        long bytes = new File(filePath).length();
+
+        try {
+            int runs = args.length == 2 ? Integer.parseInt(args[1]) : DEFAULT_RUNS;
+
+            double scanner = measure(ParserEngine::parseFileWithScanner, filePath, runs, bytes);
+            double tokenizer = measure(ParserEngine::parseFile, filePath, runs, bytes);
+            double mapped = measure(ParserEngine::parseMappedFile, filePath, runs, bytes);
+            double parallel = measure(ParserEngine::parseFileInParallel, filePath, runs, bytes);
+            double pipelined = measure(ParserEngine::parseFilePipelined, filePath, runs, bytes);
+
+            System.out.println(String.format("File: %s (%d bytes, best of %d runs)", filePath, bytes, runs));
+            System.out.println(String.format("Delimiter scan: %s", ByteScanner.INSTANCE.name()));
+            System.out.println(String.format("Scanner path:   %10.1f MB/s", scanner));
+            System.out.println(String.format("Tokenizer path: %10.1f MB/s", tokenizer));
+            System.out.println(String.format("Mapped path:    %10.1f MB/s", mapped));
+            System.out.println(String.format("Parallel path:  %10.1f MB/s", parallel));
+            System.out.println(String.format("Pipelined path: %10.1f MB/s", pipelined));
+            System.out.println(String.format("Speedup:        %10.2fx tokenizer, %.2fx mapped, %.2fx parallel",
+                    tokenizer / scanner, mapped / scanner, parallel / scanner));
+        } catch (NumberFormatException e) {
+            System.out.println("Error: runs must be a whole number.");
+        } catch (IOException e) {
+            System.out.println("Error reading file: " + e.getMessage());
+        }
+    }
+}
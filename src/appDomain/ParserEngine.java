@@ -0,0 +1,856 @@
+package appDomain;
+
+import implementations.MyQueue;
+import java.io.*;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
+import java.util.Scanner;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * ParserEngine.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * Holds the state of one parse: the tag stack, the error queue and the line
+ * number, together with the buffers used to fill them. An engine checks one
+ * document at a time and is cleared with {@link #reset()} for the next, so
+ * several engines can check different documents on different threads. A
+ * {@link ParserEnginePool} hands them out.
+ *
+ * A file is streamed through an {@link XMLTokenizer} by default. The other
+ * ways of reading it are in their own classes: {@link MappedXMLValidator},
+ * {@link ChunkedXMLValidator}, {@link IncrementalValidator} and
+ * {@link PipelinedLexer}. Errors are queued, or handed to an
+ * {@link ErrorSink} as they are found, and a check can be bounded by an
+ * error limit, a depth limit and a stack memory limit.
+ */
+public final class ParserEngine implements XMLTokenizer.TagListener {
+    private static final int INITIAL_CAPACITY = 64; // Initial number of name ids
+    private static final int COUNT_BYTES_PER_NAME = 8; // Open-tag count and pipelined id of each name
+    static final String LIMIT_REACHED_MESSAGE = "Stopped at the error, depth or memory limit; the rest of the file was not checked.";
+
+    private final MyQueue<ParseError> errorQueue = new MyQueue<>();
+    private final ErrorSink queueSink = ErrorSink.queue(errorQueue);
+    private ErrorSink sink = queueSink; // Receives every error found
+    private int lineNum = 1; // Line number tracker for error reporting
+    private int errorLimit;  // 0 for no limit
+    private int errorCount;
+    private boolean stopped; // Set when the error limit is reached
+
+    private final TagStack stack = new TagStack(); // The open tags, spilled to disk past the memory limit
+    private int[] openCounts = new int[INITIAL_CAPACITY]; // Open tags per name id
+    private int maxDepth = Integer.MAX_VALUE; // Integer.MAX_VALUE for no limit
+    private long stackMemoryLimit; // 0 for no limit
+    private int checkedNames = Integer.MAX_VALUE; // Name ids below this fit the memory limit; Integer.MAX_VALUE for no limit
+
+    // The Scanner path has no byte offsets, so its tags are placed by character position
+    private long scannerLineStart;
+    private long scannerNextLine;
+    private boolean scannerPositions; // Set when tag offsets count characters and are not reported
+
+    private final SymbolTable symbols = new SymbolTable(); // Tag names seen in the current document
+    private int[] lexerNames = new int[INITIAL_CAPACITY]; // Pipelined parse: lexer name id to own id
+
+    private final ParseStats stats = new ParseStats(); // Counts for ParserMetrics, timed only when it is active
+    private final ErrorSink reporter = this::report;    // Counts and times errors on their way to the sink
+
+    private final XMLTokenizer tokenizer = new XMLTokenizer(this);
+    private final MappedXMLValidator mappedValidator = new MappedXMLValidator(reporter);
+
+
+    /**
+     * Clears all parsing state so another document can be parsed.
+     * The stack, queue and read buffer are kept for reuse, and so is the error limit.
+     */
+    public void reset() {
+        errorQueue.dequeueAll();
+        stack.clear();
+        Arrays.fill(openCounts, 0);
+        symbols.clear();
+        checkedNames = stackMemoryLimit == 0 ? Integer.MAX_VALUE : 0;
+        scannerLineStart = 0;
+        scannerNextLine = 0;
+        scannerPositions = false;
+        lineNum = 1;
+        errorCount = 0;
+        stopped = false;
+        stats.clear();
+    }
+
+
+    /**
+     * Sends errors to a sink as they are found instead of queueing them.
+     * The sink is kept by {@link #reset()}.
+     *
+     * @param sink the sink that receives the errors, or null to queue them again
+     */
+    public void setErrorSink(ErrorSink sink) {
+        this.sink = sink == null ? queueSink : sink;
+    }
+
+
+    /**
+     * Sets the number of errors after which parsing stops. Once the limit is
+     * reached no more input is read and no more errors are queued, including
+     * unclosed tags. A limit of 1 stops at the first error.
+     *
+     * @param errorLimit the maximum number of errors to queue, or 0 for no limit
+     */
+    public void setErrorLimit(int errorLimit) {
+        if (errorLimit < 0) throw new IllegalArgumentException("Error limit cannot be negative");
+        this.errorLimit = errorLimit;
+        mappedValidator.setErrorLimit(errorLimit);
+    }
+
+
+    /**
+     * Returns the number of errors after which parsing stops.
+     *
+     * @return the error limit, or 0 for no limit
+     */
+    public int getErrorLimit() {
+        return errorLimit;
+    }
+
+
+    /**
+     * Sets the deepest nesting allowed. A tag that would be nested deeper is
+     * reported as {@link ErrorKind#TOO_DEEP} and the parse stops there, as it
+     * does at the error limit.
+     *
+     * @param maxDepth the greatest number of tags open at once, or 0 for no limit
+     */
+    public void setMaxDepth(int maxDepth) {
+        if (maxDepth < 0) throw new IllegalArgumentException("Depth limit cannot be negative");
+        this.maxDepth = maxDepth == 0 ? Integer.MAX_VALUE : maxDepth;
+    }
+
+
+    /**
+     * Returns the deepest nesting allowed.
+     *
+     * @return the depth limit, or 0 for no limit
+     */
+    public int getMaxDepth() {
+        return maxDepth == Integer.MAX_VALUE ? 0 : maxDepth;
+    }
+
+
+    /**
+     * Limits the heap used by the tag stack. Past the limit, the oldest open
+     * tags are moved to a memory-mapped temporary file and read back as the
+     * stack unwinds, so a document of any depth is checked in a fixed heap.
+     * The errors reported are the same.
+     *
+     * The tag names of a document are held to the same limit. A tag whose new
+     * name would take them past it is reported as
+     * {@link ErrorKind#TOO_MANY_NAMES} and the parse stops there.
+     *
+     * @param bytes the approximate number of bytes, or 0 for no limit
+     */
+    public void setStackMemoryLimit(long bytes) {
+        if (bytes < 0) throw new IllegalArgumentException("Stack memory limit cannot be negative");
+        this.stackMemoryLimit = bytes;
+        stack.setMemoryLimit(bytes);
+        checkedNames = bytes == 0 ? Integer.MAX_VALUE : Math.min(checkedNames, symbols.size());
+    }
+
+
+    /**
+     * Returns the heap the tag stack may use before it spills to disk.
+     *
+     * @return the limit in bytes, or 0 for no limit
+     */
+    public long getStackMemoryLimit() {
+        return stackMemoryLimit;
+    }
+
+
+    /**
+     * Checks whether parsing stopped because the error limit was reached.
+     * It also stops at a tag past the depth limit or the memory limit for names.
+     * The queued errors are then only the first part of the document's errors.
+     *
+     * @return true if the error limit was reached
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+
+    /**
+     * Reads the XML file with the streaming {@link XMLTokenizer} and processes every tag for errors.
+     * A file whose name ends in {@code .gz} is decompressed on its own thread while it is parsed.
+     *
+     * @param filePath The path to the XML file to be parsed.
+     * @throws IOException If the file cannot be found or accessed.
+     */
+    public void parseFile(String filePath) throws IOException {
+        stats.begin(filePath);
+        try (InputStream in = open(filePath, false)) {
+            parse(in);
+        }
+    }
+
+
+    /**
+     * Checks whether a file is gzip-compressed, judging by its name.
+     *
+     * @param filePath the path to the file
+     * @return true if the name ends in {@code .gz}
+     */
+    public static boolean isGzip(String filePath) {
+        return filePath.toLowerCase().endsWith(".gz");
+    }
+
+
+    /**
+     * Checks whether a file can be scanned in place: it is neither compressed
+     * nor UTF-16, and no depth or stack memory limit is set, since only this
+     * engine's own stack enforces them. A file that cannot be read counts as
+     * mappable, so the mapped path reports the failure.
+     */
+    private boolean isMappable(String filePath) {
+        if (isGzip(filePath) || maxDepth != Integer.MAX_VALUE || stackMemoryLimit != 0) return false;
+        try {
+            return !Utf16InputStream.isUtf16(filePath);
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+
+    /**
+     * Opens a file for streaming. A gzip file is inflated by a
+     * {@link PipelinedInputStream}, so inflating and scanning overlap.
+     *
+     * @param pipelined true to read every file on a reader thread, and convert UTF-16 there too
+     */
+    private static InputStream open(String filePath, boolean pipelined) throws IOException {
+        InputStream file = new FileInputStream(filePath);
+        if (!isGzip(filePath) && !pipelined) return file;
+
+        try {
+            InputStream source = isGzip(filePath) ? new GZIPInputStream(file, PipelinedInputStream.DEFAULT_BUFFER_SIZE) : file;
+            return new PipelinedInputStream(pipelined ? Utf16InputStream.decoding(source) : source);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Reads an XML document from a stream and processes every tag for errors.
+     * UTF-8 is scanned as it is; a UTF-16 document, recognised by its first
+     * bytes, is converted by a {@link Utf16InputStream}. The stream is not closed.
+     *
+     * @param in The UTF-8 or UTF-16 encoded XML document.
+     * @throws IOException If the stream cannot be read.
+     */
+    public void parse(InputStream in) throws IOException {
+        stats.begin(null);
+        try {
+            tokenizer.tokenize(Utf16InputStream.decoding(stats.meter(in)));
+        } catch (UncheckedIOException e) {
+            throw e.getCause(); // The tag stack could not spill to disk
+        }
+    }
+
+
+    /**
+     * Maps the XML file into memory and checks it in place with a {@link MappedXMLValidator}.
+     * Heap usage depends on nesting depth and error count, not on file size.
+     * A gzip or UTF-16 file cannot be checked in place, so it is streamed with {@link #parseFile} and ended with {@link #finish()},
+     * and so is any file while a depth or stack memory limit is set.
+     *
+     * @param filePath The path to the XML file to be parsed.
+     * @throws IOException If the file cannot be found or accessed.
+     */
+    public void parseMappedFile(String filePath) throws IOException {
+        stats.begin(filePath);
+        if (!isMappable(filePath)) {
+            parseFile(filePath);
+            finish();
+            return;
+        }
+        mappedValidator.validate(filePath);
+        stopped = mappedValidator.isStopped();
+        stats.tags = mappedValidator.tags;
+        stats.deepest = mappedValidator.deepest;
+    }
+
+
+    /**
+     * Maps the XML file into memory and checks it on all cores with a {@link ChunkedXMLValidator}.
+     * A gzip or UTF-16 file cannot be split, so it is streamed with {@link #parseFile} and ended with {@link #finish()},
+     * and so is any file while a depth or stack memory limit is set.
+     *
+     * @param filePath The path to the XML file to be parsed.
+     * @throws IOException If the file cannot be found or accessed.
+     */
+    public void parseFileInParallel(String filePath) throws IOException {
+        stats.begin(filePath);
+        if (!isMappable(filePath)) {
+            parseFile(filePath);
+            finish();
+            return;
+        }
+        ChunkedXMLValidator validator = new ChunkedXMLValidator(reporter);
+        validator.setErrorLimit(errorLimit);
+        validator.validate(filePath);
+        stopped = validator.isStopped();
+        stats.tags = validator.tags;
+        stats.deepest = -1; // Each chunk only knows its depth relative to where it starts
+    }
+
+
+    /**
+     * Maps the XML file into memory and checks it with an {@link IncrementalValidator},
+     * which only scans the part changed since the checkpoints in the file's sidecar.
+     * A gzip or UTF-16 file has no stable byte offsets to resume from, so it is streamed with {@link #parseFile} and ended with {@link #finish()},
+     * and so is any file while a depth or stack memory limit is set.
+     *
+     * @param filePath The path to the XML file to be parsed.
+     * @throws IOException If the file cannot be found or accessed, or its sidecar cannot be written.
+     */
+    public void parseFileIncrementally(String filePath) throws IOException {
+        stats.begin(filePath);
+        if (!isMappable(filePath)) {
+            parseFile(filePath);
+            finish();
+            return;
+        }
+        IncrementalValidator validator = new IncrementalValidator(reporter);
+        validator.setErrorLimit(errorLimit);
+        validator.validate(filePath);
+        stopped = validator.isStopped();
+        stats.tags = validator.tags;
+        stats.deepest = validator.deepest;
+    }
+
+
+    /**
+     * Checks the XML file in three stages that run at the same time: a reader
+     * thread fills buffers from the file, inflating gzip and converting UTF-16, a
+     * {@link PipelinedLexer} thread turns them into batches of tokens, and
+     * this thread applies the tag stack logic to each batch. The stages are
+     * connected by bounded queues, so a stage that gets ahead waits for the
+     * next one. Errors are the same as those of {@link #parseFile}.
+     *
+     * @param filePath The path to the XML file to be parsed.
+     * @throws IOException If the file cannot be found or accessed.
+     */
+    public void parseFilePipelined(String filePath) throws IOException {
+        stats.begin(filePath);
+        try (InputStream in = open(filePath, true)) {
+            PipelinedLexer lexer = new PipelinedLexer(stats.meter(in), PipelinedLexer.DEFAULT_BATCH_SIZE, PipelinedLexer.DEFAULT_BATCHES);
+            TokenBatch[] ready = new TokenBatch[PipelinedLexer.DEFAULT_BATCHES];
+
+            try {
+                int count;
+                while (!stopped && (count = take(lexer, ready)) > 0) {
+                    for (int i = 0; i < count; i++) {
+                        if (stats.timed) {
+                            long start = stats.clock();
+                            apply(ready[i]);
+                            stats.add(ParserMetrics.Phase.VALIDATE, stats.clock() - start);
+                        } else {
+                            apply(ready[i]);
+                        }
+                        lexer.recycle(ready[i]);
+                        ready[i] = null;
+                    }
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause(); // The tag stack could not spill to disk
+            } finally {
+                lexer.close();
+            }
+        }
+    }
+
+
+    /**
+     * Takes the batches that are ready from a {@link PipelinedLexer}. When the
+     * document is measured, the wait counts as the lex phase.
+     */
+    private int take(PipelinedLexer lexer, TokenBatch[] ready) throws IOException {
+        if (!stats.timed) return lexer.take(ready);
+
+        long start = System.nanoTime();
+        int count = lexer.take(ready);
+        stats.add(ParserMetrics.Phase.LEX, System.nanoTime() - start);
+        return count;
+    }
+
+
+    /**
+     * Applies a batch of tokens from a {@link PipelinedLexer}. The names the
+     * batch introduces are given ids in this engine's symbol table first.
+     */
+    private void apply(TokenBatch batch) {
+        int nameCount = batch.firstNewName + batch.newNames;
+        if (nameCount > lexerNames.length) {
+            lexerNames = Arrays.copyOf(lexerNames, Math.max(lexerNames.length * 2, nameCount));
+        }
+        for (int i = 0; i < batch.newNames; i++) {
+            lexerNames[batch.firstNewName + i] = symbols.intern(batch.text(), batch.nameStarts[i], batch.nameLengths[i]);
+        }
+
+        for (int i = 0; i < batch.size && !stopped; i++) {
+            int name = batch.names[i];
+
+            if (batch.kinds[i] == TokenBatch.OPEN) {
+                long offset = batch.offsets[i];
+                openTag(lexerNames[name], offset - batch.columns[i] + 1, batch.lines[i], offset);
+            } else if (batch.kinds[i] == TokenBatch.CLOSE) {
+                if (!closeTag(name < 0 ? -1 : lexerNames[name])) {
+                    lineNum = batch.lines[i];
+                    unmatchedClose(batch.closingTag(i), batch.columns[i], batch.offsets[i]);
+                }
+            } else {
+                queue(batch.errors[name]);
+            }
+        }
+    }
+
+
+    /**
+     * Reads the XML file line by line with {@code Scanner} and processes each line for errors.
+     * This is the original reading path, kept for throughput comparison. Each line is
+     * checked on its own, so comments, CDATA sections and tags that span lines are not
+     * recognised the way the {@link XMLTokenizer} recognises them.
+     *
+     * @param filePath The path to the XML file to be parsed.
+     * @throws IOException If the file cannot be found or accessed.
+     */
+    public void parseFileWithScanner(String filePath) throws IOException {
+        stats.begin(filePath);
+        Scanner scanner = null;
+
+        try {
+            scanner = new Scanner(new File(filePath));
+
+            while (!stopped && scanner.hasNextLine()) {
+                String line = scanner.nextLine();
+                processLine(line);
+                lineNum++;
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause(); // The tag stack could not spill to disk
+        } finally {
+            if (scanner != null) {
+                scanner.close();
+            }
+        }
+    }
+
+
+    /**
+     * Ends the document: every tag still open is queued as an unclosed tag
+     * error, and the document is recorded in {@link ParserMetrics} if it was measured.
+     */
+    public void finish() {
+        closeOpenTags();
+        stats.end();
+    }
+
+
+    /**
+     * Queues every tag still open as an unclosed tag error, timed as the validate phase.
+     */
+    private void closeOpenTags() {
+        long start = stats.timed ? stats.clock() : 0;
+
+        // Handle unmatched opening tags
+        while (stack.depth() > 0) {
+            int entry = stack.depth() - 1;
+            openCounts[stack.name(entry)]--;
+            queueOpenTag(ErrorKind.UNCLOSED_TAG, entry);
+            stack.pop();
+        }
+
+        if (stats.timed) {
+            stats.add(ParserMetrics.Phase.VALIDATE, stats.clock() - start);
+        }
+    }
+
+
+    /**
+     * Returns the queue of errors found so far. The queue stays empty while an
+     * error sink is set.
+     *
+     * @return the error queue owned by this engine
+     */
+    public MyQueue<ParseError> errors() {
+        return errorQueue;
+    }
+
+
+    /**
+     * Moves every queued error to another queue, leaving this engine's queue empty.
+     *
+     * @param target the queue that receives the errors
+     */
+    public void drainErrorsTo(MyQueue<ParseError> target) {
+        while (!errorQueue.isEmpty()) {
+            target.enqueue(errorQueue.dequeue());
+        }
+    }
+
+
+    /**
+     * Prints all errors detected during parsing. 
+     * If there are unmatched opening tags left in the stack, they are also logged as errors.
+     */
+    public void displayErrors() {
+        TextReportWriter report = new TextReportWriter(System.out, "Error LOG");
+        writeErrors(report, null);
+        report.close();
+    }
+
+
+    /**
+     * Ends the document and writes its queued errors, including unmatched
+     * opening tags, as one file of a report. The queue is left empty.
+     *
+     * @param report the report to write to
+     * @param file   the path of the document, or null if it has none
+     */
+    public void writeErrors(ReportWriter report, String file) {
+        closeOpenTags();
+        long start = stats.timed ? System.nanoTime() : 0;
+        report.beginFile(file);
+        while (!errorQueue.isEmpty()) {
+            report.accept(errorQueue.dequeue());
+        }
+        report.endFile(stopped);
+        if (stats.timed) {
+            stats.add(ParserMetrics.Phase.REPORT, System.nanoTime() - start);
+        }
+        stats.end();
+    }
+
+
+    @Override
+    public void tag(MemorySegment source, long lineStart, long tagStart, long tagEnd, long contentStart, long contentEnd, int tagLine) {
+        long offset = tokenizer.bufferOffset() + tagStart;
+
+        if (contentEnd == contentStart || source.get(ValueLayout.JAVA_BYTE, contentStart) != '/') {
+            int name = symbols.intern(source, contentStart, (int) (contentEnd - contentStart));
+            openTag(name, tokenizer.bufferOffset() + lineStart, tagLine, offset);
+        } else if (!closeTag(symbols.find(source, contentStart + 1, (int) (contentEnd - contentStart - 1)))) {
+            // The tag text, line and column are only worked out when the tag is reported
+            lineNum = tagLine;
+            unmatchedClose(XMLTokenizer.fullTag(source, tagStart, tagEnd), (int) (tagStart - lineStart + 1), offset);
+        }
+    }
+
+
+    @Override
+    public void lineError(MemorySegment source, long lineStart, long textStart, long textEnd, ErrorKind kind, int errorLine) {
+        lineNum = errorLine;
+        String line = XMLTokenizer.decode(source, textStart, textEnd);
+        queueError(kind, line, (int) (textStart - lineStart + 1), tokenizer.bufferOffset() + textStart);
+    }
+
+
+    @Override
+    public void markupError(ErrorKind kind, String text, int errorLine, int column, long offset) {
+        lineNum = errorLine;
+        queueError(kind, text, column, offset);
+    }
+
+
+    /**
+     * Processes a single line of XML for structural errors.
+     * Identifies and reports issues such as:
+     * - Malformed tags.
+     * - Unclosed tags.
+     * - Extra or unmatched closing tags.
+     *
+     * @param line The XML line to process.
+     */
+    public void processLine(String line) {
+        scannerLineStart = scannerNextLine;
+        scannerNextLine += line.length() + 1;
+        scannerPositions = true;
+
+        // Count the indentation removed by trim() so columns refer to the original line
+        int indent = 0;
+        while (indent < line.length() && line.charAt(indent) <= ' ') {
+            indent++;
+        }
+        line = line.trim();
+
+        // Skip empty lines, declarations, or comments
+        if (line.isEmpty() || line.startsWith("<?xml") || line.startsWith("<!--")) {
+            return;
+        }
+
+        int currentIndex = 0;
+
+        while (currentIndex < line.length()) {
+            int openTagStart = line.indexOf('<', currentIndex);
+            int openTagEnd = openTagStart == -1 ? line.indexOf('>') : tagEnd(line, openTagStart);
+
+            if (openTagStart == -1 && openTagEnd != -1) {
+                queueError(ErrorKind.INVALID_CLOSING_TAG, line, indent + 1, -1);
+            }
+
+            int malformedEnd = line.indexOf('>', currentIndex);
+            if (openTagStart > malformedEnd && openTagStart != currentIndex) {
+                queueError(ErrorKind.INVALID_OPENING_TAG, line, indent + 1, -1);
+            }
+
+            if (openTagStart == -1) break;
+
+            if (openTagEnd == -1) {
+                queueError(ErrorKind.MISSING_CLOSING_BRACKET, line, indent + 1, -1);
+                return;
+            }
+
+            processTag(line, openTagStart, openTagEnd, indent + openTagStart + 1);
+            currentIndex = openTagEnd + 1;
+        }
+    }
+
+
+    /**
+     * Applies the tag stack logic to the tag between {@code open} and {@code close}.
+     * Attributed tags are reduced to the word before the first whitespace; an
+     * '=' inside a quoted attribute value does not count. Opening tags are pushed, matching
+     * closing tags pop the stack, self-closing tags are ignored, and
+     * unmatched or mismatched closing tags are queued as errors.
+     *
+     * @param line   The trimmed line holding the tag.
+     * @param open   The index of the tag's '<'.
+     * @param close  The index of the tag's '>'.
+     * @param column The column of the tag's '<' in the original line.
+     */
+    private void processTag(String line, int open, int close, int column) {
+        // Trim the tag content
+        int contentStart = open + 1;
+        int contentEnd = close;
+        while (contentStart < contentEnd && line.charAt(contentStart) <= ' ') contentStart++;
+        while (contentEnd > contentStart && line.charAt(contentEnd - 1) <= ' ') contentEnd--;
+
+        int nameEnd = contentStart;
+        while (nameEnd < contentEnd && line.charAt(nameEnd) > ' ') nameEnd++;
+
+        if (nameEnd < contentEnd && line.charAt(contentEnd - 1) != '/' && hasAttribute(line, contentStart, contentEnd)) {
+            contentEnd = nameEnd;
+        }
+
+        if (contentEnd > contentStart && line.charAt(contentEnd - 1) == '/') {
+            // Self-closing tag, no stack operation required
+        } else if (contentEnd > contentStart && line.charAt(contentStart) == '/') {
+            if (!closeTag(symbols.find(line, contentStart + 1, contentEnd))) {
+                unmatchedClose(fullTag(line, open, close), column, -1);
+            }
+        } else {
+            openTag(symbols.intern(line, contentStart, contentEnd), scannerLineStart, lineNum, scannerLineStart + column - 1);
+        }
+    }
+
+
+    /**
+     * Finds the '>' that ends the tag starting at {@code open}, skipping
+     * quoted attribute values. A quote that is not closed on the line is
+     * treated as an ordinary character.
+     *
+     * @return the index of the '>', or -1 if the tag is not closed
+     */
+    private static int tagEnd(String line, int open) {
+        for (int i = open + 1; i < line.length(); i++) {
+            char c = line.charAt(i);
+
+            if (c == '>') return i;
+            if (c == '"' || c == '\'') {
+                int quoteEnd = line.indexOf(c, i + 1);
+                if (quoteEnd != -1) i = quoteEnd;
+            }
+        }
+        return -1;
+    }
+
+
+    /**
+     * Checks whether a tag interior has an '=' outside quoted attribute values.
+     */
+    private static boolean hasAttribute(String line, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = line.charAt(i);
+
+            if (c == '=') return true;
+            if (c == '"' || c == '\'') {
+                int quoteEnd = line.indexOf(c, i + 1);
+                if (quoteEnd != -1 && quoteEnd < to) i = quoteEnd;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Builds the text reported for a tag. For attributed tags this is the
+     * second space-separated word followed by '>'.
+     */
+    private static String fullTag(String line, int open, int close) {
+        String fullTag = line.substring(open, close + 1);
+        if (fullTag.indexOf('=') == -1) return fullTag;
+
+        int tokenStart = fullTag.indexOf(' ');
+        if (tokenStart == -1) return fullTag;
+
+        int tokenEnd = fullTag.indexOf(' ', tokenStart + 1);
+        return fullTag.substring(tokenStart + 1, tokenEnd == -1 ? fullTag.length() : tokenEnd) + ">";
+    }
+
+
+    /**
+     * Pushes an open tag. Only the tag's offset is kept on the stack; its
+     * line is recorded in the stack's line index, which is rarely more than
+     * one comparison. A tag past the depth limit, or with a new name past the
+     * memory limit, is reported instead, and stops the parse.
+     *
+     * @param name      the id of the tag name
+     * @param lineStart the offset of the start of the line the tag is on
+     * @param line      the line the tag is on
+     * @param offset    the offset of the tag's '<' in the document
+     */
+    private void openTag(int name, long lineStart, int line, long offset) {
+        stats.tags++;
+        if (stack.depth() == maxDepth) { // One comparison, since no limit is the largest depth
+            limitReached(ErrorKind.TOO_DEEP, name, line, (int) (offset - lineStart + 1), offset);
+            return;
+        }
+        if (name >= checkedNames) { // A name new to the document, while names are limited
+            // Counted up to this name, since a pipelined parse adds a batch of names ahead of their tags
+            if (symbols.memoryUsed(name + 1) + (long) (name + 1) * COUNT_BYTES_PER_NAME > stackMemoryLimit) {
+                limitReached(ErrorKind.TOO_MANY_NAMES, name, line, (int) (offset - lineStart + 1), offset);
+                return;
+            }
+            checkedNames = name + 1;
+        }
+        if (name >= openCounts.length) {
+            openCounts = Arrays.copyOf(openCounts, Math.max(openCounts.length * 2, name + 1));
+        }
+
+        openCounts[name]++;
+        stack.push(name, lineStart, line, offset);
+        if (stack.depth() > stats.deepest) {
+            stats.deepest = stack.depth();
+        }
+    }
+
+
+    /**
+     * Reports a tag that would pass the depth limit or the memory limit for names, and stops reading.
+     */
+    private void limitReached(ErrorKind kind, int name, int line, int column, long offset) {
+        if (!stopped) {
+            String text = "<" + symbols.name(name) + ">";
+            queue(new ParseError(kind, line, column, scannerPositions ? -1 : offset, text));
+        }
+        stopped = true;
+        tokenizer.stop();
+    }
+
+
+    /**
+     * Closes the innermost open tag with the given name. Every tag opened after
+     * it is queued as an error and removed from the stack.
+     *
+     * @param name the id of the tag name, or -1 if the name was never opened
+     * @return false if no open tag has that name, leaving the stack unchanged
+     */
+    private boolean closeTag(int name) {
+        stats.tags++;
+        if (name < 0 || name >= openCounts.length || openCounts[name] == 0) return false;
+
+        openCounts[name]--;
+        if (stack.topName() == name) {
+            stack.pop();
+            return true;
+        }
+
+        // The name is open below the top, so every entry above it is reported
+        int depth = stack.depth();
+        int match = depth - 2;
+        while (stack.name(match) != name) {
+            match--;
+        }
+
+        for (int i = match + 1; i < depth; i++) {
+            openCounts[stack.name(i)]--;
+            queueOpenTag(ErrorKind.MISMATCHED_TAG, i);
+        }
+        stack.truncate(match);
+        return true;
+    }
+
+
+    /**
+     * Queues a closing tag that did not match any open tag.
+     */
+    private void unmatchedClose(String fullTag, int column, long offset) {
+        ErrorKind kind = stack.depth() == 0 ? ErrorKind.UNMATCHED_CLOSING_TAG : ErrorKind.MISMATCHED_TAG;
+        queueError(kind, fullTag, column, offset);
+    }
+
+
+    /**
+     * Queues an error for an entry of the open-tag stack.
+     */
+    private void queueOpenTag(ErrorKind kind, int entry) {
+        if (stopped) return;
+
+        String text = "<" + symbols.name(stack.name(entry)) + ">";
+        long offset = scannerPositions ? -1 : stack.offset(entry);
+        queue(new ParseError(kind, stack.line(entry), stack.column(entry), offset, text));
+    }
+
+
+    /**
+     * Queues an error found on the current line.
+     */
+    private void queueError(ErrorKind kind, String text, int column, long offset) {
+        if (stopped) return;
+
+        queue(new ParseError(kind, lineNum, column, offset, text));
+    }
+
+
+    /**
+     * Hands an error to the sink, and stops reading when it is the last one the error limit allows.
+     */
+    private void queue(ParseError error) {
+        report(error);
+        if (++errorCount == errorLimit) {
+            stopped = true;
+            tokenizer.stop();
+        }
+    }
+
+
+    /**
+     * Hands an error to the sink, counting it and, when the document is measured, timing it as the report phase.
+     * Every error of every reading path goes through here.
+     */
+    private void report(ParseError error) {
+        stats.errors++;
+        if (!stats.timed) {
+            sink.accept(error);
+            return;
+        }
+
+        long start = System.nanoTime();
+        sink.accept(error);
+        stats.add(ParserMetrics.Phase.REPORT, System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,102 @@
+package appDomain;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * ParserEnginePool.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * A thread-safe pool of {@link ParserEngine} instances. A thread takes an
+ * engine, parses one document with it and gives it back, so a service that
+ * checks many documents on many threads reuses the same stacks, queues and
+ * buffers instead of allocating new ones for every document.
+ *
+ * The pool never blocks: when it is empty a new engine is created, and when
+ * it is full a returned engine is dropped.
+ */
+public class ParserEnginePool {
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private final ArrayBlockingQueue<ParserEngine> idle;
+    private volatile int maxDepth;          // 0 for no limit
+    private volatile long stackMemoryLimit; // 0 for no limit
+
+
+    /**
+     * Creates a pool that keeps up to {@link #DEFAULT_CAPACITY} idle engines.
+     */
+    public ParserEnginePool() {
+        this(DEFAULT_CAPACITY);
+    }
+
+
+    /**
+     * Creates a pool that keeps up to {@code capacity} idle engines.
+     *
+     * @param capacity the maximum number of idle engines kept for reuse
+     */
+    public ParserEnginePool(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be positive");
+        this.idle = new ArrayBlockingQueue<>(capacity);
+    }
+
+
+    /**
+     * Sets the depth and stack memory limits of every engine handed out from now on.
+     *
+     * @param maxDepth         the greatest number of tags open at once, or 0 for no limit
+     * @param stackMemoryLimit the heap a tag stack may use before it spills to disk, and the tag names of a document, or 0 for no limit
+     * @see ParserEngine#setMaxDepth
+     * @see ParserEngine#setStackMemoryLimit
+     */
+    public void setLimits(int maxDepth, long stackMemoryLimit) {
+        if (maxDepth < 0 || stackMemoryLimit < 0) throw new IllegalArgumentException("Limits cannot be negative");
+        this.maxDepth = maxDepth;
+        this.stackMemoryLimit = stackMemoryLimit;
+    }
+
+
+    /**
+     * Takes a reset engine from the pool, or creates one if none is idle.
+     * The engine has the pool's depth and stack memory limits.
+     *
+     * @return an engine ready to parse a new document
+     */
+    public ParserEngine acquire() {
+        ParserEngine engine = idle.poll();
+        if (engine == null) {
+            engine = new ParserEngine();
+        }
+        engine.setMaxDepth(maxDepth);
+        engine.setStackMemoryLimit(stackMemoryLimit);
+        return engine;
+    }
+
+
+    /**
+     * Resets an engine, restores its default error queue and limit, and returns it to the pool.
+     * The engine must not be used by the caller afterwards.
+     *
+     * @param engine the engine to return
+     */
+    public void release(ParserEngine engine) {
+        if (engine == null) throw new NullPointerException("Engine cannot be null");
+
+        engine.reset();
+        engine.setErrorSink(null);
+        engine.setErrorLimit(0);
+        idle.offer(engine);
+    }
+
+
+    /**
+     * Returns the number of idle engines in the pool.
+     *
+     * @return the idle engine count
+     */
+    public int size() {
+        return idle.size();
+    }
+}
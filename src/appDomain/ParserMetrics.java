@@ -0,0 +1,334 @@
+package appDomain;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * ParserMetrics.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * Shows where the time goes when a {@link ParserEngine} checks a document.
+ * Each document's bytes, tags, deepest nesting, errors, elapsed time, heap
+ * allocated and time per {@link Phase} are added to process-wide counters,
+ * which can be read at any time, and are also committed as the JDK Flight
+ * Recorder events {@code appDomain.FileParsed} and {@code appDomain.ParsePhase}.
+ *
+ * Nothing is measured unless the counters are enabled with
+ * {@link #setEnabled} or a flight recording has one of the events enabled.
+ * An engine checks that once per document; otherwise it only counts tags
+ * and the nesting depth as it goes, so the cost per tag is two increments.
+ *
+ * The counters are {@link LongAdder}s, so engines on many threads record
+ * documents without a lock.
+ */
+public final class ParserMetrics {
+
+    /**
+     * The stages of checking a document. In a single-threaded check the phases
+     * do not overlap and add up to the elapsed time: time spent reading the
+     * input stream, time spent in the error sink, time spent matching tags
+     * where that is done apart from the scan, and everything else, which is
+     * scanning the bytes together with the tag checks run from the scan. In a
+     * pipelined check, lex is the time the validating thread waited for
+     * tokens, and read is the time the lexer thread waited for input.
+     */
+    public enum Phase {
+        READ, LEX, VALIDATE, REPORT;
+
+        /**
+         * Returns the name of the phase in lower case, as it is shown in reports.
+         */
+        public String label() {
+            return name().toLowerCase();
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private static volatile boolean enabled;
+    private static final LongAdder files = new LongAdder();
+    private static final LongAdder bytes = new LongAdder();
+    private static final LongAdder tags = new LongAdder();
+    private static final LongAdder errors = new LongAdder();
+    private static final LongAdder elapsedNanos = new LongAdder();
+    private static final LongAdder allocatedBytes = new LongAdder();
+    private static final LongAccumulator maxDepth = new LongAccumulator(Math::max, -1);
+    private static final LongAdder[] phaseNanos = new LongAdder[PHASES.length];
+
+    static {
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] = new LongAdder();
+        }
+    }
+
+
+    private ParserMetrics() {
+    }
+
+
+    /**
+     * Starts or stops adding documents to the counters. Flight recorder
+     * events are committed whenever a recording enables them, either way.
+     *
+     * @param on true to record every document checked from now on
+     */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+
+    /**
+     * Checks whether documents are added to the counters.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+
+    /**
+     * Checks whether the next document should be measured: the counters are
+     * enabled, or a flight recording wants the file event. The event classes
+     * are only loaded once the flight recorder is running, since loading the
+     * first one costs a few hundred milliseconds.
+     */
+    static boolean isActive() {
+        return enabled || (FlightRecorder.isInitialized() && new FileParsedEvent().isEnabled());
+    }
+
+
+    /**
+     * Begins the file event of a document that is measured.
+     *
+     * @return the event, or null while the flight recorder is not running
+     */
+    static FileParsedEvent beginEvent() {
+        if (!FlightRecorder.isInitialized()) return null;
+
+        FileParsedEvent event = new FileParsedEvent();
+        event.begin();
+        return event;
+    }
+
+
+    /**
+     * Returns the number of documents recorded.
+     */
+    public static long files() {
+        return files.sum();
+    }
+
+
+    /**
+     * Returns the number of bytes read from the documents recorded.
+     */
+    public static long bytes() {
+        return bytes.sum();
+    }
+
+
+    /**
+     * Returns the number of opening and closing tags checked.
+     */
+    public static long tags() {
+        return tags.sum();
+    }
+
+
+    /**
+     * Returns the deepest nesting of open tags in any document recorded, or -1 if none tracked it.
+     */
+    public static long maxDepth() {
+        return maxDepth.get();
+    }
+
+
+    /**
+     * Returns the number of errors reported.
+     */
+    public static long errors() {
+        return errors.sum();
+    }
+
+
+    /**
+     * Returns the time spent checking the documents, in nanoseconds.
+     */
+    public static long elapsedNanos() {
+        return elapsedNanos.sum();
+    }
+
+
+    /**
+     * Returns the heap allocated by the checking threads, in bytes, or 0 if the JVM does not measure it.
+     */
+    public static long allocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+
+    /**
+     * Returns the time spent in one phase, in nanoseconds.
+     *
+     * @param phase the phase
+     */
+    public static long phaseNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()].sum();
+    }
+
+
+    /**
+     * Sets every counter back to zero.
+     */
+    public static void reset() {
+        files.reset();
+        bytes.reset();
+        tags.reset();
+        errors.reset();
+        elapsedNanos.reset();
+        allocatedBytes.reset();
+        maxDepth.reset();
+        for (LongAdder phase : phaseNanos) {
+            phase.reset();
+        }
+    }
+
+
+    /**
+     * Describes the counters on one line, with the throughput and the time per phase.
+     *
+     * @return a line such as {@code 3 files, 12.0 MB, 410000 tags, ...}
+     */
+    public static String summary() {
+        long elapsed = elapsedNanos();
+        double megabytes = bytes() / (1024.0 * 1024.0);
+        double seconds = elapsed / 1e9;
+
+        StringBuilder line = new StringBuilder();
+        line.append(files()).append(files() == 1 ? " file, " : " files, ")
+            .append(String.format("%.1f MB, %d tags, ", megabytes, tags()));
+        if (maxDepth() >= 0) {
+            line.append("max depth ").append(maxDepth()).append(", ");
+        }
+        line.append(errors()).append(" errors in ").append(elapsed / 1_000_000).append(" ms");
+        if (seconds > 0) {
+            line.append(String.format(" (%.1f MB/s, %.0f tags/s)", megabytes / seconds, tags() / seconds));
+        }
+        for (Phase phase : PHASES) {
+            line.append(phase == Phase.READ ? "; " : ", ")
+                .append(phase.label()).append(' ').append(phaseNanos(phase) / 1_000_000).append(" ms");
+        }
+        line.append(String.format("; %.1f MB allocated", allocatedBytes() / (1024.0 * 1024.0)));
+        return line.toString();
+    }
+
+
+    /**
+     * Records one document that was measured: adds it to the counters if they
+     * are enabled, and commits its flight recorder events if they are.
+     *
+     * @param stats the measurements of the document
+     * @param event the file event begun with the document, which is ended here, or null
+     */
+    static void record(ParseStats stats, FileParsedEvent event) {
+        if (enabled) {
+            files.increment();
+            bytes.add(stats.bytes);
+            tags.add(stats.tags);
+            errors.add(stats.errors);
+            elapsedNanos.add(stats.elapsedNanos);
+            allocatedBytes.add(stats.allocatedBytes);
+            maxDepth.accumulate(stats.deepest);
+            for (int i = 0; i < PHASES.length; i++) {
+                phaseNanos[i].add(stats.phaseNanos[i]);
+            }
+        }
+
+        if (event == null) return;
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.file = stats.file;
+            event.bytes = stats.bytes;
+            event.tags = stats.tags;
+            event.maxDepth = stats.deepest;
+            event.errors = stats.errors;
+            event.allocated = stats.allocatedBytes;
+            event.commit();
+        }
+
+        if (new ParsePhaseEvent().isEnabled()) {
+            for (Phase phase : PHASES) {
+                ParsePhaseEvent phaseEvent = new ParsePhaseEvent();
+                phaseEvent.file = stats.file;
+                phaseEvent.phase = phase.label();
+                phaseEvent.time = stats.phaseNanos[phase.ordinal()];
+                phaseEvent.commit();
+            }
+        }
+    }
+
+
+    /**
+     * One document checked. Its duration is the time the check took.
+     */
+    @Name("appDomain.FileParsed")
+    @Label("XML File Parsed")
+    @Category({"XML Parser"})
+    @Description("A document checked by a parser engine")
+    @StackTrace(false)
+    static final class FileParsedEvent extends Event {
+        @Label("File")
+        String file;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+        @Label("Tags")
+        long tags;
+
+        @Label("Maximum Depth")
+        @Description("The deepest nesting of open tags, or -1 if it was not tracked")
+        int maxDepth;
+
+        @Label("Errors")
+        int errors;
+
+        @Label("Allocated")
+        @Description("Heap allocated by the checking thread")
+        @DataAmount
+        long allocated;
+    }
+
+
+    /**
+     * The time one document spent in one {@link Phase}, committed when the document ends.
+     */
+    @Name("appDomain.ParsePhase")
+    @Label("XML Parse Phase")
+    @Category({"XML Parser"})
+    @Description("The time a document spent reading, lexing, validating or reporting")
+    @StackTrace(false)
+    static final class ParsePhaseEvent extends Event {
+        @Label("File")
+        String file;
+
+        @Label("Phase")
+        String phase;
+
+        @Label("Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long time;
+    }
+}
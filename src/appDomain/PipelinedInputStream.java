@@ -0,0 +1,194 @@
+package appDomain;
+
+import implementations.MyBoundedQueue;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * PipelinedInputStream.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * Reads a slow source, such as a decompressing stream, on its own thread so
+ * that producing the bytes overlaps with consuming them. The reading thread
+ * fills whole buffers and hands them over through a {@link MyBoundedQueue};
+ * the consumer reads from the filled buffers and gives each one back once it
+ * is used up. There are only a fixed number of buffers, so a reader that gets
+ * ahead waits for the consumer instead of holding the whole input in memory.
+ *
+ * An exception thrown by the source, checked or not, is rethrown to the
+ * consumer once it has read every byte produced before it.
+ */
+public class PipelinedInputStream extends InputStream {
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16; // 64 KB per buffer
+    public static final int DEFAULT_BUFFERS = 4;
+
+    private static final Chunk END = new Chunk(new byte[0], 0, null);
+
+    private final InputStream source;
+    private final MyBoundedQueue<Chunk> filled;
+    private final MyBoundedQueue<byte[]> free;
+    private final Thread reader;
+    private Chunk current; // The buffer being read, or null before the first read
+    private int position;
+    private boolean ended;
+
+
+    /**
+     * A filled buffer, or the end of the source with the exception that ended it.
+     */
+    private static final class Chunk {
+        final byte[] bytes;
+        final int length;
+        final Throwable failure;
+
+
+        Chunk(byte[] bytes, int length, Throwable failure) {
+            this.bytes = bytes;
+            this.length = length;
+            this.failure = failure;
+        }
+    }
+
+
+    /**
+     * Starts reading a source on its own thread with the default buffers.
+     *
+     * @param source the stream to read; it is closed when this stream is
+     */
+    public PipelinedInputStream(InputStream source) {
+        this(source, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFERS);
+    }
+
+
+    /**
+     * Starts reading a source on its own thread.
+     *
+     * @param source     the stream to read; it is closed when this stream is
+     * @param bufferSize the size of each buffer in bytes
+     * @param buffers    the number of buffers, which bounds how far the reader gets ahead
+     */
+    public PipelinedInputStream(InputStream source, int bufferSize, int buffers) {
+        if (source == null) throw new NullPointerException("Source cannot be null");
+        if (bufferSize <= 0 || buffers <= 0) throw new IllegalArgumentException("Buffer size and count must be positive");
+
+        this.source = source;
+        this.filled = new MyBoundedQueue<>(buffers + 1); // Room for the end marker
+        this.free = new MyBoundedQueue<>(buffers);
+        try {
+            for (int i = 0; i < buffers; i++) {
+                free.put(new byte[bufferSize]); // Never waits: there is room for every buffer
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        reader = new Thread(this::produce, "pipelined-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) return -1;
+        return current.bytes[position++] & 0xFF;
+    }
+
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (!fill()) return -1;
+
+        int count = Math.min(len, current.length - position);
+        System.arraycopy(current.bytes, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+
+    /**
+     * Stops the reading thread and closes the source.
+     *
+     * @throws IOException if the source cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        ended = true;
+        free.close(); // A waiting reader wakes up and finds no buffer
+        filled.close();
+        reader.interrupt();
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        source.close();
+    }
+
+
+    /**
+     * Makes sure the current buffer has unread bytes, waiting for the next one if needed.
+     *
+     * @return false at the end of the source
+     */
+    private boolean fill() throws IOException {
+        while (current == null || position == current.length) {
+            if (ended) return false;
+
+            try {
+                if (current != null) {
+                    free.put(current.bytes); // Never waits: the buffer came from this queue
+                }
+                current = filled.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for input");
+            }
+            if (current == null) { // Closed
+                ended = true;
+                return false;
+            }
+            position = 0;
+
+            if (current.length == 0) { // The end marker
+                ended = true;
+                if (current.failure instanceof IOException e) throw e;
+                if (current.failure != null) throw new IOException("The reading thread failed: " + current.failure, current.failure);
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Fills free buffers from the source until it ends, fails or the stream is closed.
+     */
+    private void produce() {
+        Chunk end = END;
+        try {
+            while (true) {
+                byte[] buffer = free.take();
+                if (buffer == null) return; // Closed by the consumer
+                int length = source.readNBytes(buffer, 0, buffer.length);
+
+                if (length > 0 && !filled.put(new Chunk(buffer, length, null))) return;
+                if (length < buffer.length) break;
+            }
+        } catch (InterruptedException e) {
+            return; // Closed by the consumer
+        } catch (Throwable e) {
+            // Unchecked errors too, so that the consumer never mistakes a failed source for its end
+            end = new Chunk(END.bytes, 0, e);
+        }
+
+        try {
+            filled.put(end); // Never waits: there is room for the end marker
+        } catch (InterruptedException e) {
+            // Closed by the consumer
+        }
+    }
+}
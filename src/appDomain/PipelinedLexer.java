@@ -0,0 +1,226 @@
+package appDomain;
+
+import implementations.MyBoundedQueue;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * PipelinedLexer.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * The middle stage of a pipelined parse. On its own thread it runs an
+ * {@link XMLTokenizer} over the input and packs every tag and error into
+ * {@link TokenBatch}es, which the validator stage takes from a
+ * {@link MyBoundedQueue}. Empty batches come back through a second queue, so
+ * only a fixed number exist and a lexer that gets ahead waits for the
+ * validator.
+ *
+ * The validator closes the lexer when it needs no more tokens, for example at
+ * the error limit. The tokenizer is then stopped and the thread ends after
+ * the current line. An exception thrown while reading or lexing the input is
+ * kept and rethrown to the validator once it has taken every batch made
+ * before it, so a lexer that dies is never mistaken for the end of the input.
+ */
+final class PipelinedLexer implements XMLTokenizer.TagListener {
+    static final int DEFAULT_BATCH_SIZE = 4096; // Tokens per batch
+    static final int DEFAULT_BATCHES = 4;
+
+    private final InputStream in;
+    private final XMLTokenizer tokenizer = new XMLTokenizer(this);
+    private final SymbolTable symbols = new SymbolTable();
+    private final MyBoundedQueue<TokenBatch> filled;
+    private final MyBoundedQueue<TokenBatch> free;
+    private final Thread thread;
+    private TokenBatch batch; // The batch being filled, or null once the validator has closed the lexer
+    private volatile Throwable failure; // What ended the lexer thread early, or null
+
+
+    /**
+     * Starts lexing a stream on its own thread.
+     *
+     * @param in        the UTF-8 encoded XML input; it is not closed
+     * @param batchSize the number of tokens in a batch
+     * @param batches   the number of batches, which bounds how far the lexer gets ahead
+     */
+    PipelinedLexer(InputStream in, int batchSize, int batches) {
+        this.in = in;
+        this.filled = new MyBoundedQueue<>(batches);
+        this.free = new MyBoundedQueue<>(batches);
+        try {
+            for (int i = 0; i < batches; i++) {
+                free.put(new TokenBatch(batchSize)); // Never waits: there is room for every batch
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        thread = new Thread(this::run, "pipelined-lexer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+
+    /**
+     * Takes every batch that is ready, waiting until there is at least one.
+     *
+     * @param holder the array the batches are moved into
+     * @return the number of batches taken, or 0 once every token has been taken
+     * @throws IOException if the input could not be read, or the lexer thread failed
+     */
+    int take(TokenBatch[] holder) throws IOException {
+        int count;
+        try {
+            count = filled.takeAll(holder);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for tokens");
+        }
+        if (count == 0 && failure != null) {
+            if (failure instanceof IOException e) throw e;
+            throw new IOException("The lexer thread failed: " + failure, failure);
+        }
+        return count;
+    }
+
+
+    /**
+     * Gives a batch back once its tokens have been applied.
+     */
+    void recycle(TokenBatch used) {
+        try {
+            free.put(used); // Never waits: the batch came from this queue
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * Stops the lexer, if it is still running, and waits for its thread to end.
+     */
+    void close() {
+        filled.close();
+        free.close();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * Tokenizes the whole input, then hands over the last batch and closes the queue.
+     */
+    private void run() {
+        try {
+            batch = nextBatch();
+            if (batch != null) {
+                tokenizer.tokenize(in);
+                if (batch != null && batch.size > 0) {
+                    filled.put(batch);
+                }
+            }
+        } catch (InterruptedException e) {
+            // Closed by the validator
+        } catch (Throwable e) {
+            // Unchecked errors too, such as running out of memory: the validator must not see a clean end
+            failure = e;
+            if (batch != null && batch.size > 0) {
+                try {
+                    filled.put(batch);
+                } catch (InterruptedException interrupted) {
+                    // Closed by the validator
+                }
+            }
+        } finally {
+            filled.close();
+        }
+    }
+
+
+    @Override
+    public void tag(MemorySegment source, long lineStart, long tagStart, long tagEnd, long contentStart, long contentEnd, int tagLine) {
+        if (!ensureRoom()) return;
+
+        int column = (int) (tagStart - lineStart + 1);
+        long offset = tokenizer.bufferOffset() + tagStart;
+
+        if (contentEnd == contentStart || source.get(ValueLayout.JAVA_BYTE, contentStart) != '/') {
+            int length = (int) (contentEnd - contentStart);
+            int next = symbols.size();
+            int name = symbols.intern(source, contentStart, length);
+            if (name == next) {
+                batch.addName(source, contentStart, length);
+            }
+            batch.addTag(TokenBatch.OPEN, name, tagLine, column, offset, source, tagStart, tagEnd);
+        } else {
+            int name = symbols.find(source, contentStart + 1, (int) (contentEnd - contentStart - 1));
+            batch.addTag(TokenBatch.CLOSE, name, tagLine, column, offset, source, tagStart, tagEnd);
+        }
+    }
+
+
+    @Override
+    public void lineError(MemorySegment source, long lineStart, long textStart, long textEnd, ErrorKind kind, int errorLine) {
+        if (!ensureRoom()) return;
+
+        String line = XMLTokenizer.decode(source, textStart, textEnd);
+        int column = (int) (textStart - lineStart + 1);
+        batch.addError(new ParseError(kind, errorLine, column, tokenizer.bufferOffset() + textStart, line));
+    }
+
+
+    @Override
+    public void markupError(ErrorKind kind, String text, int errorLine, int column, long offset) {
+        if (!ensureRoom()) return;
+
+        batch.addError(new ParseError(kind, errorLine, column, offset, text));
+    }
+
+
+    /**
+     * Hands over the current batch when it is full and starts the next one.
+     *
+     * @return false if the validator has closed the lexer, which stops the tokenizer
+     */
+    private boolean ensureRoom() {
+        if (batch == null) return false;
+        if (!batch.isFull()) return true;
+
+        try {
+            if (filled.put(batch)) {
+                batch = nextBatch();
+            } else {
+                batch = null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            batch = null;
+        }
+
+        if (batch == null) {
+            tokenizer.stop();
+            return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * Takes an empty batch, waiting for the validator to give one back.
+     *
+     * @return the batch, or null if the validator has closed the lexer
+     */
+    private TokenBatch nextBatch() throws InterruptedException {
+        TokenBatch next = free.take();
+        if (next != null) {
+            next.clear(symbols.size());
+        }
+        return next;
+    }
+}
@@ -0,0 +1,300 @@
+package appDomain;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * ReportWriter.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * Writes the errors of one or more files as a report. Subclasses decide the
+ * format: plain text for people, JSON Lines for scripts, and SARIF for
+ * code-scanning tools.
+ *
+ * Every report is encoded straight into one large byte buffer that is reused
+ * for the whole run. Numbers and text are appended without
+ * {@code String.format} or intermediate strings, and the buffer is written to
+ * the output stream only when it fills or a file ends, so a file with many
+ * errors costs one write per buffer instead of one formatted, flushed line
+ * per error.
+ *
+ * A report is written as {@link #beginFile}, the file's errors through
+ * {@link #accept}, then {@link #endFile} (or {@link #fileError} if the file
+ * could not be read), repeated for each file, and finally {@link #close()}.
+ */
+public abstract class ReportWriter implements ErrorSink {
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16; // 64 KB output buffer
+
+    private static final String HEX = "0123456789abcdef";
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int length; // Bytes waiting in the buffer
+    private final byte[] digits = new byte[20]; // Room for any long
+    private long errorCount;
+
+
+    /**
+     * Creates a writer with its own output buffer.
+     *
+     * @param out        the stream the report is written to; it is flushed but not closed
+     * @param bufferSize the size of the output buffer in bytes
+     */
+    protected ReportWriter(OutputStream out, int bufferSize) {
+        if (out == null) throw new NullPointerException("Output stream cannot be null");
+        if (bufferSize < 16) throw new IllegalArgumentException("Buffer size must be at least 16 bytes");
+
+        this.out = out;
+        this.buffer = new byte[bufferSize];
+    }
+
+
+    /**
+     * Creates a writer for a format named on the command line.
+     *
+     * @param format {@code text}, {@code jsonl} or {@code sarif}
+     * @param out    the stream the report is written to
+     * @param batch  whether the report covers several files, so text output names each one
+     * @return the writer
+     * @throws IllegalArgumentException if the format is not known
+     */
+    public static ReportWriter create(String format, OutputStream out, boolean batch) {
+        if (format.equals("text")) return new TextReportWriter(out, batch ? null : "Error LOG");
+        if (format.equals("jsonl")) return new JsonLinesReportWriter(out);
+        if (format.equals("sarif")) return new SarifReportWriter(out);
+        throw new IllegalArgumentException("Unknown report format: " + format);
+    }
+
+
+    /**
+     * Writes one error of the current file.
+     *
+     * @param error the error found
+     */
+    @Override
+    public final void accept(ParseError error) {
+        if (error == null) throw new NullPointerException("Error cannot be null");
+
+        errorCount++;
+        writeError(error);
+    }
+
+
+    /**
+     * Returns the number of errors written to the report, over all files.
+     *
+     * @return the error count
+     */
+    public long errorCount() {
+        return errorCount;
+    }
+
+
+    /**
+     * Writes one error in the report's format.
+     *
+     * @param error the error to write
+     */
+    protected abstract void writeError(ParseError error);
+
+
+    /**
+     * Starts the part of the report for one file.
+     *
+     * @param file the path of the file, or null if it has none
+     */
+    public abstract void beginFile(String file);
+
+
+    /**
+     * Ends the part of the report for the current file.
+     *
+     * @param stopped whether checking stopped at the error limit, so the file's errors are incomplete
+     */
+    public abstract void endFile(boolean stopped);
+
+
+    /**
+     * Reports that the current file could not be read, and ends its part of the report.
+     *
+     * @param message the reason the file could not be read
+     */
+    public abstract void fileError(String message);
+
+
+    /**
+     * Reports how many files were checked. Only formats meant for people print this.
+     *
+     * @param files  the number of files checked
+     * @param failed the number of files that had errors or could not be read
+     */
+    public void summary(int files, int failed) {
+    }
+
+
+    /**
+     * Ends the report and writes everything still buffered.
+     */
+    public void close() {
+        flush();
+    }
+
+
+    /**
+     * Writes the buffered bytes to the output stream and flushes it.
+     */
+    @Override
+    public void flush() {
+        drain();
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /**
+     * Appends one ASCII byte.
+     */
+    protected final void write(char c) {
+        if (length == buffer.length) drain();
+        buffer[length++] = (byte) c;
+    }
+
+
+    /**
+     * Appends text encoded as UTF-8.
+     */
+    protected final void write(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+
+            if (c < 0x80) {
+                if (length == buffer.length) drain();
+                buffer[length++] = (byte) c;
+            } else {
+                i = writeMultiByte(text, i);
+            }
+        }
+    }
+
+
+    /**
+     * Appends a number in decimal.
+     */
+    protected final void write(long number) {
+        if (length + digits.length + 1 > buffer.length) drain();
+
+        if (number < 0) {
+            if (number == Long.MIN_VALUE) {
+                write(Long.toString(number));
+                return;
+            }
+            buffer[length++] = '-';
+            number = -number;
+        }
+
+        int count = 0;
+        do {
+            digits[count++] = (byte) ('0' + number % 10);
+            number /= 10;
+        } while (number != 0);
+
+        while (count > 0) {
+            buffer[length++] = digits[--count];
+        }
+    }
+
+
+    /**
+     * Appends text as a quoted JSON string.
+     */
+    protected final void writeJson(String text) {
+        write('"');
+        writeEscaped(text);
+        write('"');
+    }
+
+
+    /**
+     * Appends text for the inside of a JSON string, escaping quotes, backslashes and control characters.
+     */
+    protected final void writeEscaped(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+
+            if (c == '"' || c == '\\') {
+                write('\\');
+                write(c);
+            } else if (c == '\n') {
+                write('\\');
+                write('n');
+            } else if (c == '\r') {
+                write('\\');
+                write('r');
+            } else if (c == '\t') {
+                write('\\');
+                write('t');
+            } else if (c < 0x20) {
+                write('\\');
+                write('u');
+                write('0');
+                write('0');
+                write(HEX.charAt(c >> 4));
+                write(HEX.charAt(c & 0xF));
+            } else if (c < 0x80) {
+                write(c);
+            } else {
+                i = writeMultiByte(text, i);
+            }
+        }
+    }
+
+
+    /**
+     * Appends the non-ASCII character at {@code index} as UTF-8 and returns
+     * the index of its last char. An unpaired surrogate is written as '?'.
+     */
+    private int writeMultiByte(String text, int index) {
+        if (length + 4 > buffer.length) drain();
+
+        char c = text.charAt(index);
+        if (c < 0x800) {
+            buffer[length++] = (byte) (0xC0 | (c >> 6));
+            buffer[length++] = (byte) (0x80 | (c & 0x3F));
+        } else if (!Character.isSurrogate(c)) {
+            buffer[length++] = (byte) (0xE0 | (c >> 12));
+            buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buffer[length++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && index + 1 < text.length()
+                && Character.isLowSurrogate(text.charAt(index + 1))) {
+            int codePoint = Character.toCodePoint(c, text.charAt(++index));
+            buffer[length++] = (byte) (0xF0 | (codePoint >> 18));
+            buffer[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            buffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            buffer[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else {
+            buffer[length++] = '?';
+        }
+        return index;
+    }
+
+
+    /**
+     * Writes the buffered bytes to the output stream without flushing it.
+     */
+    private void drain() {
+        if (length == 0) return;
+
+        try {
+            out.write(buffer, 0, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        length = 0;
+    }
+}
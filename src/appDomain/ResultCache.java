@@ -0,0 +1,524 @@
+package appDomain;
+
+import implementations.MyQueue;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import utilities.Iterator;
+
+/**
+ * ResultCache.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * Remembers the errors found in each file between runs, so a file that has
+ * not changed since it was last checked is not parsed again.
+ *
+ * Results are keyed by the file's absolute path and stamped with its size,
+ * modification time and a 64-bit hash of its content. A file whose size and
+ * modification time still match is trusted without being read, unless it
+ * was modified so close to when it was checked that a later change could
+ * have kept the same time; then its content is hashed and compared. A file
+ * whose time changed but whose content did not, such as after a fresh
+ * checkout, is recognised by its hash and kept.
+ *
+ * All results live in one binary index file in the cache directory. The
+ * index is read when the cache is opened and written back by {@link #save()}.
+ * Both hold an exclusive lock on a lock file, and saving merges with whatever
+ * other runs wrote in the meantime, so several runs can share a cache. Saving
+ * also evicts results not used for {@link #DEFAULT_MAX_AGE_MILLIS}, then the
+ * least recently used results until the index fits in its size limit.
+ *
+ * A result stored with an error limit that stopped the check is only used
+ * for the same or a smaller limit. A complete result serves any limit.
+ */
+public class ResultCache {
+    public static final long DEFAULT_MAX_AGE_MILLIS = 30L * 24 * 60 * 60 * 1000; // 30 days
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;                       // 64 MB index
+
+    private static final int MAGIC = 0x58504331;   // "XPC1"
+    private static final int FORMAT_VERSION = 1;   // Raise whenever the parser reports errors differently
+    private static final long RACY_MILLIS = 2000;  // Files modified this close to a check are hashed
+    private static final String INDEX_FILE = "results.idx";
+    private static final String LOCK_FILE = "results.lock";
+
+    private final Path directory;
+    private final long maxAgeMillis;
+    private final long maxBytes;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Entry> changed = new ConcurrentHashMap<>(); // Stored or used by this run
+
+
+    /**
+     * The size and modification time of a file, read before it is parsed.
+     */
+    public static final class Stamp {
+        final long size;
+        final long modified;
+
+
+        Stamp(long size, long modified) {
+            this.size = size;
+            this.modified = modified;
+        }
+    }
+
+
+    /**
+     * A cached result, already cut to the error limit it was looked up with.
+     */
+    public static final class Result {
+        private final ParseError[] errors;
+        private final int count;
+        private final boolean stopped;
+
+
+        Result(ParseError[] errors, int count, boolean stopped) {
+            this.errors = errors;
+            this.count = count;
+            this.stopped = stopped;
+        }
+
+
+        /**
+         * Adds the errors, in the order they were found, to a queue.
+         *
+         * @param target the queue that receives the errors
+         */
+        public void copyTo(MyQueue<ParseError> target) {
+            for (int i = 0; i < count; i++) {
+                target.enqueue(errors[i]);
+            }
+        }
+
+
+        /**
+         * @return whether the check stopped at the error limit
+         */
+        public boolean isStopped() {
+            return stopped;
+        }
+    }
+
+
+    /**
+     * The stored result of one file.
+     */
+    private static final class Entry {
+        final String path;
+        final long size;
+        final long modified;
+        final long hash;
+        final long checkedAt;   // When the stamp and hash were last known to match the content
+        final long lastUsed;
+        final int errorLimit;   // The limit of a stopped check, or 0 for a complete result
+        final ParseError[] errors;
+
+
+        Entry(String path, long size, long modified, long hash, long checkedAt, long lastUsed,
+              int errorLimit, ParseError[] errors) {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+            this.checkedAt = checkedAt;
+            this.lastUsed = lastUsed;
+            this.errorLimit = errorLimit;
+            this.errors = errors;
+        }
+
+
+        /**
+         * Returns a copy with a new stamp time and use time.
+         */
+        Entry touch(long modified, long checkedAt, long lastUsed) {
+            return new Entry(path, size, modified, hash, checkedAt, lastUsed, errorLimit, errors);
+        }
+
+
+        /**
+         * Returns an estimate of the entry's size in the index file.
+         */
+        long encodedSize() {
+            long bytes = 50 + path.length();
+            for (ParseError error : errors) {
+                bytes += 19 + error.getText().length();
+            }
+            return bytes;
+        }
+    }
+
+
+    /**
+     * Creates a cache in a directory without reading it.
+     */
+    private ResultCache(Path directory, long maxAgeMillis, long maxBytes) {
+        this.directory = directory;
+        this.maxAgeMillis = maxAgeMillis;
+        this.maxBytes = maxBytes;
+    }
+
+
+    /**
+     * Opens the cache stored in a directory, creating the directory if needed,
+     * with the default age and size limits.
+     *
+     * @param directory the cache directory
+     * @return the cache holding every result stored there
+     * @throws IOException if the directory cannot be created or the index cannot be read
+     */
+    public static ResultCache open(Path directory) throws IOException {
+        return open(directory, DEFAULT_MAX_AGE_MILLIS, DEFAULT_MAX_BYTES);
+    }
+
+
+    /**
+     * Opens the cache stored in a directory, creating the directory if needed.
+     *
+     * @param directory    the cache directory
+     * @param maxAgeMillis results not used for this long are evicted when saving
+     * @param maxBytes     the size the index is kept under when saving
+     * @return the cache holding every result stored there
+     * @throws IOException if the directory cannot be created or the index cannot be read
+     */
+    public static ResultCache open(Path directory, long maxAgeMillis, long maxBytes) throws IOException {
+        if (directory == null) throw new NullPointerException("Cache directory cannot be null");
+        if (maxAgeMillis <= 0 || maxBytes <= 0) throw new IllegalArgumentException("Cache limits must be positive");
+
+        Files.createDirectories(directory);
+        ResultCache cache = new ResultCache(directory, maxAgeMillis, maxBytes);
+        try (FileChannel channel = openLock(directory)) {
+            FileLock lock = channel.lock();
+            try {
+                cache.entries.putAll(read(directory.resolve(INDEX_FILE)));
+            } finally {
+                lock.release();
+            }
+        }
+        return cache;
+    }
+
+
+    /**
+     * Reads the size and modification time of a file before it is checked.
+     *
+     * @param file the file about to be checked
+     * @return the file's stamp
+     * @throws IOException if the file's attributes cannot be read
+     */
+    public static Stamp stamp(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        return new Stamp(attributes.size(), attributes.lastModifiedTime().toMillis());
+    }
+
+
+    /**
+     * Looks up the stored result of a file.
+     *
+     * @param file       the file to check
+     * @param errorLimit the error limit of this check, or 0 for no limit
+     * @return the stored result cut to the limit, or null if the file must be parsed
+     * @throws IOException if the file cannot be read
+     */
+    public Result lookup(Path file, int errorLimit) throws IOException {
+        String key = key(file);
+        Entry entry = entries.get(key);
+        if (entry == null || !serves(entry, errorLimit)) return null;
+
+        Stamp stamp = stamp(file);
+        if (stamp.size != entry.size) return null;
+
+        long now = System.currentTimeMillis();
+        long checkedAt = entry.checkedAt;
+        if (stamp.modified != entry.modified || stamp.modified >= entry.checkedAt - RACY_MILLIS) {
+            if (hash(file) != entry.hash) return null;
+            checkedAt = now;
+        }
+
+        entry = entry.touch(stamp.modified, checkedAt, now);
+        entries.put(key, entry);
+        changed.put(key, entry);
+        return result(entry, errorLimit);
+    }
+
+
+    /**
+     * Stores the result of a file that was just checked. Nothing is stored if
+     * the file changed while it was being checked.
+     *
+     * @param file       the file that was checked
+     * @param before     the file's stamp, read before the check
+     * @param errors     the errors found, in order
+     * @param stopped    whether the check stopped at the error limit
+     * @param errorLimit the error limit of the check, or 0 for no limit
+     * @throws IOException if the file cannot be read
+     */
+    public void store(Path file, Stamp before, MyQueue<ParseError> errors, boolean stopped, int errorLimit)
+            throws IOException {
+        long hash = hash(file);
+        Stamp after = stamp(file);
+        if (after.size != before.size || after.modified != before.modified) return;
+
+        ParseError[] stored = new ParseError[errors.size()];
+        Iterator<ParseError> it = errors.iterator();
+        for (int i = 0; i < stored.length; i++) {
+            stored[i] = it.next();
+        }
+
+        String key = key(file);
+        long now = System.currentTimeMillis();
+        Entry entry = new Entry(key, after.size, after.modified, hash, now, now, stopped ? errorLimit : 0, stored);
+        entries.put(key, entry);
+        changed.put(key, entry);
+    }
+
+
+    /**
+     * Writes the results stored or used by this run to the index, merged
+     * with the results other runs saved since it was read, and evicts old
+     * results.
+     *
+     * @throws IOException if the index cannot be written
+     */
+    public void save() throws IOException {
+        if (changed.isEmpty()) return;
+
+        Path index = directory.resolve(INDEX_FILE);
+        try (FileChannel channel = openLock(directory)) {
+            FileLock lock = channel.lock();
+            try {
+                Map<String, Entry> merged = read(index);
+                for (Entry entry : changed.values()) {
+                    Entry other = merged.get(entry.path);
+                    if (other == null || other.checkedAt <= entry.checkedAt) {
+                        merged.put(entry.path, entry);
+                    } else if (other.lastUsed < entry.lastUsed) {
+                        merged.put(entry.path, other.touch(other.modified, other.checkedAt, entry.lastUsed));
+                    }
+                }
+
+                ArrayList<Entry> kept = evict(merged);
+                Path temporary = Files.createTempFile(directory, "results", ".tmp");
+                try {
+                    write(temporary, kept);
+                    Files.move(temporary, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(temporary);
+                }
+            } finally {
+                lock.release();
+            }
+        }
+        changed.clear();
+    }
+
+
+    /**
+     * Returns the number of results held.
+     *
+     * @return the result count
+     */
+    public int size() {
+        return entries.size();
+    }
+
+
+    /**
+     * Computes a 64-bit hash of a file's content. Eight bytes are mixed in per
+     * step, so hashing is much faster than parsing.
+     *
+     * @param file the file to hash
+     * @return the hash
+     * @throws IOException if the file cannot be read
+     */
+    static long hash(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             Arena arena = Arena.ofConfined()) {
+            long size = channel.size();
+            if (size == 0) return hash(MemorySegment.ofArray(new byte[0]));
+            return hash(channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena));
+        }
+    }
+
+
+    /**
+     * Computes a 64-bit hash of the bytes of a segment.
+     *
+     * @param source the bytes to hash
+     * @return the hash
+     */
+    static long hash(MemorySegment source) {
+        long size = source.byteSize();
+        long hash = 0x9E3779B97F4A7C15L ^ size;
+        long words = size & ~7L;
+
+        for (long i = 0; i < words; i += 8) {
+            hash ^= source.get(ValueLayout.JAVA_LONG_UNALIGNED, i) * 0xC2B2AE3D27D4EB4FL;
+            hash = Long.rotateLeft(hash, 31) * 0x9E3779B97F4A7C15L;
+        }
+        for (long i = words; i < size; i++) {
+            hash ^= (source.get(ValueLayout.JAVA_BYTE, i) & 0xFF) * 0x165667B19E3779F9L;
+            hash = Long.rotateLeft(hash, 23) * 0x9E3779B97F4A7C15L;
+        }
+
+        // Final avalanche, so every input bit affects every output bit
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+
+
+    /**
+     * Checks whether an entry holds enough of a file's errors for a check with the given limit.
+     */
+    private static boolean serves(Entry entry, int errorLimit) {
+        return entry.errorLimit == 0 || (errorLimit != 0 && errorLimit <= entry.errorLimit);
+    }
+
+
+    /**
+     * Cuts an entry's errors to an error limit, the way the check itself would have stopped.
+     */
+    private static Result result(Entry entry, int errorLimit) {
+        if (errorLimit != 0 && entry.errors.length >= errorLimit) {
+            return new Result(entry.errors, errorLimit, true);
+        }
+        return new Result(entry.errors, entry.errors.length, false);
+    }
+
+
+    /**
+     * Drops results not used within the age limit, then the least recently
+     * used results until the rest fit in the size limit.
+     */
+    private ArrayList<Entry> evict(Map<String, Entry> all) {
+        long oldest = System.currentTimeMillis() - maxAgeMillis;
+        ArrayList<Entry> kept = new ArrayList<>();
+        long bytes = 0;
+
+        for (Entry entry : all.values()) {
+            if (entry.lastUsed >= oldest) {
+                kept.add(entry);
+                bytes += entry.encodedSize();
+            }
+        }
+
+        if (bytes > maxBytes) {
+            kept.sort((a, b) -> Long.compare(b.lastUsed, a.lastUsed));
+            int count = 0;
+            bytes = 0;
+            while (count < kept.size() && bytes + kept.get(count).encodedSize() <= maxBytes) {
+                bytes += kept.get(count++).encodedSize();
+            }
+            kept.subList(count, kept.size()).clear();
+        }
+        return kept;
+    }
+
+
+    /**
+     * Opens the lock file whose exclusive lock guards the index of a cache directory.
+     */
+    private static FileChannel openLock(Path directory) throws IOException {
+        return FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+
+    /**
+     * Reads an index file. A missing, damaged or older index reads as empty.
+     */
+    private static Map<String, Entry> read(Path index) throws IOException {
+        Map<String, Entry> entries = new ConcurrentHashMap<>();
+        if (!Files.exists(index)) return entries;
+
+        ErrorKind[] kinds = ErrorKind.values();
+        try (InputStream file = Files.newInputStream(index);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) return entries;
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                long size = in.readLong();
+                long modified = in.readLong();
+                long hash = in.readLong();
+                long checkedAt = in.readLong();
+                long lastUsed = in.readLong();
+                int errorLimit = in.readInt();
+
+                ParseError[] errors = new ParseError[in.readInt()];
+                for (int e = 0; e < errors.length; e++) {
+                    ErrorKind kind = kinds[in.readUnsignedByte()];
+                    int line = in.readInt();
+                    int column = in.readInt();
+                    long offset = in.readLong();
+                    errors[e] = new ParseError(kind, line, column, offset, in.readUTF());
+                }
+                entries.put(path, new Entry(path, size, modified, hash, checkedAt, lastUsed, errorLimit, errors));
+            }
+        } catch (IOException | RuntimeException e) {
+            entries.clear(); // A damaged index is rebuilt from scratch
+        }
+        return entries;
+    }
+
+
+    /**
+     * Writes an index file.
+     */
+    private static void write(Path index, ArrayList<Entry> entries) throws IOException {
+        try (OutputStream file = Files.newOutputStream(index);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(entries.size());
+
+            for (Entry entry : entries) {
+                out.writeUTF(entry.path);
+                out.writeLong(entry.size);
+                out.writeLong(entry.modified);
+                out.writeLong(entry.hash);
+                out.writeLong(entry.checkedAt);
+                out.writeLong(entry.lastUsed);
+                out.writeInt(entry.errorLimit);
+
+                out.writeInt(entry.errors.length);
+                for (ParseError error : entry.errors) {
+                    out.writeByte(error.getKind().ordinal());
+                    out.writeInt(error.getLine());
+                    out.writeInt(error.getColumn());
+                    out.writeLong(error.getOffset());
+                    out.writeUTF(error.getText());
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Returns the key of a file: its absolute, normalized path.
+     */
+    private static String key(Path file) {
+        return file.toAbsolutePath().normalize().toString();
+    }
+}
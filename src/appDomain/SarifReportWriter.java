@@ -0,0 +1,299 @@
+package appDomain;
+
+import implementations.MyQueue;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * SarifReportWriter.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * Writes a SARIF 2.1.0 log, the format read by code-scanning dashboards.
+ * The log has one run. Every {@link ErrorKind} is a rule of the tool, and
+ * every error is a result located by file, line, column and byte offset.
+ *
+ * The parser counts columns in bytes, but SARIF counts them in UTF-16 code
+ * units, so the column of an error past the start of its line is counted
+ * again from the file's bytes. The bytes before the error on its line are
+ * read once for all the errors on that line. A file that cannot be read as it
+ * was checked, such as standard input, a compressed file, an archive entry
+ * or a UTF-16 document, gets results without a column; the byte offset is
+ * exact either way.
+ *
+ * Results are written as they arrive, so the log is streamed like the other
+ * formats. Files that could not be read, or that stopped at the error limit,
+ * are reported as tool notifications in the run's invocation, which is
+ * written after the results when the report is closed.
+ */
+public class SarifReportWriter extends ReportWriter {
+    private static final String SCHEMA = "https://json.schemastore.org/sarif-2.1.0.json";
+    private static final int LINE_BUFFER_SIZE = 8192;
+
+    private final MyQueue<Notification> notifications = new MyQueue<>();
+    private String uri;              // The current file as a relative URI, or null
+    private boolean started;         // The log has been opened
+    private boolean firstResult = true;
+
+    private FileChannel source;      // The current file, read again to count columns, or null
+    private final ByteBuffer lineBytes = ByteBuffer.allocate(LINE_BUFFER_SIZE);
+    private long countedLine = -1;   // Offset of the line whose columns were counted last
+    private long countedTo;          // Offset counted up to on that line
+    private int countedUnits;        // UTF-16 code units between the line start and countedTo
+
+
+    /**
+     * A notification about a file, held until the invocation is written.
+     */
+    private static class Notification {
+        final String level;
+        final String message;
+        final String uri;
+
+
+        Notification(String level, String message, String uri) {
+            this.level = level;
+            this.message = message;
+            this.uri = uri;
+        }
+    }
+
+
+    /**
+     * Creates a SARIF writer.
+     *
+     * @param out the stream the log is written to
+     */
+    public SarifReportWriter(OutputStream out) {
+        super(out, DEFAULT_BUFFER_SIZE);
+    }
+
+
+    @Override
+    public void beginFile(String file) {
+        start();
+        uri = file == null ? null : toUri(file);
+        closeSource();
+        source = file == null ? null : openSource(file);
+    }
+
+
+    @Override
+    protected void writeError(ParseError error) {
+        start();
+        if (!firstResult) write(',');
+        firstResult = false;
+
+        ErrorKind kind = error.getKind();
+        write("\n{\"ruleId\":");
+        writeJson(kind.name());
+        write(",\"ruleIndex\":");
+        write(kind.ordinal());
+        write(",\"level\":\"error\",\"message\":{\"text\":");
+        write('"');
+        writeEscaped(kind.getDescription());
+        write(": ");
+        writeEscaped(error.getText());
+        write('"');
+        write("},\"locations\":[{\"physicalLocation\":{");
+        writeArtifact(uri);
+        write("\"region\":{\"startLine\":");
+        write(error.getLine());
+        int column = column(error);
+        if (column > 0) {
+            write(",\"startColumn\":");
+            write(column);
+        }
+        if (error.getOffset() >= 0) {
+            write(",\"byteOffset\":");
+            write(error.getOffset());
+        }
+        write("}}}]}");
+    }
+
+
+    @Override
+    public void endFile(boolean stopped) {
+        if (stopped) {
+            notifications.enqueue(new Notification("warning", ParserEngine.LIMIT_REACHED_MESSAGE, uri));
+        }
+        closeSource();
+        flush();
+    }
+
+
+    @Override
+    public void fileError(String message) {
+        notifications.enqueue(new Notification("error", "Error reading file: " + message, uri));
+        closeSource();
+        flush();
+    }
+
+
+    /**
+     * Writes the invocation with its notifications and closes the log.
+     */
+    @Override
+    public void close() {
+        closeSource();
+        start();
+        write("\n],\"invocations\":[{\"executionSuccessful\":true,\"toolExecutionNotifications\":[");
+
+        boolean first = true;
+        while (!notifications.isEmpty()) {
+            Notification notification = notifications.dequeue();
+            if (!first) write(',');
+            first = false;
+
+            write("\n{\"level\":");
+            writeJson(notification.level);
+            write(",\"message\":{\"text\":");
+            writeJson(notification.message);
+            write("}");
+            if (notification.uri != null) {
+                write(",\"locations\":[{\"physicalLocation\":{");
+                writeArtifact(notification.uri);
+                write("\"region\":{\"startLine\":1}}}]");
+            }
+            write("}");
+        }
+        write("]}]}]}\n");
+        flush();
+    }
+
+
+    /**
+     * Writes the start of the log, the tool description with its rules, and
+     * opens the results, the first time anything is written.
+     */
+    private void start() {
+        if (started) return;
+        started = true;
+
+        write("{\"version\":\"2.1.0\",\"$schema\":");
+        writeJson(SCHEMA);
+        write(",\"runs\":[{\"tool\":{\"driver\":{\"name\":\"XMLParser\",\"rules\":[");
+        ErrorKind[] kinds = ErrorKind.values();
+        for (int i = 0; i < kinds.length; i++) {
+            if (i > 0) write(',');
+            write("\n{\"id\":");
+            writeJson(kinds[i].name());
+            write(",\"shortDescription\":{\"text\":");
+            writeJson(kinds[i].getDescription());
+            write("}}");
+        }
+        write("\n]}},\"columnKind\":\"utf16CodeUnits\",\"results\":[");
+    }
+
+
+    /**
+     * Returns the column of an error in UTF-16 code units. An error at the
+     * start of its line is in column 1; any other is counted from the bytes
+     * before it, continuing from the last error when it is on the same line.
+     *
+     * @return the 1-based column, or 0 if the file cannot be read
+     */
+    private int column(ParseError error) {
+        int column = error.getColumn();
+        long offset = error.getOffset();
+        long lineStart = offset - (column - 1);
+        if (column <= 1) return column;
+        if (source == null || offset < 0 || lineStart < 0) return 0;
+
+        if (lineStart != countedLine || offset < countedTo) {
+            countedLine = lineStart;
+            countedTo = lineStart;
+            countedUnits = 0;
+        }
+        try {
+            while (countedTo < offset) {
+                lineBytes.clear().limit((int) Math.min(LINE_BUFFER_SIZE, offset - countedTo));
+                int read = source.read(lineBytes, countedTo);
+                if (read <= 0) {
+                    countedLine = -1;
+                    return 0;
+                }
+                for (int i = 0; i < read; i++) {
+                    int b = lineBytes.get(i);
+                    if ((b & 0xC0) != 0x80) countedUnits++; // The first byte of a character
+                    if ((b & 0xF8) == 0xF0) countedUnits++; // A four-byte character is a surrogate pair
+                }
+                countedTo += read;
+            }
+        } catch (IOException e) {
+            countedLine = -1;
+            return 0;
+        }
+        return countedUnits + 1;
+    }
+
+
+    /**
+     * Opens a file to count columns in, if its bytes are the ones that were checked.
+     *
+     * @return the open file, or null if it is not a plain UTF-8 file that can be read
+     */
+    private static FileChannel openSource(String file) {
+        try {
+            Path path = Path.of(file);
+            if (!Files.isRegularFile(path) || ParserEngine.isGzip(file) || Utf16InputStream.isUtf16(file)) return null;
+            return FileChannel.open(path, StandardOpenOption.READ);
+        } catch (IOException | InvalidPathException e) {
+            return null;
+        }
+    }
+
+
+    /**
+     * Closes the file columns were counted in, if one is open.
+     */
+    private void closeSource() {
+        if (source == null) return;
+
+        try {
+            source.close();
+        } catch (IOException e) {
+            // Only read from, so nothing is lost
+        }
+        source = null;
+        countedLine = -1;
+    }
+
+
+    /**
+     * Writes the artifact location of a file, followed by a comma, if the file is known.
+     */
+    private void writeArtifact(String uri) {
+        if (uri == null) return;
+
+        write("\"artifactLocation\":{\"uri\":");
+        writeJson(uri);
+        write("},");
+    }
+
+
+    /**
+     * Turns a file path into a URI: a {@code file:} URI for an absolute path,
+     * otherwise a relative reference with '/' separators. Characters such as
+     * spaces are escaped.
+     */
+    private static String toUri(String file) {
+        if (Path.of(file).isAbsolute()) return Path.of(file).toUri().toASCIIString();
+
+        String path = file.replace('\\', '/');
+        try {
+            return new URI(null, null, path, null).toASCIIString();
+        } catch (URISyntaxException e) {
+            return path;
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package appDomain;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * SymbolTable.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * Gives every distinct tag name in a document a small int id, so an open tag
+ * is matched to its closing tag by comparing ints instead of strings.
+ *
+ * Names are looked up by a range of the source bytes (or of a line of text),
+ * without building a {@code String}. The bytes of each name are copied once
+ * into a shared pool, and the name is only decoded to a {@code String} when it
+ * is needed for an error message. The hash table uses open addressing with
+ * linear probing and holds ids, so a lookup allocates nothing. Its hash is
+ * seeded at random for every document, so names written to collide in one
+ * table do not collide in the next, and the long-lived tables of the daemon
+ * and watch mode cannot be driven into long probe runs.
+ *
+ * A name in a segment is first bulk-copied into a reused scratch array, so
+ * the hashing and comparing loops only ever read byte arrays. This keeps them
+ * fast when one JVM scans both heap buffers and mapped files.
+ */
+public class SymbolTable {
+    private static final int INITIAL_CAPACITY = 64; // Hash slots; always a power of two
+    static final int BYTES_PER_NAME = 32; // Three int columns, a reference and two hash slots, rounded up
+
+    private int[] slots = new int[INITIAL_CAPACITY]; // id + 1 for each slot, 0 when empty
+    private byte[] pool = new byte[1024];             // Bytes of all names, back to back
+    private int poolSize;
+
+    // Per-id columns
+    private int[] nameStart = new int[INITIAL_CAPACITY / 2];
+    private int[] nameLength = new int[INITIAL_CAPACITY / 2];
+    private int[] nameHash = new int[INITIAL_CAPACITY / 2];
+    private String[] names = new String[INITIAL_CAPACITY / 2]; // Decoded on first use
+    private int count;
+
+    private byte[] scratch = new byte[64]; // Holds the name being looked up
+    private int seed = ThreadLocalRandom.current().nextInt(); // Picked again whenever the table is cleared
+
+
+    /**
+     * Returns the id of the name stored in a range of the source, adding the name if it is new.
+     *
+     * @param source the bytes being scanned
+     * @param start  offset of the first byte of the name
+     * @param length length of the name in bytes
+     * @return the id of the name
+     */
+    public int intern(MemorySegment source, long start, int length) {
+        load(source, start, length);
+        return intern(scratch, length);
+    }
+
+
+    /**
+     * Returns the id of the name stored in a range of the source.
+     *
+     * @param source the bytes being scanned
+     * @param start  offset of the first byte of the name
+     * @param length length of the name in bytes
+     * @return the id of the name, or -1 if it has not been added
+     */
+    public int find(MemorySegment source, long start, int length) {
+        load(source, start, length);
+        int slot = probe(scratch, length, hash(scratch, length));
+        return slots[slot] - 1;
+    }
+
+
+    /**
+     * Returns the id of the name in a range of a line of text, adding the name if it is new.
+     *
+     * @param line  the text holding the name
+     * @param start index of the first character of the name
+     * @param end   index just past the last character of the name
+     * @return the id of the name
+     */
+    public int intern(String line, int start, int end) {
+        if (!isAscii(line, start, end)) {
+            byte[] bytes = line.substring(start, end).getBytes(StandardCharsets.UTF_8);
+            return intern(bytes, bytes.length);
+        }
+
+        int length = end - start;
+        int hash = hash(line, start, end);
+        int slot = probe(line, start, end, hash);
+        if (slots[slot] != 0) return slots[slot] - 1;
+
+        int poolStart = reservePool(length);
+        for (int i = 0; i < length; i++) {
+            pool[poolStart + i] = (byte) line.charAt(start + i);
+        }
+        return add(slot, poolStart, length, hash);
+    }
+
+
+    /**
+     * Returns the id of the name in a range of a line of text.
+     *
+     * @param line  the text holding the name
+     * @param start index of the first character of the name
+     * @param end   index just past the last character of the name
+     * @return the id of the name, or -1 if it has not been added
+     */
+    public int find(String line, int start, int end) {
+        if (!isAscii(line, start, end)) {
+            byte[] bytes = line.substring(start, end).getBytes(StandardCharsets.UTF_8);
+            return slots[probe(bytes, bytes.length, hash(bytes, bytes.length))] - 1;
+        }
+
+        int slot = probe(line, start, end, hash(line, start, end));
+        return slots[slot] - 1;
+    }
+
+
+    /**
+     * Returns the text of a name.
+     *
+     * @param id the id returned by {@link #intern}
+     * @return the decoded name
+     */
+    public String name(int id) {
+        if (id < 0 || id >= count) throw new IndexOutOfBoundsException("No name with id " + id);
+
+        if (names[id] == null) {
+            names[id] = new String(pool, nameStart[id], nameLength[id], StandardCharsets.UTF_8);
+        }
+        return names[id];
+    }
+
+
+    /**
+     * Returns the number of names in the table.
+     *
+     * @return the name count
+     */
+    public int size() {
+        return count;
+    }
+
+
+    /**
+     * Returns the approximate heap taken by the names with ids below a count:
+     * their bytes and, for each name, its columns and its share of the hash
+     * slots, which are never more than half full. Spare capacity kept for
+     * reuse is not counted.
+     *
+     * @param names the number of names, from id 0, at most {@link #size()}
+     * @return the number of bytes
+     */
+    public long memoryUsed(int names) {
+        if (names <= 0) return 0;
+        int last = Math.min(names, count) - 1;
+        return nameStart[last] + nameLength[last] + (long) (last + 1) * BYTES_PER_NAME;
+    }
+
+
+    /**
+     * Removes every name. The table keeps its capacity for reuse.
+     */
+    public void clear() {
+        Arrays.fill(slots, 0);
+        Arrays.fill(names, 0, count, null);
+        poolSize = 0;
+        count = 0;
+        seed = ThreadLocalRandom.current().nextInt();
+    }
+
+
+    /**
+     * Returns the id of the name held in the first {@code length} bytes of an array,
+     * adding the name if it is new.
+     */
+    private int intern(byte[] bytes, int length) {
+        int hash = hash(bytes, length);
+        int slot = probe(bytes, length, hash);
+        if (slots[slot] != 0) return slots[slot] - 1;
+
+        int poolStart = reservePool(length);
+        System.arraycopy(bytes, 0, pool, poolStart, length);
+        return add(slot, poolStart, length, hash);
+    }
+
+
+    /**
+     * Copies a name from the source into the scratch array.
+     */
+    private void load(MemorySegment source, long start, int length) {
+        if (length > scratch.length) {
+            scratch = new byte[Math.max(scratch.length * 2, length)];
+        }
+        MemorySegment.copy(source, ValueLayout.JAVA_BYTE, start, scratch, 0, length);
+    }
+
+
+    /**
+     * Finds the slot holding a name, or the empty slot where it would be added.
+     */
+    private int probe(byte[] bytes, int length, int hash) {
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+
+        while (slots[slot] != 0) {
+            int id = slots[slot] - 1;
+            if (nameHash[id] == hash && equals(id, bytes, length)) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+
+    /**
+     * Finds the slot holding an ASCII name, or the empty slot where it would be added.
+     */
+    private int probe(String line, int start, int end, int hash) {
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+
+        while (slots[slot] != 0) {
+            int id = slots[slot] - 1;
+            if (nameHash[id] == hash && equals(id, line, start, end)) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+
+    /**
+     * Records a new name in an empty slot, growing the table when it is half full.
+     */
+    private int add(int slot, int poolStart, int length, int hash) {
+        if (count == nameStart.length) {
+            int capacity = count * 2;
+            nameStart = Arrays.copyOf(nameStart, capacity);
+            nameLength = Arrays.copyOf(nameLength, capacity);
+            nameHash = Arrays.copyOf(nameHash, capacity);
+            names = Arrays.copyOf(names, capacity);
+        }
+
+        int id = count++;
+        nameStart[id] = poolStart;
+        nameLength[id] = length;
+        nameHash[id] = hash;
+        slots[slot] = id + 1;
+
+        if (count * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        return id;
+    }
+
+
+    /**
+     * Rebuilds the slots with a new capacity.
+     */
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        int mask = capacity - 1;
+
+        for (int id = 0; id < count; id++) {
+            int slot = nameHash[id] & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+
+    /**
+     * Makes room for a name's bytes at the end of the pool and returns where they go.
+     */
+    private int reservePool(int length) {
+        if (poolSize + length > pool.length) {
+            pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolSize + length));
+        }
+
+        int start = poolSize;
+        poolSize += length;
+        return start;
+    }
+
+
+    /**
+     * Compares a stored name with the first {@code length} bytes of an array.
+     */
+    private boolean equals(int id, byte[] bytes, int length) {
+        if (nameLength[id] != length) return false;
+
+        int stored = nameStart[id];
+        return Arrays.equals(pool, stored, stored + length, bytes, 0, length);
+    }
+
+
+    /**
+     * Compares a stored name with an ASCII range of a line.
+     */
+    private boolean equals(int id, String line, int start, int end) {
+        if (nameLength[id] != end - start) return false;
+
+        int stored = nameStart[id];
+        for (int i = start; i < end; i++) {
+            if (pool[stored++] != line.charAt(i)) return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * Hashes the first {@code length} bytes of an array, starting from the table's seed.
+     */
+    private int hash(byte[] bytes, int length) {
+        int hash = seed;
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ bytes[i]) * 0x01000193;
+        }
+        return spread(hash);
+    }
+
+
+    /**
+     * Hashes an ASCII range of a line, giving the same result as hashing its bytes.
+     */
+    private int hash(String line, int start, int end) {
+        int hash = seed;
+        for (int i = start; i < end; i++) {
+            hash = (hash ^ line.charAt(i)) * 0x01000193;
+        }
+        return spread(hash);
+    }
+
+
+    /**
+     * Mixes every bit of a hash into the low bits used to pick a slot, with
+     * the finalizer of MurmurHash3.
+     */
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        return hash ^ (hash >>> 16);
+    }
+
+
+    /**
+     * Checks whether every character in a range is ASCII.
+     */
+    private static boolean isAscii(String line, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (line.charAt(i) >= 0x80) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,284 @@
+package appDomain;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * TagStack.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * The open-tag stack of a {@link ParserEngine}, with a bound on the heap it
+ * uses. Entries are kept as parallel primitive columns of name ids and
+ * offsets, and the lines they are on are kept in a {@link LineIndex}, so
+ * pushing and popping are array stores and loads.
+ *
+ * Without a memory limit the columns grow with the nesting depth. With one,
+ * they stop growing at the number of entries the limit allows. When they are
+ * full, the older half of the entries is written to a memory-mapped temporary
+ * file, each frame with its line and column already worked out, and the rest
+ * move down. When pops empty the columns, half a column of the newest frames
+ * on disk is read back. An entry is read straight from the file when a
+ * mismatch reports a tag that is still on disk.
+ *
+ * The file is only created the first time entries are spilled, and it is
+ * deleted when the stack is cleared.
+ */
+final class TagStack {
+    static final int ENTRY_BYTES = 24;  // Heap per entry: name, offset and at most one line index entry
+    static final int MIN_ENTRIES = 64;  // The smallest number of entries kept in memory
+    private static final int FRAME_BYTES = 24; // Name, line, column, padding and offset of a spilled entry
+    private static final long INITIAL_SPILL_SIZE = 1L << 20;
+
+    private int[] names = new int[MIN_ENTRIES];
+    private long[] offsets = new long[MIN_ENTRIES];
+    private int size;       // Entries in memory
+    private int spilled;    // Entries on disk, all below those in memory
+    private int maxEntries; // Entries kept in memory before spilling, or 0 for no limit
+    private final LineIndex lines = new LineIndex(); // Lines of the entries in memory
+
+    private FileChannel spillChannel; // Created by the first spill
+    private Arena spillArena;
+    private MemorySegment spill;
+
+
+    /**
+     * Limits the heap used by the entries kept in memory. Entries beyond the
+     * limit are spilled to disk.
+     *
+     * @param bytes the approximate number of bytes, or 0 for no limit
+     */
+    void setMemoryLimit(long bytes) {
+        maxEntries = bytes == 0 ? 0 : (int) Math.min(Integer.MAX_VALUE / 2, Math.max(MIN_ENTRIES, bytes / ENTRY_BYTES));
+    }
+
+
+    /**
+     * Returns the number of open tags, in memory and on disk.
+     */
+    int depth() {
+        return spilled + size;
+    }
+
+
+    /**
+     * Checks whether any entries are on disk.
+     */
+    boolean hasSpilled() {
+        return spilled > 0;
+    }
+
+
+    /**
+     * Pushes an open tag.
+     *
+     * @param name      the id of the tag name
+     * @param lineStart the offset of the start of the line the tag is on
+     * @param line      the line the tag is on
+     * @param offset    the offset of the tag's '<'
+     */
+    void push(int name, long lineStart, int line, long offset) {
+        if (size == names.length) {
+            makeRoom();
+        }
+        if (lines.isFull()) {
+            lines.retain(offsets, size);
+        }
+        lines.mark(lineStart, line);
+
+        names[size] = name;
+        offsets[size] = offset;
+        size++;
+    }
+
+
+    /**
+     * Returns the name id of the innermost open tag. The stack must not be empty.
+     */
+    int topName() {
+        return names[size - 1];
+    }
+
+
+    /**
+     * Removes the innermost open tag, reading older entries back from disk when memory runs out of them.
+     */
+    void pop() {
+        size--;
+        if (size == 0 && spilled > 0) {
+            pageIn();
+        }
+    }
+
+
+    /**
+     * Removes every entry from {@code depth} upwards.
+     *
+     * @param depth the number of entries to keep
+     */
+    void truncate(int depth) {
+        if (depth >= spilled) {
+            size = depth - spilled;
+        } else {
+            spilled = depth;
+            size = 0;
+        }
+        if (size == 0 && spilled > 0) {
+            pageIn();
+        }
+    }
+
+
+    /**
+     * Returns the name id of an entry.
+     *
+     * @param entry the index of the entry, 0 for the outermost open tag
+     */
+    int name(int entry) {
+        if (entry >= spilled) return names[entry - spilled];
+        return spill.get(ValueLayout.JAVA_INT, (long) entry * FRAME_BYTES);
+    }
+
+
+    /**
+     * Returns the offset of an entry's '<'.
+     */
+    long offset(int entry) {
+        if (entry >= spilled) return offsets[entry - spilled];
+        return spill.get(ValueLayout.JAVA_LONG, (long) entry * FRAME_BYTES + 16);
+    }
+
+
+    /**
+     * Returns the line an entry is on.
+     */
+    int line(int entry) {
+        if (entry >= spilled) return lines.line(lines.find(offsets[entry - spilled]));
+        return spill.get(ValueLayout.JAVA_INT, (long) entry * FRAME_BYTES + 4);
+    }
+
+
+    /**
+     * Returns the column of an entry's '<'.
+     */
+    int column(int entry) {
+        if (entry >= spilled) {
+            long offset = offsets[entry - spilled];
+            return lines.column(lines.find(offset), offset);
+        }
+        return spill.get(ValueLayout.JAVA_INT, (long) entry * FRAME_BYTES + 8);
+    }
+
+
+    /**
+     * Empties the stack and deletes the spill file, if there is one.
+     */
+    void clear() {
+        size = 0;
+        spilled = 0;
+        lines.clear();
+        if (spillChannel != null) {
+            spillArena.close();
+            try {
+                spillChannel.close(); // Deletes the file
+            } catch (IOException e) {
+                // The file is deleted when the process exits
+            }
+            spillChannel = null;
+            spillArena = null;
+            spill = null;
+        }
+    }
+
+
+    /**
+     * Makes room for one more entry in memory, by growing the columns or, at
+     * the memory limit, by spilling the older half of them.
+     */
+    private void makeRoom() {
+        if (maxEntries == 0 || names.length < maxEntries) {
+            int capacity = maxEntries == 0 ? size * 2 : Math.min(size * 2, maxEntries);
+            names = Arrays.copyOf(names, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            return;
+        }
+
+        int count = size / 2;
+        ensureSpill((long) (spilled + count) * FRAME_BYTES);
+        for (int i = 0; i < count; i++) {
+            long at = (long) (spilled + i) * FRAME_BYTES;
+            int line = lines.find(offsets[i]);
+            spill.set(ValueLayout.JAVA_INT, at, names[i]);
+            spill.set(ValueLayout.JAVA_INT, at + 4, lines.line(line));
+            spill.set(ValueLayout.JAVA_INT, at + 8, lines.column(line, offsets[i]));
+            spill.set(ValueLayout.JAVA_LONG, at + 16, offsets[i]);
+        }
+
+        System.arraycopy(names, count, names, 0, size - count);
+        System.arraycopy(offsets, count, offsets, 0, size - count);
+        size -= count;
+        spilled += count;
+        // The spilled lines are dropped from the line index the next time it fills
+    }
+
+
+    /**
+     * Reads the newest frames on disk back into the empty columns.
+     */
+    private void pageIn() {
+        int count = Math.min(names.length / 2, spilled);
+        int from = spilled - count;
+
+        lines.clear();
+        for (int i = 0; i < count; i++) {
+            long at = (long) (from + i) * FRAME_BYTES;
+            names[i] = spill.get(ValueLayout.JAVA_INT, at);
+            offsets[i] = spill.get(ValueLayout.JAVA_LONG, at + 16);
+            int column = spill.get(ValueLayout.JAVA_INT, at + 8);
+            lines.mark(offsets[i] - column + 1, spill.get(ValueLayout.JAVA_INT, at + 4));
+        }
+        size = count;
+        spilled = from;
+    }
+
+
+    /**
+     * Creates or enlarges the mapping of the spill file so it holds at least {@code bytes}.
+     */
+    private void ensureSpill(long bytes) {
+        if (spill != null && spill.byteSize() >= bytes) return;
+
+        try {
+            if (spillChannel == null) {
+                Path file = Files.createTempFile("xmlparser-stack", ".tmp");
+                spillChannel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                                                StandardOpenOption.DELETE_ON_CLOSE);
+            }
+
+            long size = spill == null ? INITIAL_SPILL_SIZE : spill.byteSize();
+            while (size < bytes) {
+                size *= 2;
+            }
+
+            // The mapping is shared because a pooled engine may be reset on another thread
+            Arena arena = Arena.ofShared();
+            MemorySegment larger = spillChannel.map(FileChannel.MapMode.READ_WRITE, 0, size, arena);
+            if (spillArena != null) {
+                spillArena.close();
+            }
+            spillArena = arena;
+            spill = larger;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not spill the tag stack to disk", e);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package appDomain;
+
+import java.io.OutputStream;
+
+/**
+ * TextReportWriter.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * Writes the error log read by people, in the format the parser has always
+ * printed: a heading, then each error's message and line followed by the
+ * offending text on an indented line, or "No errors found.".
+ *
+ * The heading is written with the file's first output, so nothing is written
+ * for a single file that cannot be opened. A report of several files names
+ * each file in its heading and ends with a count of the files checked.
+ */
+public class TextReportWriter extends ReportWriter {
+    private static final String NEWLINE = System.lineSeparator();
+
+    private final String title; // Fixed heading, or null to use the file name
+    private String heading;
+    private boolean headingWritten;
+    private long fileErrors;
+
+
+    /**
+     * Creates a text writer.
+     *
+     * @param out   the stream the log is written to
+     * @param title the heading of every file's log, or null to use the file's path
+     */
+    public TextReportWriter(OutputStream out, String title) {
+        super(out, DEFAULT_BUFFER_SIZE);
+        this.title = title;
+    }
+
+
+    @Override
+    public void beginFile(String file) {
+        heading = title != null ? title : String.valueOf(file);
+        headingWritten = false;
+        fileErrors = 0;
+    }
+
+
+    @Override
+    protected void writeError(ParseError error) {
+        writeHeading();
+        fileErrors++;
+
+        write(error.getKind().getMessage());
+        write(" at line ");
+        write(error.getLine());
+        write("\n\t");
+        write(error.getText());
+        write(NEWLINE);
+    }
+
+
+    @Override
+    public void endFile(boolean stopped) {
+        writeHeading();
+        if (fileErrors == 0) {
+            write("No errors found.");
+            write(NEWLINE);
+        }
+        if (stopped) {
+            write(ParserEngine.LIMIT_REACHED_MESSAGE);
+            write(NEWLINE);
+        }
+        endSection();
+    }
+
+
+    @Override
+    public void fileError(String message) {
+        // A named file keeps its heading so the reader knows which file failed
+        if (title == null && heading != null) writeHeading();
+
+        write("Error reading file: ");
+        write(String.valueOf(message));
+        write(NEWLINE);
+        endSection();
+    }
+
+
+    @Override
+    public void summary(int files, int failed) {
+        write("Checked ");
+        write(files);
+        write(files == 1 ? " file, " : " files, ");
+        write(failed);
+        write(" with errors.");
+        write(NEWLINE);
+    }
+
+
+    /**
+     * Writes the current file's heading if it has not been written yet.
+     */
+    private void writeHeading() {
+        if (headingWritten) return;
+
+        write("============== ");
+        write(heading);
+        write(" ==============");
+        write(NEWLINE);
+        write(NEWLINE); // Blank spacing on the console
+        headingWritten = true;
+    }
+
+
+    /**
+     * Ends a file's log, with a blank line between files of a batch.
+     */
+    private void endSection() {
+        if (title == null) write(NEWLINE);
+        flush();
+    }
+}
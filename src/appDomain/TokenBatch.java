@@ -0,0 +1,172 @@
+package appDomain;
+
+import java.lang.foreign.MemorySegment;
+import java.util.Arrays;
+
+/**
+ * TokenBatch.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * A run of tokens handed from the lexer stage of a pipelined parse to the
+ * validator stage. Each token is an opening tag, a closing tag or an error,
+ * stored as parallel primitive columns so a batch of thousands of tags is a
+ * handful of arrays. Batches are recycled, so once the columns have grown to
+ * the batch capacity the lexer allocates nothing per tag.
+ *
+ * Tag names are sent as ids from the lexer's {@link SymbolTable}. The bytes
+ * of a name are only copied into the batch the first time the name appears,
+ * so the validator can give it an id of its own. A closing tag's bytes are
+ * copied too, since they are needed if the tag turns out not to match;
+ * they are only decoded in that case.
+ */
+final class TokenBatch {
+    static final byte OPEN = 0;
+    static final byte CLOSE = 1;
+    static final byte ERROR = 2;
+
+    private static final int INITIAL_TEXT = 1 << 12;
+
+    final int capacity;
+
+    // The tokens, stored as parallel columns
+    final byte[] kinds;
+    final int[] names;       // Lexer name id, -1 for a closing tag never opened, or the error index
+    final int[] lines;
+    final int[] columns;
+    final long[] offsets;
+    final int[] textStarts;  // Closing tags: where the tag's bytes start in the text
+    final int[] textLengths;
+    int size;
+
+    // Names seen for the first time in this batch, in id order
+    int firstNewName;        // The lexer id of the first of them
+    int[] nameStarts = new int[16];
+    int[] nameLengths = new int[16];
+    int newNames;
+
+    // Copied bytes of new names and closing tags
+    private byte[] text = new byte[INITIAL_TEXT];
+    private MemorySegment textSegment = MemorySegment.ofArray(text);
+    private int textLength;
+
+    ParseError[] errors = new ParseError[4];
+    int errorCount;
+
+
+    /**
+     * Creates an empty batch.
+     *
+     * @param capacity the number of tokens the batch holds
+     */
+    TokenBatch(int capacity) {
+        this.capacity = capacity;
+        kinds = new byte[capacity];
+        names = new int[capacity];
+        lines = new int[capacity];
+        columns = new int[capacity];
+        offsets = new long[capacity];
+        textStarts = new int[capacity];
+        textLengths = new int[capacity];
+    }
+
+
+    /**
+     * Empties the batch for reuse. The first name it may define is {@code nextName}.
+     */
+    void clear(int nextName) {
+        size = 0;
+        newNames = 0;
+        firstNewName = nextName;
+        textLength = 0;
+        Arrays.fill(errors, 0, errorCount, null);
+        errorCount = 0;
+    }
+
+
+    /**
+     * Checks whether another token can be added.
+     */
+    boolean isFull() {
+        return size == capacity;
+    }
+
+
+    /**
+     * Adds an opening or closing tag. A closing tag's bytes, from '<' to '>', are copied.
+     */
+    void addTag(byte kind, int name, int line, int column, long offset, MemorySegment source, long tagStart, long tagEnd) {
+        kinds[size] = kind;
+        names[size] = name;
+        lines[size] = line;
+        columns[size] = column;
+        offsets[size] = offset;
+        if (kind == CLOSE) {
+            int length = (int) (tagEnd - tagStart + 1);
+            textStarts[size] = copy(source, tagStart, length);
+            textLengths[size] = length;
+        }
+        size++;
+    }
+
+
+    /**
+     * Adds an error that is already complete.
+     */
+    void addError(ParseError error) {
+        if (errorCount == errors.length) {
+            errors = Arrays.copyOf(errors, errorCount * 2);
+        }
+        kinds[size] = ERROR;
+        names[size] = errorCount;
+        errors[errorCount++] = error;
+        size++;
+    }
+
+
+    /**
+     * Records the bytes of a name the lexer has just given the next id.
+     */
+    void addName(MemorySegment source, long start, int length) {
+        if (newNames == nameStarts.length) {
+            nameStarts = Arrays.copyOf(nameStarts, newNames * 2);
+            nameLengths = Arrays.copyOf(nameLengths, newNames * 2);
+        }
+        nameStarts[newNames] = copy(source, start, length);
+        nameLengths[newNames] = length;
+        newNames++;
+    }
+
+
+    /**
+     * Returns the copied bytes that name and tag ranges refer to.
+     */
+    MemorySegment text() {
+        return textSegment;
+    }
+
+
+    /**
+     * Builds the text reported for a closing tag that did not match.
+     */
+    String closingTag(int token) {
+        int start = textStarts[token];
+        return XMLTokenizer.fullTag(textSegment, start, start + textLengths[token] - 1);
+    }
+
+
+    /**
+     * Copies bytes into the text, growing it when full, and returns where they start.
+     */
+    private int copy(MemorySegment source, long start, int length) {
+        if (textLength + length > text.length) {
+            text = Arrays.copyOf(text, Math.max(text.length * 2, textLength + length));
+            textSegment = MemorySegment.ofArray(text);
+        }
+        MemorySegment.copy(source, start, textSegment, textLength, length);
+        int at = textLength;
+        textLength += length;
+        return at;
+    }
+}
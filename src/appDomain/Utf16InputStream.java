@@ -0,0 +1,260 @@
+package appDomain;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+
+/**
+ * Utf16InputStream.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * Lets the byte-level {@link XMLTokenizer} check UTF-16 documents. Every
+ * delimiter the tokenizer looks for is ASCII, and it compares tag names as
+ * byte ranges, so UTF-8 input is never decoded except for the text of an
+ * error. UTF-16 input has a zero byte next to every ASCII character, so it is
+ * first read here in byte pairs, in the document's byte order, and each pair
+ * is written out as its UTF-8 bytes. An ASCII pair becomes one byte without
+ * any decoding; surrogate pairs become one four-byte sequence, and a broken
+ * pair becomes U+FFFD.
+ *
+ * {@link #decoding} looks at the first bytes of a stream the way the XML
+ * specification suggests: a byte order mark FE FF or FF FE, or a BOM-less
+ * {@code <?} with a zero byte before or after each character, marks UTF-16.
+ * Anything else is passed through untouched as UTF-8. The byte order mark
+ * itself is dropped. Offsets in the errors of a UTF-16 document count the
+ * UTF-8 bytes it was converted to.
+ */
+public class Utf16InputStream extends InputStream {
+    private static final int INPUT_SIZE = 1 << 15; // 32 KB of byte pairs per read
+    private static final int NO_UNIT = -1;
+    private static final int REPLACEMENT = 0xFFFD; // Stands in for a broken pair
+
+    private final InputStream source;
+    private final boolean bigEndian;
+    private final byte[] input = new byte[INPUT_SIZE];
+    private final byte[] output = new byte[INPUT_SIZE / 2 * 3 + 8]; // Three bytes per pair at most
+    private int inputPosition;
+    private int inputLimit;
+    private int outputPosition;
+    private int outputLimit;
+    private int highSurrogate = NO_UNIT; // A high surrogate waiting for its low half
+    private boolean eof;
+
+
+    /**
+     * Creates a stream that converts UTF-16 to UTF-8.
+     *
+     * @param source    the UTF-16 bytes, after any byte order mark
+     * @param bigEndian true if the high byte of each pair comes first
+     */
+    public Utf16InputStream(InputStream source, boolean bigEndian) {
+        if (source == null) throw new NullPointerException("Source cannot be null");
+        this.source = source;
+        this.bigEndian = bigEndian;
+    }
+
+
+    /**
+     * Returns a stream of the document's bytes in UTF-8. A UTF-16 document is
+     * converted by a {@code Utf16InputStream}; any other is returned as it is.
+     *
+     * @param in the document
+     * @return a stream of UTF-8 bytes that closes {@code in} when it is closed
+     * @throws IOException if the first bytes cannot be read
+     */
+    public static InputStream decoding(InputStream in) throws IOException {
+        PushbackInputStream pushback = new PushbackInputStream(in, 4);
+        byte[] head = new byte[4];
+        int length = pushback.readNBytes(head, 0, head.length);
+
+        int order = byteOrder(head, length);
+        if (order == 0) {
+            pushback.unread(head, 0, length);
+            return pushback;
+        }
+
+        int bom = hasByteOrderMark(head) ? 2 : 0;
+        pushback.unread(head, bom, length - bom);
+        return new Utf16InputStream(pushback, order > 0);
+    }
+
+
+    /**
+     * Checks whether a file starts like a UTF-16 document.
+     *
+     * @param filePath the path to the file
+     * @return true if the file must be converted before it is scanned
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isUtf16(String filePath) throws IOException {
+        try (InputStream in = new FileInputStream(filePath)) {
+            byte[] head = new byte[4];
+            return byteOrder(head, in.readNBytes(head, 0, head.length)) != 0;
+        }
+    }
+
+
+    /**
+     * Works out the byte order of a document from its first bytes.
+     *
+     * @return 1 for big-endian UTF-16, -1 for little-endian UTF-16, or 0 if it is not UTF-16
+     */
+    private static int byteOrder(byte[] head, int length) {
+        if (length < 2) return 0;
+
+        int b0 = head[0] & 0xFF;
+        int b1 = head[1] & 0xFF;
+        if (b0 == 0xFE && b1 == 0xFF) return 1;
+        if (b0 == 0xFF && b1 == 0xFE) {
+            // FF FE 00 00 is a UTF-32 byte order mark, which is not supported
+            return length == 4 && head[2] == 0 && head[3] == 0 ? 0 : -1;
+        }
+
+        if (length == 4) {
+            if (b0 == 0 && b1 == '<' && head[2] == 0 && head[3] == '?') return 1;
+            if (b0 == '<' && b1 == 0 && head[2] == '?' && head[3] == 0) return -1;
+        }
+        return 0;
+    }
+
+
+    /**
+     * Checks whether a UTF-16 document starts with a byte order mark.
+     */
+    private static boolean hasByteOrderMark(byte[] head) {
+        int b0 = head[0] & 0xFF;
+        int b1 = head[1] & 0xFF;
+        return (b0 == 0xFE && b1 == 0xFF) || (b0 == 0xFF && b1 == 0xFE);
+    }
+
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) return -1;
+        return output[outputPosition++] & 0xFF;
+    }
+
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (!fill()) return -1;
+
+        int count = Math.min(len, outputLimit - outputPosition);
+        System.arraycopy(output, outputPosition, b, off, count);
+        outputPosition += count;
+        return count;
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+
+    /**
+     * Makes sure there are converted bytes to read, reading more pairs if needed.
+     *
+     * @return false at the end of the source
+     */
+    private boolean fill() throws IOException {
+        while (outputPosition == outputLimit) {
+            if (eof) return false;
+
+            // Keep the odd byte of a pair split between reads
+            int carry = inputLimit - inputPosition;
+            System.arraycopy(input, inputPosition, input, 0, carry);
+            int read = source.read(input, carry, input.length - carry);
+            if (read == -1) {
+                eof = true;
+                inputLimit = carry;
+            } else {
+                inputLimit = carry + read;
+            }
+            inputPosition = 0;
+            outputPosition = 0;
+            outputLimit = 0;
+            convert();
+        }
+        return true;
+    }
+
+
+    /**
+     * Converts every whole pair in the input, and at the end of the source anything left over.
+     */
+    private void convert() {
+        for (; inputLimit - inputPosition >= 2; inputPosition += 2) {
+            int first = input[inputPosition] & 0xFF;
+            int second = input[inputPosition + 1] & 0xFF;
+            int unit = bigEndian ? first << 8 | second : second << 8 | first;
+
+            if (unit < 0x80 && highSurrogate == NO_UNIT) {
+                output[outputLimit++] = (byte) unit; // ASCII, including every delimiter
+            } else {
+                encode(unit);
+            }
+        }
+
+        if (eof) {
+            if (inputPosition < inputLimit) { // A lone byte
+                inputPosition = inputLimit;
+                encode(NO_UNIT);
+            }
+            if (highSurrogate != NO_UNIT) {
+                highSurrogate = NO_UNIT;
+                writeCodePoint(REPLACEMENT);
+            }
+        }
+    }
+
+
+    /**
+     * Writes one UTF-16 code unit, pairing surrogates. {@code NO_UNIT} stands for a broken unit.
+     */
+    private void encode(int unit) {
+        if (highSurrogate != NO_UNIT) {
+            int high = highSurrogate;
+            highSurrogate = NO_UNIT;
+            if (unit != NO_UNIT && Character.isLowSurrogate((char) unit)) {
+                writeCodePoint(Character.toCodePoint((char) high, (char) unit));
+                return;
+            }
+            writeCodePoint(REPLACEMENT);
+        }
+
+        if (unit == NO_UNIT || Character.isLowSurrogate((char) unit)) {
+            writeCodePoint(REPLACEMENT);
+        } else if (Character.isHighSurrogate((char) unit)) {
+            highSurrogate = unit;
+        } else {
+            writeCodePoint(unit);
+        }
+    }
+
+
+    /**
+     * Writes the UTF-8 bytes of a code point.
+     */
+    private void writeCodePoint(int codePoint) {
+        if (codePoint < 0x80) {
+            output[outputLimit++] = (byte) codePoint;
+        } else if (codePoint < 0x800) {
+            output[outputLimit++] = (byte) (0xC0 | codePoint >> 6);
+            output[outputLimit++] = (byte) (0x80 | codePoint & 0x3F);
+        } else if (codePoint < 0x10000) {
+            output[outputLimit++] = (byte) (0xE0 | codePoint >> 12);
+            output[outputLimit++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+            output[outputLimit++] = (byte) (0x80 | codePoint & 0x3F);
+        } else {
+            output[outputLimit++] = (byte) (0xF0 | codePoint >> 18);
+            output[outputLimit++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+            output[outputLimit++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+            output[outputLimit++] = (byte) (0x80 | codePoint & 0x3F);
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package appDomain;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+/**
+ * ValidationDaemon.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * A long-running validation service on a Unix domain socket. Starting a JVM
+ * and running the parser cold in the interpreter takes longer than checking a
+ * typical file, so a daemon pays both once and a thin client sends it work.
+ *
+ * Every connection carries one request and is served on its own virtual
+ * thread with an engine from a {@link ParserEnginePool}, so concurrent
+ * requests share the warmed-up engines. The request is one line of text:
+ * <ul>
+ * <li>{@code check <format> <error limit> <path>} checks a file the daemon can read.</li>
+ * <li>{@code stream <format> <error limit>} checks the bytes the client sends
+ *     after the line, up to the end of its output.</li>
+ * <li>{@code stats} describes the latency of the requests served so far,
+ *     followed by the {@link ParserMetrics} summary when metrics are enabled.</li>
+ * </ul>
+ * The response is the report, written as the check goes, followed by the exit
+ * status the command line would return on a last line of its own, without a
+ * newline; every report ends with one. The client sends a stream on a thread
+ * of its own while it reads the report, and the daemon reads a stream to its
+ * end even when the check stops early, so neither side waits on the other.
+ * The time from reading a request to writing its response is recorded in a
+ * {@link LatencyHistogram}.
+ */
+public class ValidationDaemon implements Closeable {
+    private static final int MAX_REQUEST_LINE = 8192; // Bytes, including a long path
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path socketPath;
+    private final ServerSocketChannel server;
+    private final ParserEnginePool engines = new ParserEnginePool();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+
+    /**
+     * Binds a daemon to a socket file. A socket file left behind by a daemon
+     * that is no longer running is replaced.
+     *
+     * @param socketPath the path of the socket file
+     * @throws IOException if another daemon is listening there or the socket cannot be bound
+     */
+    public ValidationDaemon(Path socketPath) throws IOException {
+        if (socketPath == null) throw new NullPointerException("Socket path cannot be null");
+
+        if (Files.exists(socketPath)) {
+            if (isListening(socketPath)) throw new IOException("A daemon is already listening on " + socketPath);
+            Files.delete(socketPath); // Nothing answers, so the file is stale
+        }
+
+        this.socketPath = socketPath;
+        this.server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            server.bind(UnixDomainSocketAddress.of(socketPath));
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Sets the depth and stack memory limits of every check, so one hostile
+     * document cannot exhaust the heap the other requests share.
+     *
+     * @param maxDepth         the greatest number of tags open at once, or 0 for no limit
+     * @param stackMemoryLimit the heap a tag stack may use before it spills to disk, and the tag names of a document, or 0 for no limit
+     */
+    public void setLimits(int maxDepth, long stackMemoryLimit) {
+        engines.setLimits(maxDepth, stackMemoryLimit);
+    }
+
+
+    /**
+     * Accepts connections and serves each on a virtual thread until the daemon is closed.
+     */
+    public void serve() {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (true) {
+                SocketChannel client = server.accept();
+                executor.submit(() -> handle(client));
+            }
+        } catch (ClosedChannelException e) {
+            // Closed by close()
+        } catch (IOException e) {
+            System.err.println("Daemon stopped: " + e.getMessage());
+        }
+    }
+
+
+    /**
+     * Stops accepting connections and removes the socket file.
+     * Requests already being served are finished.
+     *
+     * @throws IOException if the socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        server.close();
+        Files.deleteIfExists(socketPath);
+    }
+
+
+    /**
+     * Returns the latency of the requests served so far.
+     *
+     * @return the histogram of request latencies
+     */
+    public LatencyHistogram latencies() {
+        return latencies;
+    }
+
+
+    /**
+     * Sends one request to a daemon and copies the report to an output stream.
+     *
+     * @param socketPath the path of the daemon's socket file
+     * @param request    the request line, without the newline
+     * @param body       the bytes of a {@code stream} request, or null
+     * @param out        the stream the report is copied to
+     * @return the exit status the daemon returned
+     * @throws IOException if the daemon cannot be reached or its response is malformed
+     */
+    public static int request(Path socketPath, String request, InputStream body, OutputStream out) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socketPath))) {
+            OutputStream toDaemon = Channels.newOutputStream(channel);
+            toDaemon.write((request + "\n").getBytes(StandardCharsets.UTF_8));
+
+            // The report comes back while the body is still being sent, so the two cannot share a thread
+            FutureTask<Void> sending = new FutureTask<>(() -> {
+                if (body != null) {
+                    body.transferTo(toDaemon);
+                }
+                channel.shutdownOutput();
+                return null;
+            });
+            Thread.ofVirtual().start(sending);
+
+            String status = copyReport(Channels.newInputStream(channel), out);
+            out.flush();
+            try {
+                sending.get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException cause ? cause : new IOException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while sending to the daemon");
+            }
+
+            if (status.isEmpty()) throw new IOException("The daemon closed the connection without a response");
+            try {
+                return Integer.parseInt(status);
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed daemon response: " + status);
+            }
+        }
+    }
+
+
+    /**
+     * Copies a response to an output stream up to its last line, the exit status,
+     * which is held back until the response ends.
+     *
+     * @return the last line, which is empty if the response was
+     */
+    private static String copyReport(InputStream fromDaemon, OutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        ByteArrayOutputStream last = new ByteArrayOutputStream(); // Bytes after the last newline copied
+
+        for (int read = fromDaemon.read(buffer); read != -1; read = fromDaemon.read(buffer)) {
+            int newline = read - 1;
+            while (newline >= 0 && buffer[newline] != '\n') {
+                newline--;
+            }
+            if (newline >= 0) {
+                last.writeTo(out);
+                last.reset();
+                out.write(buffer, 0, newline + 1);
+            }
+            last.write(buffer, newline + 1, read - newline - 1);
+            if (last.size() > MAX_REQUEST_LINE) throw new IOException("Malformed daemon response");
+        }
+        return last.toString(StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Serves one connection: reads the request, checks the document and writes the response.
+     */
+    private void handle(SocketChannel client) {
+        try (client) {
+            InputStream in = new BufferedInputStream(Channels.newInputStream(client));
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(client), BUFFER_SIZE);
+            long start;
+            int status;
+            try {
+                String request = readLine(in);
+                start = System.nanoTime();
+                if (request == null) return; // A probe, or a client that sent nothing
+                status = serve(request, in, out);
+            } catch (RequestTooLongException e) {
+                start = System.nanoTime();
+                out.write(("Request line longer than " + MAX_REQUEST_LINE + " bytes\n").getBytes(StandardCharsets.UTF_8));
+                status = XMLParser.EXIT_USAGE;
+            }
+
+            // Read whatever the client is still sending: closing with unread input resets the connection
+            in.transferTo(OutputStream.nullOutputStream());
+            out.write(String.valueOf(status).getBytes(StandardCharsets.UTF_8));
+            out.flush();
+
+            latencies.record((System.nanoTime() - start) / 1000);
+        } catch (IOException e) {
+            // The client went away; there is nobody to report to
+        }
+    }
+
+
+    /**
+     * Runs one request and writes its report.
+     *
+     * @return the exit status of the request
+     */
+    private int serve(String request, InputStream in, OutputStream body) throws IOException {
+        String[] words = request.split(" ", 4);
+
+        if (words[0].equals("stats") && words.length == 1) {
+            String summary = latencies.summary() + "\n";
+            if (ParserMetrics.isEnabled()) {
+                summary += ParserMetrics.summary() + "\n";
+            }
+            body.write(summary.getBytes(StandardCharsets.UTF_8));
+            return XMLParser.EXIT_VALID;
+        }
+
+        boolean stream = words[0].equals("stream") && words.length == 3;
+        if (!stream && !(words[0].equals("check") && words.length == 4)) return usage(body, request);
+
+        ReportWriter report;
+        int errorLimit;
+        try {
+            errorLimit = Integer.parseInt(words[2]);
+            report = ReportWriter.create(words[1], body, false);
+        } catch (IllegalArgumentException e) {
+            return usage(body, request);
+        }
+        if (errorLimit < 0) return usage(body, request);
+
+        ParserEngine engine = engines.acquire();
+        try {
+            engine.setErrorLimit(errorLimit);
+            engine.setErrorSink(report);
+            report.beginFile(stream ? "<stdin>" : words[3]);
+
+            try {
+                if (stream) {
+                    engine.parse(in);
+                } else {
+                    engine.parseMappedFile(words[3]);
+                }
+            } catch (IOException e) {
+                report.fileError(e.getMessage());
+                report.close();
+                return XMLParser.EXIT_READ_ERROR;
+            }
+
+            engine.finish();
+            report.endFile(engine.isStopped());
+            report.close();
+
+            if (engine.isStopped()) return XMLParser.EXIT_LIMIT_REACHED;
+            return report.errorCount() == 0 ? XMLParser.EXIT_VALID : XMLParser.EXIT_INVALID;
+        } finally {
+            engines.release(engine);
+        }
+    }
+
+
+    /**
+     * Answers a request the daemon does not understand.
+     */
+    private static int usage(OutputStream body, String request) throws IOException {
+        body.write(("Unknown request: " + request + "\n").getBytes(StandardCharsets.UTF_8));
+        return XMLParser.EXIT_USAGE;
+    }
+
+
+    /**
+     * Checks whether something accepts connections on a socket file.
+     */
+    private static boolean isListening(Path socketPath) {
+        try {
+            SocketChannel.open(UnixDomainSocketAddress.of(socketPath)).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+
+    /**
+     * Reads one UTF-8 line, without its newline, byte by byte so no input after it is consumed.
+     *
+     * @return the line, or null if the stream ended first
+     * @throws RequestTooLongException if the line is longer than {@link #MAX_REQUEST_LINE} bytes
+     */
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        for (int b = in.read(); b != '\n'; b = in.read()) {
+            if (b == -1) return null;
+            if (line.size() == MAX_REQUEST_LINE) throw new RequestTooLongException();
+            line.write(b);
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Thrown when a request line does not fit in {@link #MAX_REQUEST_LINE} bytes.
+     */
+    private static final class RequestTooLongException extends IOException {
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -0,0 +1,77 @@
+package appDomain;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteOrder;
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * VectorByteScanner.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * A {@link ByteScanner} built on the incubating Vector API. Each step loads
+ * one vector of the preferred size, 32 bytes with AVX2 or 64 with AVX-512,
+ * and compares every lane with the bytes searched for. The comparisons are
+ * combined into a bitmask with one bit per byte, and the first match is the
+ * lowest set bit of the mask. Ranges shorter than a vector, and the tail of
+ * a range, are searched one byte at a time.
+ *
+ * Only loaded by {@link ByteScanner#INSTANCE}, and only when the JVM is started
+ * with {@code --add-modules jdk.incubator.vector}.
+ */
+final class VectorByteScanner extends ByteScanner {
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    private static final ByteOrder ORDER = ByteOrder.nativeOrder();
+
+
+    /**
+     * Creates the scanner. Fails with a {@code LinkageError} when the module is not present.
+     */
+    VectorByteScanner() {
+        if (LANES > Long.SIZE) throw new LinkageError("Vectors wider than 64 bytes are not supported");
+    }
+
+
+    @Override
+    public String name() {
+        return "vector " + SPECIES.vectorBitSize() + "-bit";
+    }
+
+
+    @Override
+    public long indexOf(MemorySegment source, byte b, long from, long limit) {
+        long i = from;
+        for (long end = limit - LANES; i <= end; i += LANES) {
+            long mask = ByteVector.fromMemorySegment(SPECIES, source, i, ORDER).eq(b).toLong();
+            if (mask != 0) return i + Long.numberOfTrailingZeros(mask);
+        }
+        return super.indexOf(source, b, i, limit);
+    }
+
+
+    @Override
+    public long indexOf(MemorySegment source, byte a, byte b, long from, long limit) {
+        long i = from;
+        for (long end = limit - LANES; i <= end; i += LANES) {
+            ByteVector v = ByteVector.fromMemorySegment(SPECIES, source, i, ORDER);
+            long mask = v.eq(a).or(v.eq(b)).toLong();
+            if (mask != 0) return i + Long.numberOfTrailingZeros(mask);
+        }
+        return super.indexOf(source, a, b, i, limit);
+    }
+
+
+    @Override
+    public long indexOf(MemorySegment source, byte a, byte b, byte c, byte d, long from, long limit) {
+        long i = from;
+        for (long end = limit - LANES; i <= end; i += LANES) {
+            ByteVector v = ByteVector.fromMemorySegment(SPECIES, source, i, ORDER);
+            long mask = v.eq(a).or(v.eq(b)).or(v.eq(c)).or(v.eq(d)).toLong();
+            if (mask != 0) return i + Long.numberOfTrailingZeros(mask);
+        }
+        return super.indexOf(source, a, b, c, d, i, limit);
+    }
+}
@@ -0,0 +1,284 @@
+package appDomain;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * WatchValidator.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * Keeps checking the {@code .xml} and {@code .xml.gz} files in a set of
+ * directories as they change, in one long-running JVM. The directories and
+ * every directory created under them are registered with a
+ * {@code WatchService}. Every file is checked once at the start, then again
+ * whenever it is created or modified.
+ *
+ * A file being written produces a burst of events, so a change is only
+ * checked once the file has had no event for the debounce time. A file
+ * whose size and modification time are the same as at its last check, as
+ * after an event for a change that was already checked, is not checked again.
+ *
+ * Files are checked one at a time on the watching thread with a single
+ * {@link ParserEngine} that is reset between files. The engine, its buffers
+ * and the code the JIT compiled for it stay alive for as long as the watch
+ * runs, so a file dropped into a watched directory is reported without any
+ * start-up or warm-up cost.
+ */
+public class WatchValidator implements Closeable {
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 10;
+
+    private final WatchService watcher;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    private final Map<Path, ResultCache.Stamp> checked = new HashMap<>(); // Stamp of every file's last check
+    private final TreeMap<Path, Long> pending = new TreeMap<>();         // Changed files and when they last changed
+    private final ParserEngine engine = new ParserEngine();
+    private final ReportWriter report;
+    private final long debounceNanos;
+
+
+    /**
+     * Creates a watch over directories with the default debounce time.
+     *
+     * @param roots      the directories to watch, including their subdirectories
+     * @param errorLimit the maximum number of errors reported per file, or 0 for no limit
+     * @param report     the report every check is written to
+     * @throws IOException if a directory cannot be watched
+     */
+    public WatchValidator(Path[] roots, int errorLimit, ReportWriter report) throws IOException {
+        this(roots, errorLimit, report, DEFAULT_DEBOUNCE_MILLIS);
+    }
+
+
+    /**
+     * Creates a watch over directories.
+     *
+     * @param roots          the directories to watch, including their subdirectories
+     * @param errorLimit     the maximum number of errors reported per file, or 0 for no limit
+     * @param report         the report every check is written to
+     * @param debounceMillis how long a file must go without events before it is checked
+     * @throws IOException if a directory cannot be watched
+     */
+    public WatchValidator(Path[] roots, int errorLimit, ReportWriter report, long debounceMillis) throws IOException {
+        if (report == null) throw new NullPointerException("Report cannot be null");
+        if (debounceMillis < 0) throw new IllegalArgumentException("Debounce time cannot be negative");
+
+        this.report = report;
+        this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+        engine.setErrorLimit(errorLimit);
+        engine.setErrorSink(report);
+
+        watcher = FileSystems.getDefault().newWatchService();
+        try {
+            for (Path root : roots) {
+                if (!Files.isDirectory(root)) throw new IOException("Not a directory: " + root);
+                register(root.normalize());
+            }
+        } catch (IOException e) {
+            watcher.close();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Sets the depth and stack memory limits applied to every check.
+     *
+     * @param maxDepth         the greatest number of tags open at once, or 0 for no limit
+     * @param stackMemoryLimit the heap the tag stack may use before it spills to disk, and the tag names of a document, or 0 for no limit
+     */
+    public void setLimits(int maxDepth, long stackMemoryLimit) {
+        engine.setMaxDepth(maxDepth);
+        engine.setStackMemoryLimit(stackMemoryLimit);
+    }
+
+
+    /**
+     * Checks every file in the watched directories, then checks files as they
+     * change until the watch is closed or the thread is interrupted.
+     *
+     * @return the number of files checked
+     */
+    public long run() {
+        long count = 0;
+        long now = System.nanoTime();
+
+        for (Path directory : directories.values().toArray(new Path[0])) {
+            scheduleAll(directory, now - debounceNanos);
+        }
+
+        try {
+            while (true) {
+                count += checkQuietFiles();
+
+                WatchKey key = pending.isEmpty() ? watcher.take() : watcher.poll(nextDeadline(), TimeUnit.NANOSECONDS);
+                while (key != null) {
+                    handle(key);
+                    key = watcher.poll();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Closed by another thread
+        }
+        return count;
+    }
+
+
+    /**
+     * Stops watching. A {@link #run()} in progress returns after its current file.
+     *
+     * @throws IOException if the watch service cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        watcher.close();
+    }
+
+
+    /**
+     * Records the events of one directory. A new directory is watched and its
+     * files are scheduled; a created or modified file is scheduled.
+     */
+    private void handle(WatchKey key) {
+        Path directory = directories.get(key);
+        long now = System.nanoTime();
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (directory == null) continue;
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Events were lost, so every file is compared with its last check
+                scheduleAll(directory, now);
+                continue;
+            }
+
+            Path path = directory.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                pending.remove(path);
+                checked.remove(path);
+            } else if (Files.isDirectory(path)) {
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                    try {
+                        register(path);
+                    } catch (IOException e) {
+                        report.beginFile(path.toString());
+                        report.fileError(e.getMessage());
+                    }
+                    scheduleAll(path, now);
+                }
+            } else if (BatchValidator.isXml(path.toString())) {
+                pending.put(path, now);
+            }
+        }
+
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+    }
+
+
+    /**
+     * Checks every pending file that has had no event for the debounce time.
+     *
+     * @return the number of files checked
+     */
+    private long checkQuietFiles() {
+        long now = System.nanoTime();
+        long count = 0;
+
+        for (Iterator<Map.Entry<Path, Long>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Path, Long> entry = it.next();
+            if (now - entry.getValue() < debounceNanos) continue;
+
+            it.remove();
+            if (check(entry.getKey())) count++;
+        }
+        return count;
+    }
+
+
+    /**
+     * Checks one file unless it is unchanged since its last check, and writes its report.
+     *
+     * @return false if the file was skipped
+     */
+    private boolean check(Path file) {
+        ResultCache.Stamp stamp;
+        try {
+            stamp = ResultCache.stamp(file);
+        } catch (IOException e) {
+            return false; // Deleted before it was checked
+        }
+
+        ResultCache.Stamp last = checked.get(file);
+        if (last != null && last.size == stamp.size && last.modified == stamp.modified) return false;
+        checked.put(file, stamp);
+
+        engine.reset();
+        report.beginFile(file.toString());
+        try {
+            engine.parseMappedFile(file.toString());
+        } catch (IOException e) {
+            report.fileError(e.getMessage());
+            return true;
+        }
+        engine.finish();
+        report.endFile(engine.isStopped());
+        return true;
+    }
+
+
+    /**
+     * Returns the time until the first pending file has been quiet for the debounce time.
+     */
+    private long nextDeadline() {
+        long first = Long.MAX_VALUE;
+        for (long changed : pending.values()) {
+            first = Math.min(first, changed);
+        }
+        return Math.max(0, first + debounceNanos - System.nanoTime());
+    }
+
+
+    /**
+     * Schedules every XML file under a directory as changed at a given time.
+     */
+    private void scheduleAll(Path directory, long changed) {
+        try (Stream<Path> walk = Files.walk(directory)) {
+            walk.filter(p -> Files.isRegularFile(p) && BatchValidator.isXml(p.toString()))
+                .forEach(p -> pending.put(p.normalize(), changed));
+        } catch (IOException | RuntimeException e) {
+            // The directory was removed while it was listed; its own events follow
+        }
+    }
+
+
+    /**
+     * Watches a directory and every directory under it.
+     */
+    private void register(Path root) throws IOException {
+        try (Stream<Path> walk = Files.walk(root)) {
+            for (Path directory : (Iterable<Path>) walk.filter(Files::isDirectory)::iterator) {
+                WatchKey key = directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                directories.put(key, directory);
+            }
+        }
+    }
+}
@@ -1,10 +1,8 @@
 package appDomain;
 
-import implementations.MyQueue;
-import implementations.MyStack;
-import utilities.EmptyQueueException;
 import java.io.*;
-import java.util.Scanner;
+import java.nio.file.Path;
+import java.util.Arrays;
 
 /**
  * XMLParser.java
@@ -19,190 +17,385 @@ import java.util.Scanner;
  * - Malformed tags (e.g., missing '<' or '>').
  * - Unclosed tags.
  * 
- * The class utilizes custom data structures:
+ * The parsing itself is done by a {@link ParserEngine}, which keeps its state
+ * per instance and uses the custom data structures:
  * - `MyStack` to manage opening tags.
  * - `MyQueue` to queue identified errors for sequential processing.
+ * This class only handles the command line. The errors are written by a
+ * {@link ReportWriter} as a text log, JSON Lines or SARIF.
  */
 public class XMLParser {
-    private static MyQueue<String[]> errorQueue = new MyQueue<>();
-    private static MyStack<String[]> tagStack = new MyStack<>();
-    private static int lineNum = 1; // Line number tracker for error reporting
+    public static final int EXIT_VALID = 0;         // No errors found
+    public static final int EXIT_INVALID = 1;       // Errors found
+    public static final int EXIT_LIMIT_REACHED = 2; // Stopped at the error, depth or memory limit
+    public static final int EXIT_USAGE = 3;         // Bad command-line arguments
+    public static final int EXIT_READ_ERROR = 4;    // A file could not be read
+
 
-    
     /**
-     * Reads the XML file line by line and processes each line for errors.
+     * Checks one file and writes its error report. Errors are written while the
+     * file is read, so memory use does not grow with the number of errors.
      *
-     * @param filePath The path to the XML file to be parsed.
-     * @throws IOException If the file cannot be found or accessed.
+     * @param filePath   The path to the XML file.
+     * @param mode       {@code --mapped}, {@code --parallel}, {@code --incremental}, {@code --pipelined}, or empty for the streaming path.
+     * @param errorLimit The number of errors after which to stop, or 0 for no limit.
+     * @param limits     The depth limit and the stack memory limit, 0 for none.
+     * @param report     The report the errors are written to.
+     * @return The exit status.
      */
-    private static void FileReader(String filePath) throws IOException {
-        Scanner scanner = null;
+    private static int check(String filePath, String mode, int errorLimit, long[] limits, ReportWriter report) {
+        ParserEngine engine = new ParserEngine();
+        engine.setErrorLimit(errorLimit);
+        engine.setMaxDepth((int) limits[0]);
+        engine.setStackMemoryLimit(limits[1]);
+        engine.setErrorSink(report);
+        report.beginFile(filePath);
 
         try {
-            scanner = new Scanner(new File(filePath));
-
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine();
-                processLine(line);
-                lineNum++;
-            }
-        } finally {
-            if (scanner != null) {
-                scanner.close();
+            if (mode.equals("--mapped")) {
+                engine.parseMappedFile(filePath);
+            } else if (mode.equals("--parallel")) {
+                engine.parseFileInParallel(filePath);
+            } else if (mode.equals("--incremental")) {
+                engine.parseFileIncrementally(filePath);
+            } else if (mode.equals("--pipelined")) {
+                engine.parseFilePipelined(filePath);
+            } else {
+                engine.parseFile(filePath);
             }
+        } catch (IOException e) {
+            report.fileError(e.getMessage());
+            report.close();
+            return EXIT_READ_ERROR;
         }
+
+        engine.finish();
+        report.endFile(engine.isStopped());
+        report.close();
+
+        if (engine.isStopped()) return EXIT_LIMIT_REACHED;
+        return report.errorCount() == 0 ? EXIT_VALID : EXIT_INVALID;
     }
 
-    
+
     /**
-     * Prints all errors detected during parsing. 
-     * If there are unmatched opening tags left in the stack, they are also logged as errors.
+     * Checks many files, directories and glob patterns in one run with a {@link BatchValidator}.
+     *
+     * @param paths        The files, directories and glob patterns to check.
+     * @param maxOpenFiles The maximum number of files checked at the same time.
+     * @param errorLimit   The number of errors after which to stop checking a file, or 0 for no limit.
+     * @param limits       The depth limit and the stack memory limit, 0 for none.
+     * @param cacheDir     The directory of the result cache, or null to parse every file.
+     * @param report       The report the errors are written to.
+     * @return The exit status: {@link #EXIT_INVALID} if any file had errors or could not be read.
      */
-    public static void displayErrors() {
-        boolean noErrors = true;
+    private static int batch(String[] paths, int maxOpenFiles, int errorLimit, long[] limits, String cacheDir, ReportWriter report) {
+        Path[] files;
+        ResultCache cache;
+        try {
+            files = BatchValidator.expand(paths);
+            cache = cacheDir == null ? null : ResultCache.open(Path.of(cacheDir));
+        } catch (IOException e) {
+            report.fileError(e.getMessage());
+            report.close();
+            return EXIT_READ_ERROR;
+        }
 
-        System.out.println("============== Error LOG ==============");
-        System.out.println(); // Blank spacing on the console
+        BatchValidator validator = new BatchValidator(maxOpenFiles, errorLimit);
+        validator.setLimits((int) limits[0], limits[1]);
+        validator.setCache(cache);
+        int failed = validator.validate(files, report);
+        report.close();
 
-        // Handle unmatched opening tags
-        while (!tagStack.isEmpty()) {
-            String[] tagInfo = tagStack.pop();
-            errorQueue.enqueue(new String[] { "<" + tagInfo[0] + ">", "Unclosed tag", tagInfo[1] });
+        if (cache != null) {
+            try {
+                cache.save();
+            } catch (IOException e) {
+                System.err.println("Could not save the result cache: " + e.getMessage());
+            }
         }
+        return failed == 0 ? EXIT_VALID : EXIT_INVALID;
+    }
 
-        // Print errors from the queue
-        try {
-            while (!errorQueue.isEmpty()) {
-                noErrors = false;
-                String[] error = errorQueue.dequeue();
-                System.out.println(String.format("%s at line %s\n\t%s", error[1], error[2], error[0]));
-            }
-        } catch (EmptyQueueException e) {
-            System.out.println("Error: Queue is empty while displaying errors.");
+
+    /**
+     * Checks the XML files in directories, then keeps checking them as they
+     * change with a {@link WatchValidator}, until the process is stopped.
+     *
+     * @param paths      The directories to watch.
+     * @param errorLimit The number of errors after which to stop checking a file, or 0 for no limit.
+     * @param limits     The depth limit and the stack memory limit, 0 for none.
+     * @param report     The report the errors are written to.
+     * @return The exit status: {@link #EXIT_READ_ERROR} if a directory cannot be watched.
+     */
+    private static int watch(String[] paths, int errorLimit, long[] limits, ReportWriter report) {
+        Path[] directories = new Path[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            directories[i] = Path.of(paths[i]);
         }
 
-        if (noErrors) {
-            System.out.println("No errors found.");
+        try (WatchValidator validator = new WatchValidator(directories, errorLimit, report)) {
+            validator.setLimits((int) limits[0], limits[1]);
+            validator.run();
+        } catch (IOException e) {
+            report.fileError(e.getMessage());
+            report.close();
+            return EXIT_READ_ERROR;
         }
+        report.close();
+        return EXIT_VALID;
     }
 
-    
+
     /**
-     * Processes a single line of XML for structural errors.
-     * Identifies and reports issues such as:
-     * - Malformed tags.
-     * - Unclosed tags.
-     * - Extra or unmatched closing tags.
+     * Serves validation requests on a Unix domain socket with a {@link ValidationDaemon}
+     * until the process is stopped.
      *
-     * @param line The XML line to process.
+     * @param socketPath The path of the socket file.
+     * @param limits     The depth limit and the stack memory limit applied to every request, 0 for none.
+     * @return The exit status: {@link #EXIT_READ_ERROR} if the socket cannot be bound.
      */
-    private static void processLine(String line) {
-        line = line.trim();
-
-        // Skip empty lines, declarations, or comments
-        if (line.isEmpty() || line.startsWith("<?xml") || line.startsWith("<!--")) {
-            return;
+    private static int daemon(String socketPath, long[] limits) {
+        ValidationDaemon daemon;
+        try {
+            daemon = new ValidationDaemon(Path.of(socketPath));
+            daemon.setLimits((int) limits[0], limits[1]);
+        } catch (IOException e) {
+            System.err.println("Could not start the daemon: " + e.getMessage());
+            return EXIT_READ_ERROR;
         }
 
-        int currentIndex = 0;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                daemon.close();
+            } catch (IOException e) {
+                // The socket file is replaced by the next daemon
+            }
+        }));
+        daemon.serve();
+        return EXIT_VALID;
+    }
 
-        while (currentIndex < line.length()) {
-            int openTagStart = line.indexOf('<', currentIndex);
-            int openTagEnd = line.indexOf('>', openTagStart);
 
-            if (openTagStart == -1 && openTagEnd != -1) {
-                errorQueue.enqueue(new String[] { line, "Invalid closing tag ", String.valueOf(lineNum) });
+    /**
+     * Sends one file, or standard input for the path {@code -}, to a running
+     * daemon and prints the report it returns.
+     *
+     * @param socketPath The path of the daemon's socket file.
+     * @param filePath   The file to check, {@code -} for standard input, or null for the daemon's latency.
+     * @param errorLimit The number of errors after which to stop, or 0 for no limit.
+     * @param format     The report format.
+     * @return The exit status the daemon returned, or {@link #EXIT_READ_ERROR} if it cannot be reached.
+     */
+    private static int client(String socketPath, String filePath, int errorLimit, String format) {
+        try {
+            if (filePath == null) {
+                return ValidationDaemon.request(Path.of(socketPath), "stats", null, System.out);
             }
-
-            int malformedEnd = line.indexOf('>', currentIndex);
-            if (openTagStart > malformedEnd && openTagStart != currentIndex) {
-                errorQueue.enqueue(new String[] { line, "Invalid opening tag", String.valueOf(lineNum) });
+            if (filePath.equals("-")) {
+                return ValidationDaemon.request(Path.of(socketPath), "stream " + format + " " + errorLimit, System.in, System.out);
             }
+            String request = "check " + format + " " + errorLimit + " " + Path.of(filePath).toAbsolutePath();
+            return ValidationDaemon.request(Path.of(socketPath), request, null, System.out);
+        } catch (IOException e) {
+            System.err.println("Could not reach the daemon: " + e.getMessage());
+            return EXIT_READ_ERROR;
+        }
+    }
 
-            if (openTagStart == -1) break;
 
-            if (openTagEnd == -1) {
-                errorQueue.enqueue(new String[] { line, "Missing closing tag '>'", String.valueOf(lineNum) });
-                return;
-            }
+    /**
+     * Prints the command-line usage.
+     *
+     * @return {@link #EXIT_USAGE}
+     */
+    private static int printUsage() {
+        System.out.println(); // Blank spacing on the console
+        System.out.println("Usage: java -jar XMLParser.jar [--mapped | --parallel | --incremental | --pipelined] [options] <file-path>");
+        System.out.println("       A .gz file is inflated while it is read; a .zip archive is checked entry by entry.");
+        System.out.println("       java -jar XMLParser.jar --batch [--max-open <n>] [--cache <dir>] [options] <file | directory | glob>...");
+        System.out.println("       java -jar XMLParser.jar --watch [options] <directory>...");
+        System.out.println("       java -jar XMLParser.jar --daemon <socket> [--max-depth <n>] [--max-stack-memory <size>] [--stats]");
+        System.out.println("       java -jar XMLParser.jar --client <socket> [options] <file-path | ->");
+        System.out.println("       java -jar XMLParser.jar --client <socket> --latency");
+        System.out.println("Options: --fail-fast | --max-errors <n>    stop after the first or the nth error");
+        System.out.println("         --format text | jsonl | sarif     report format (default text; sarif cannot be used with --watch)");
+        System.out.println("         --max-depth <n>                   stop at a tag nested deeper than n (not with --cache)");
+        System.out.println("         --max-stack-memory <size>         spill the tag stack to disk past size bytes, e.g. 64m,");
+        System.out.println("                                           and stop at a tag name past size bytes of names (not with --cache)");
+        System.out.println("         --stats                           print bytes, tags, errors and time per phase to stderr (not with --watch)");
+        System.out.println("Exit status: 0 no errors, 1 errors found, 2 stopped at a limit, 3 bad arguments, 4 read error.");
+        return EXIT_USAGE;
+    }
+
 
-            String tagContent = line.substring(openTagStart + 1, openTagEnd).trim();
-            String fullTag = line.substring(openTagStart, openTagEnd + 1).trim();
+    /**
+     * Reads the options, then checks the file or the batch of files.
+     *
+     * @param args Command-line arguments, as described for {@link #main}.
+     * @return The exit status.
+     */
+    static int run(String[] args) {
+        boolean batch = false;
+        boolean watch = false;
+        boolean latency = false;
+        boolean stats = false;
+        String daemonSocket = null;
+        String clientSocket = null;
+        String mode = "";
+        int maxOpenFiles = BatchValidator.DEFAULT_MAX_OPEN_FILES;
+        int errorLimit = 0;
+        long[] limits = new long[2]; // Depth limit and stack memory limit, 0 for none
+        String format = "text";
+        String cacheDir = null;
+        int first = 0; // Index of the first path argument
+
+        try {
+            for (; first < args.length && args[first].startsWith("--"); first++) {
+                String option = args[first];
 
-            if (tagContent.contains("=")) {
-                if (tagContent.endsWith("/")) {
-                    tagContent = tagContent.split(" ")[0] + "/";  
-                    fullTag = fullTag.split(" ")[1] + "/>";
+                if (option.equals("--batch")) {
+                    batch = true;
+                } else if (option.equals("--watch")) {
+                    watch = true;
+                } else if (option.equals("--daemon") && first + 1 < args.length) {
+                    daemonSocket = args[++first];
+                } else if (option.equals("--client") && first + 1 < args.length) {
+                    clientSocket = args[++first];
+                } else if (option.equals("--latency")) {
+                    latency = true;
+                } else if (option.equals("--stats")) {
+                    stats = true;
+                } else if ((option.equals("--mapped") || option.equals("--parallel") || option.equals("--incremental")
+                            || option.equals("--pipelined")) && mode.isEmpty()) {
+                    mode = option;
+                } else if (option.equals("--fail-fast")) {
+                    errorLimit = 1;
+                } else if (option.equals("--max-errors") && first + 1 < args.length) {
+                    errorLimit = Integer.parseInt(args[++first]);
+                    if (errorLimit <= 0) return printUsage();
+                } else if (option.equals("--max-depth") && first + 1 < args.length) {
+                    limits[0] = Integer.parseInt(args[++first]);
+                    if (limits[0] <= 0) return printUsage();
+                } else if (option.equals("--max-stack-memory") && first + 1 < args.length) {
+                    limits[1] = parseSize(args[++first]);
+                    if (limits[1] <= 0) return printUsage();
+                } else if (option.equals("--format") && first + 1 < args.length) {
+                    format = args[++first];
+                } else if (option.equals("--cache") && first + 1 < args.length) {
+                    cacheDir = args[++first];
+                } else if (option.equals("--max-open") && first + 1 < args.length) {
+                    maxOpenFiles = Integer.parseInt(args[++first]);
+                    if (maxOpenFiles <= 0) return printUsage();
                 } else {
-                    tagContent = tagContent.split(" ")[0];
-                    fullTag = fullTag.split(" ")[1] + ">";
+                    return printUsage();
                 }
             }
+        } catch (NumberFormatException e) {
+            return printUsage();
+        }
 
-            if (tagContent.endsWith("/")) {
-                // Self-closing tag, no stack operation required
-            } else if (tagContent.startsWith("/")) {
-                String endTag = tagContent.substring(1);
-
-                if (!tagStack.isEmpty() && tagStack.peek()[0].equals(endTag)) {
-                    tagStack.pop();
-                } else {
-                    if (tagStack.isEmpty()) {
-                        errorQueue.enqueue(new String[] { fullTag, "Unmatched closing tag", String.valueOf(lineNum) });
-                    } else {
-                        boolean matched = false;
-                        MyStack<String[]> tempStack = new MyStack<>();
-
-                        while (!tagStack.isEmpty()) {
-                            String[] topTag = tagStack.pop();
-                            if (topTag[0].equals(endTag)) {
-                                matched = true;
-                                break;
-                            }
-                            tempStack.push(topTag);
-                        }
-
-                        if (matched) {
-                            while (!tempStack.isEmpty()) {
-                                String[] tempTag = tempStack.pop();
-                                errorQueue.enqueue(new String[] { "<" + tempTag[0] + ">", "Error ", tempTag[1] });
-                            }
-                        } else {
-                            errorQueue.enqueue(new String[] { fullTag, "Error ", String.valueOf(lineNum) });
-                            while (!tempStack.isEmpty()) {
-                                tagStack.push(tempStack.pop());
-                            }
-                        }
-                    }
+        boolean singleFileOnly = maxOpenFiles != BatchValidator.DEFAULT_MAX_OPEN_FILES || cacheDir != null;
+        boolean service = daemonSocket != null || clientSocket != null;
+        if (cacheDir != null && (limits[0] != 0 || limits[1] != 0)) return printUsage(); // Cached results do not record these limits
+        if (service) {
+            if (batch || watch || !mode.isEmpty() || singleFileOnly || (daemonSocket != null && clientSocket != null)) {
+                return printUsage();
+            }
+            if (daemonSocket != null) {
+                if (stats) {
+                    ParserMetrics.setEnabled(true);
                 }
-            } else {
-                tagStack.push(new String[] { tagContent, String.valueOf(lineNum) });
+                return first == args.length && !latency ? daemon(daemonSocket, limits) : printUsage();
             }
+            if (limits[0] != 0 || limits[1] != 0 || stats) return printUsage(); // Set when the daemon starts
+            if (latency) {
+                return first == args.length ? client(clientSocket, null, errorLimit, format) : printUsage();
+            }
+            return args.length - first == 1 ? client(clientSocket, args[first], errorLimit, format) : printUsage();
+        }
+        if (latency) return printUsage();
+
+        // An archive holds several documents, so it is reported like a batch
+        if (!batch && !watch && mode.isEmpty() && args.length - first == 1 && BatchValidator.isZip(args[first])) {
+            batch = true;
+        }
+
+        if (watch ? batch || !mode.isEmpty() || singleFileOnly || first >= args.length || format.equals("sarif") || stats
+                  : batch ? !mode.isEmpty() || first >= args.length
+                  : args.length - first != 1 || singleFileOnly) {
+            return printUsage();
+        }
+
+        ReportWriter report;
+        try {
+            report = ReportWriter.create(format, System.out, batch || watch);
+        } catch (IllegalArgumentException e) {
+            return printUsage();
+        }
+        if (format.equals("text")) {
+            System.out.println(); // Blank spacing on the console
+        }
 
-            currentIndex = openTagEnd + 1;
+        if (watch) {
+            return watch(Arrays.copyOfRange(args, first, args.length), errorLimit, limits, report);
         }
+
+        if (stats) {
+            ParserMetrics.setEnabled(true);
+        }
+        int status = batch ? batch(Arrays.copyOfRange(args, first, args.length), maxOpenFiles, errorLimit, limits, cacheDir, report)
+                           : check(args[first], mode, errorLimit, limits, report);
+        if (stats) {
+            System.err.println("Stats: " + ParserMetrics.summary()); // Kept off standard output, which may be JSON
+        }
+        return status;
+    }
+
+
+    /**
+     * Reads a number of bytes, optionally ending in {@code k}, {@code m} or {@code g}.
+     *
+     * @param size The text of the size.
+     * @return The number of bytes.
+     * @throws NumberFormatException If the text is not a size.
+     */
+    private static long parseSize(String size) {
+        String lower = size.toLowerCase();
+        int shift = lower.endsWith("k") ? 10 : lower.endsWith("m") ? 20 : lower.endsWith("g") ? 30 : 0;
+        long value = Long.parseLong(shift == 0 ? lower : lower.substring(0, lower.length() - 1));
+        if (value > Long.MAX_VALUE >> shift) throw new NumberFormatException("Size too large: " + size);
+        return value << shift;
     }
 
     
     /**
      * Entry point for the XML parser program.
-     * Ensures correct arguments are provided, reads the XML file, and logs parsing errors.
+     * Ensures correct arguments are provided, reads the XML file, logs parsing errors,
+     * and exits with a status a script can test without reading the log.
      *
-     * @param args Command-line arguments. The first argument must be the XML file path.
+     * @param args Command-line arguments. The XML file path, optionally preceded by
+     *             {@code --mapped} to check the file through a memory mapping, or
+     *             {@code --parallel} to check it on all cores, or {@code --incremental}
+     *             to rescan only what changed since the checkpoints saved next to it by
+     *             the last incremental check, or {@code --pipelined} to read, tokenize
+     *             and validate it on three threads at once. With {@code --batch},
+     *             any number of files, directories and glob patterns, optionally
+     *             reusing unchanged results from a {@code --cache} directory. With
+     *             {@code --watch}, directories whose files are checked again whenever they change.
+     *             {@code --daemon socket} serves checks on a Unix domain socket, and
+     *             {@code --client socket} sends one file to it.
+     *             {@code --fail-fast} stops at the first error and
+     *             {@code --max-errors n} stops after n errors.
+     *             {@code --max-depth n} stops at a tag nested deeper than n, and
+     *             {@code --max-stack-memory size} moves the oldest open tags to a
+     *             temporary file once the tag stack uses that much heap, and
+     *             stops at a tag name past that much heap of names.
+     *             {@code --format} selects a text, JSON Lines or SARIF report.
+     *             {@code --stats} prints a {@link ParserMetrics} summary line to
+     *             standard error at the end, or adds it to the daemon's stats.
      */
     public static void main(String[] args) {
-        System.out.println(); // Blank spacing on the console
-        if (args.length != 1) {
-            System.out.println("Usage: java -jar XMLParser.jar <file-path>");
-            return;
-        }
-
-        String filePath = args[0];
-        try {
-            FileReader(filePath);
-            displayErrors();
-        } catch (IOException e) {
-            System.out.println("Error reading file: " + e.getMessage());
-        }
+        System.exit(run(args));
     }
 }
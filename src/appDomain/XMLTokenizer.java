@@ -0,0 +1,969 @@
+package appDomain;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * XMLTokenizer.java
+ *
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ *
+ * Class Description:
+ * A streaming replacement for reading the XML file through {@code Scanner}.
+ * Input is read into one large byte buffer that is reused for the whole file.
+ * Newlines, '<', '>' and '/' are located directly in the bytes, so no
+ * {@code String} is built for a line unless that line ends up in an error.
+ *
+ * Scanning works on a {@code MemorySegment}, so the same code checks the
+ * stream buffer and a memory-mapped file in place. Every tag found is handed
+ * to a {@link TagListener} as a range of the source. Delimiters are searched
+ * for by a {@link ByteScanner}, a vector at a time when the Vector API is present.
+ *
+ * The tokenizer is a resumable state machine. Its state (in text, inside a
+ * tag or a quoted attribute value, or inside a comment, CDATA section,
+ * processing instruction or declaration) is carried from one line to the
+ * next and across buffer refills, so all of these may span lines. Comment,
+ * CDATA and processing instruction bodies are skipped by searching for their
+ * terminator. While a tag is open, the lines it started on are kept in the
+ * buffer so it can still be reported.
+ *
+ * A line longer than the buffer, such as a whole minified document, is
+ * scanned in parts as it is read. Only the unfinished tag and the first few
+ * kilobytes of the line, which is all an error can quote, are kept, so memory
+ * does not grow with the length of a line. A single tag longer than
+ * {@link #MAX_TAG_SIZE} is refused with an {@code IOException}.
+ *
+ * A listener that needs no more input, for example because it has found as
+ * many errors as it was asked for, calls {@link #stop()}. The scan then ends
+ * after the current tag and no more of the stream is read.
+ */
+public class XMLTokenizer {
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16; // 64 KB read buffer
+    public static final int MAX_TAG_SIZE = 1 << 28;        // 256 MB: the longest tag the buffer grows to hold
+
+    private static final int LINE_HEAD_SIZE = 4 * (ParseError.MAX_TEXT_LENGTH + 1); // Bytes of a line an error can show
+    private static final int MIN_BUFFER_SIZE = 4 * LINE_HEAD_SIZE;
+    private static final int LOOKBACK = 2; // Bytes before the scan position a terminator check reads
+
+    private static final byte LT = '<';
+    private static final byte GT = '>';
+    private static final byte SLASH = '/';
+    private static final byte EQUALS = '=';
+    private static final byte NEWLINE = '\n';
+    private static final byte SPACE = ' ';
+    private static final byte QUOTE = '"';
+    private static final byte APOSTROPHE = '\'';
+    private static final byte DASH = '-';
+    private static final byte QUESTION_MARK = '?';
+    private static final byte BRACKET_OPEN = '[';
+    private static final byte BRACKET_CLOSE = ']';
+
+    private static final ByteScanner SCANNER = ByteScanner.INSTANCE; // Vector or scalar delimiter search
+
+    // Lexer states
+    private static final int TEXT = 0;
+    private static final int TAG = 1;
+    private static final int COMMENT = 2;
+    private static final int CDATA = 3;
+    private static final int PROCESSING_INSTRUCTION = 4;
+    private static final int DECLARATION = 5;
+
+    private final TagListener listener;
+    private final int bufferSize;
+    private byte[] buffer;               // Allocated on the first stream read
+    private MemorySegment bufferSegment; // View of the buffer used for scanning
+    private long bufferOffset;           // Stream position of the first byte in the buffer
+    private MemorySegment source;        // The segment of the last line scanned
+
+    // State carried from line to line. Positions are stream offsets.
+    private int state = TEXT;
+    private long markupStart;     // The '<' of the open tag, comment, CDATA section or declaration
+    private long markupLineStart; // The start of the line that '<' is on
+    private int markupLine;       // The line that '<' is on
+    private byte quote;           // The quote of an open attribute value, or 0
+    private int bracketDepth;     // Nesting of '[' inside a declaration
+    private boolean stopped;      // Set by stop(); cleared when a new document starts
+
+    // State of the line being scanned, which may be scanned in parts
+    private boolean strayPending;       // A '>' in text was seen, and no '<' after it yet
+    private boolean strayOpenReported;  // An invalid opening tag was reported on this line
+    private boolean strayCloseReported; // An invalid closing tag was reported on this line
+
+    // The starts of long lines, kept once the lines themselves are no longer in the buffer
+    private LineHead lineHead = new LineHead();   // The line being read
+    private LineHead markupHead = new LineHead(); // The line the open tag starts on, if an earlier one
+
+
+    /**
+     * Receives the tags and errors found by the tokenizer.
+     * Ranges refer to the source segment and are only valid during the call.
+     */
+    public interface TagListener {
+
+        /**
+         * Called for every tag that is not self-closing.
+         *
+         * @param source       the bytes being scanned
+         * @param lineStart    offset of the first byte of the line the tag starts on, which is
+         *                     before the start of the source if the line was longer than the buffer
+         * @param tagStart     offset of the tag's '<'
+         * @param tagEnd       offset of the tag's '>'
+         * @param contentStart start of the tag name, including the '/' of a closing tag
+         * @param contentEnd   end of the tag name (exclusive)
+         * @param lineNum      the line the tag starts on
+         */
+        void tag(MemorySegment source, long lineStart, long tagStart, long tagEnd, long contentStart, long contentEnd, int lineNum);
+
+
+        /**
+         * Called when a line contains a malformed tag.
+         *
+         * @param source    the bytes holding the offending line
+         * @param lineStart offset of the first byte of the line, which may be before the start of the source
+         * @param textStart start of the trimmed offending line
+         * @param textEnd   end of the trimmed offending line (exclusive)
+         * @param kind      the kind of error
+         * @param lineNum   the line number
+         */
+        void lineError(MemorySegment source, long lineStart, long textStart, long textEnd, ErrorKind kind, int lineNum);
+
+
+        /**
+         * Called when the input ends inside a comment, CDATA section,
+         * processing instruction or declaration. Its first line may no longer
+         * be in the source, so the position is given as a stream offset.
+         *
+         * @param kind    the kind of error
+         * @param text    the opening delimiter of the unclosed markup
+         * @param lineNum the line the markup starts on
+         * @param column  the column of the markup's '<'
+         * @param offset  the stream offset of the markup's '<'
+         */
+        void markupError(ErrorKind kind, String text, int lineNum, int column, long offset);
+    }
+
+
+    /**
+     * Creates a tokenizer with the default buffer size.
+     *
+     * @param listener the receiver of tag events
+     */
+    public XMLTokenizer(TagListener listener) {
+        this(listener, DEFAULT_BUFFER_SIZE);
+    }
+
+
+    /**
+     * Creates a tokenizer with a specific initial buffer size, of at least 16 KB.
+     * The buffer grows only if a single open tag does not fit in it.
+     *
+     * @param listener   the receiver of tag events
+     * @param bufferSize the initial buffer size in bytes
+     */
+    public XMLTokenizer(TagListener listener, int bufferSize) {
+        if (listener == null) throw new NullPointerException("Listener cannot be null");
+        if (bufferSize <= 0) throw new IllegalArgumentException("Buffer size must be positive");
+
+        this.listener = listener;
+        this.bufferSize = bufferSize;
+    }
+
+
+    /**
+     * Reads the whole stream and reports every tag to the listener, followed
+     * by any markup left open at the end. The stream is not closed by this method.
+     *
+     * @param in the UTF-8 encoded XML input
+     * @throws IOException if the stream cannot be read
+     */
+    public void tokenize(InputStream in) throws IOException {
+        if (buffer == null) {
+            buffer = new byte[Math.max(bufferSize, MIN_BUFFER_SIZE)];
+            bufferSegment = MemorySegment.ofArray(buffer);
+        }
+
+        state = TEXT;
+        stopped = false;
+        bufferOffset = 0;
+        resetLine();
+        int lineNum = 1;
+        long lineStart = 0; // Start of the current line in the buffer; negative once it has been dropped
+        int scanFrom = 0;   // Bytes of the current line before this index have been scanned
+        int searchFrom = 0; // Bytes before this index hold no newline
+        int limit = 0;      // End of valid data in the buffer
+        boolean eof = false;
+
+        while (true) {
+            int newline = (int) indexOf(bufferSegment, NEWLINE, searchFrom, limit);
+
+            if (newline != -1) {
+                scanLine(bufferSegment, lineStart, scanFrom, newline, newline, lineNum++);
+                endLine(newline);
+                lineStart = newline + 1;
+                scanFrom = newline + 1;
+                searchFrom = newline + 1;
+                if (stopped) return;
+                continue;
+            }
+
+            if (eof) {
+                if (lineStart < limit) {
+                    scanLine(bufferSegment, lineStart, scanFrom, limit, limit, lineNum);
+                }
+                finish(bufferSegment, limit);
+                return;
+            }
+
+            // Keep the partial line, and every line of an open tag, and make room for more input
+            long keep = keepFrom(lineStart, scanFrom);
+            if (keep <= 0 && limit == buffer.length) {
+                // The line fills the buffer: scan all of it that can be looked ahead from, and keep its start aside
+                int cut = limit - LINE_HEAD_SIZE;
+                if (scanFrom < cut) {
+                    scanLine(bufferSegment, lineStart, scanFrom, cut, limit, lineNum);
+                    scanFrom = cut;
+                    if (stopped) return;
+                }
+                keep = keepLineHeads(lineStart, scanFrom, limit);
+            }
+
+            if (keep > 0) {
+                System.arraycopy(buffer, (int) keep, buffer, 0, limit - (int) keep);
+                bufferOffset += keep;
+                limit -= (int) keep;
+                lineStart -= keep;
+                scanFrom -= (int) keep;
+            } else if (limit == buffer.length) {
+                if (buffer.length >= MAX_TAG_SIZE) {
+                    throw new IOException("The tag at line " + markupLine + " is longer than " + MAX_TAG_SIZE + " bytes");
+                }
+                byte[] larger = new byte[Math.min(buffer.length * 2, MAX_TAG_SIZE)];
+                System.arraycopy(buffer, 0, larger, 0, limit);
+                buffer = larger;
+                bufferSegment = MemorySegment.ofArray(buffer);
+            }
+            searchFrom = limit;
+
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read == -1) {
+                eof = true;
+            } else {
+                limit += read;
+            }
+        }
+    }
+
+
+    /**
+     * Returns the first byte of the buffer that must be kept: the start of the
+     * current line and of the line an open tag starts on, or, for a line whose
+     * start is kept aside, the bytes from the scan position and the open tag.
+     */
+    private long keepFrom(long lineStart, int scanFrom) {
+        long keep = lineHead.active ? scanFrom - LOOKBACK : lineStart;
+        if (state == TAG) {
+            long tagKeep = headOf(markupLineStart) != null ? markupStart : markupLineStart;
+            keep = Math.min(keep, tagKeep - bufferOffset);
+        }
+        return keep;
+    }
+
+
+    /**
+     * Keeps aside the starts of the current line and of the line the open tag
+     * starts on, so that the rest of those lines can leave the buffer.
+     *
+     * @return the first byte of the buffer that must still be kept
+     */
+    private long keepLineHeads(long lineStart, int scanFrom, int limit) {
+        if (!lineHead.active) {
+            lineHead.start(bufferOffset + lineStart);
+        }
+        lineHead.capture(buffer, bufferOffset, limit);
+
+        if (state == TAG && headOf(markupLineStart) == null) {
+            // The tag started on an earlier line, which is still in the buffer and ends in it
+            markupHead.start(markupLineStart);
+            markupHead.capture(buffer, bufferOffset, limit);
+        }
+        return keepFrom(lineStart, scanFrom);
+    }
+
+
+    /**
+     * Finishes the current line of the stream. A tag left open keeps the start
+     * of its line if it was kept aside; the start of the next line is in the buffer.
+     */
+    private void endLine(int newline) {
+        if (!lineHead.active) return;
+
+        lineHead.capture(buffer, bufferOffset, newline);
+        if (state == TAG && markupLineStart == lineHead.lineOffset) {
+            LineHead open = lineHead;
+            lineHead = markupHead;
+            markupHead = open;
+        }
+        lineHead.active = false;
+    }
+
+
+    /**
+     * Scans a whole segment in place, such as a memory-mapped file, and
+     * reports any markup left open at its end.
+     *
+     * @param source    the UTF-8 encoded XML bytes
+     * @param firstLine the line number of the first line in the segment
+     * @return the line number following the last line scanned
+     */
+    public int tokenize(MemorySegment source, int firstLine) {
+        state = TEXT;
+        stopped = false;
+        resetLine();
+        int lineNum = tokenize(source, 0, source.byteSize(), firstLine);
+        finish(source, source.byteSize());
+        return lineNum;
+    }
+
+
+    /**
+     * Scans every line of a range of a segment in place, continuing in the
+     * state the previous range ended in. The range should start at the
+     * beginning of a line; offsets passed to the listener are relative to the
+     * whole segment. Markup still open at the end of the range is not
+     * reported until {@link #finish()} is called.
+     *
+     * @param source    the UTF-8 encoded XML bytes
+     * @param from      the offset of the first line
+     * @param to        the end of the range (exclusive)
+     * @param firstLine the line number of the first line in the range
+     * @return the line number following the last line scanned
+     */
+    public int tokenize(MemorySegment source, long from, long to, int firstLine) {
+        bufferOffset = 0;
+        long lineStart = from;
+        int lineNum = firstLine;
+
+        while (lineStart < to && !stopped) {
+            long newline = indexOf(source, NEWLINE, lineStart, to);
+            long lineEnd = newline == -1 ? to : newline;
+
+            scanLine(source, lineStart, lineStart, lineEnd, lineEnd, lineNum++);
+            lineStart = lineEnd + 1;
+        }
+        return lineNum;
+    }
+
+
+    /**
+     * Reports markup left open after the last segment range scanned, and
+     * returns to the text state.
+     */
+    public void finish() {
+        finish(source, source == null ? 0 : source.byteSize());
+    }
+
+
+    /**
+     * Ends the scan in progress after the current tag. Nothing more is read or
+     * reported, including markup left open, until the next document is started.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+
+    /**
+     * Returns the position in the input stream of offset 0 of the segment
+     * passed to the listener. This is 0 when scanning a segment.
+     *
+     * @return the stream offset of the start of the read buffer
+     */
+    public long bufferOffset() {
+        return bufferOffset;
+    }
+
+
+    /**
+     * Checks whether the last range scanned ended inside a tag, comment,
+     * CDATA section, processing instruction or declaration.
+     *
+     * @return false if the tokenizer is in the text state
+     */
+    boolean isInMarkup() {
+        return state != TEXT;
+    }
+
+
+    /**
+     * Returns to the text state and clears a stop, before the ranges of a new
+     * document are scanned with {@link #tokenize(MemorySegment, long, long, int)}.
+     */
+    void restart() {
+        state = TEXT;
+        stopped = false;
+        resetLine();
+    }
+
+
+    /**
+     * Forgets the line left unfinished by the previous document.
+     */
+    private void resetLine() {
+        strayPending = false;
+        strayOpenReported = false;
+        strayCloseReported = false;
+        lineHead.active = false;
+        markupHead.active = false;
+    }
+
+
+    /**
+     * Continues from the state another tokenizer ended in, for scanning the
+     * range that follows it in the same segment.
+     *
+     * @param previous  the tokenizer that scanned the preceding range
+     * @param lineShift the amount added to its line numbers
+     */
+    void resume(XMLTokenizer previous, int lineShift) {
+        state = previous.state;
+        markupStart = previous.markupStart;
+        markupLineStart = previous.markupLineStart;
+        markupLine = previous.markupLine + lineShift;
+        quote = previous.quote;
+        bracketDepth = previous.bracketDepth;
+    }
+
+
+    /**
+     * Scans one line, or part of one, starting in the state the previous part ended in.
+     *
+     * @param source    the bytes being scanned
+     * @param lineStart offset of the first byte of the line, which may have left the source
+     * @param from      offset of the first byte to scan
+     * @param end       offset just past the last byte to scan
+     * @param lineLimit end of the bytes that may be looked at; the line ends at {@code end} if they are equal
+     * @param lineNum   the line number
+     */
+    private void scanLine(MemorySegment source, long lineStart, long from, long end, long lineLimit, int lineNum) {
+        this.source = source;
+        long i = from;
+
+        while (i < end && !stopped) {
+            if (state == TEXT) {
+                long next = indexOf(source, LT, GT, i, end);
+                if (next == -1) break;
+
+                if (source.get(ValueLayout.JAVA_BYTE, next) == LT) {
+                    // A '>' in text before a tag on the same line, reported once per line
+                    if (strayPending && !strayOpenReported) {
+                        lineError(source, lineStart, lineLimit, ErrorKind.INVALID_OPENING_TAG, lineNum);
+                        strayOpenReported = true;
+                    }
+                    strayPending = false;
+                    i = openMarkup(source, lineStart, next, lineLimit, lineNum);
+                    continue;
+                }
+
+                // Whether a '>' in text comes before a tag is known once the next '<' or the end of the line is
+                strayPending = true;
+                i = next + 1;
+            } else if (state == TAG) {
+                i = scanTag(source, i, end, lineLimit);
+            } else if (state == COMMENT) {
+                i = skipPast(source, i, end, Math.max(lineStart, markupStart - bufferOffset + 4), DASH, 2);
+            } else if (state == CDATA) {
+                i = skipPast(source, i, end, Math.max(lineStart, markupStart - bufferOffset + 9), BRACKET_CLOSE, 2);
+            } else if (state == PROCESSING_INSTRUCTION) {
+                i = skipPast(source, i, end, Math.max(lineStart, markupStart - bufferOffset + 2), QUESTION_MARK, 1);
+            } else {
+                i = skipDeclaration(source, i, end);
+            }
+        }
+
+        if (end != lineLimit || stopped) return;
+
+        // A '>' in text with no tag after it on the line, reported once per line
+        if (strayPending && !strayCloseReported) {
+            lineError(source, lineStart, lineLimit, ErrorKind.INVALID_CLOSING_TAG, lineNum);
+        }
+        strayPending = false;
+        strayOpenReported = false;
+        strayCloseReported = false;
+    }
+
+
+    /**
+     * Reports an error whose text is the line it is on, cut to as much as an
+     * error can show and then trimmed, so the text is the same however much
+     * of the line is held. A line whose start has left the buffer is reported
+     * from the part kept aside, with the buffer offset moved to that part for
+     * the length of the call.
+     *
+     * @param lineStart offset of the first byte of the line
+     * @param lineEnd   end of the line, or of the bytes read of it so far
+     */
+    private void lineError(MemorySegment source, long lineStart, long lineEnd, ErrorKind kind, int lineNum) {
+        LineHead head = headOf(bufferOffset + lineStart);
+        if (head == null) {
+            long textStart = skipSpace(source, lineStart, lineEnd);
+            long textEnd = trimSpace(source, textStart, Math.min(lineEnd, textStart + LINE_HEAD_SIZE));
+            listener.lineError(source, lineStart, textStart, textEnd, kind, lineNum);
+            return;
+        }
+
+        head.capture(buffer, bufferOffset, (int) lineEnd);
+        long offset = bufferOffset;
+        bufferOffset = head.textOffset;
+        try {
+            listener.lineError(head.segment, head.lineOffset - head.textOffset, 0, trimSpace(head.segment, 0, head.length), kind, lineNum);
+        } finally {
+            bufferOffset = offset;
+        }
+    }
+
+
+    /**
+     * Returns the start kept aside of a line, or null if the line's start is still in the buffer.
+     *
+     * @param lineOffset the stream offset of the line
+     */
+    private LineHead headOf(long lineOffset) {
+        if (lineHead.active && lineHead.lineOffset == lineOffset) return lineHead;
+        if (markupHead.active && markupHead.lineOffset == lineOffset) return markupHead;
+        return null;
+    }
+
+
+    /**
+     * Enters the state for the markup starting at a '<'.
+     *
+     * @return the offset to continue scanning from
+     */
+    private long openMarkup(MemorySegment source, long lineStart, long open, long lineLimit, int lineNum) {
+        markupStart = bufferOffset + open;
+        markupLineStart = bufferOffset + lineStart;
+        markupLine = lineNum;
+
+        if (startsWith(source, open, lineLimit, "<!--")) {
+            state = COMMENT;
+            return open + 4;
+        }
+        if (startsWith(source, open, lineLimit, "<![CDATA[")) {
+            state = CDATA;
+            return open + 9;
+        }
+        if (startsWith(source, open, lineLimit, "<?")) {
+            state = PROCESSING_INSTRUCTION;
+            return open + 2;
+        }
+        if (startsWith(source, open, lineLimit, "<!")) {
+            state = DECLARATION;
+            bracketDepth = 0;
+            return open + 2;
+        }
+
+        state = TAG;
+        quote = 0;
+        return open + 1;
+    }
+
+
+    /**
+     * Scans inside a tag for its closing '>'. A '>' inside a quoted attribute
+     * value does not end the tag. A '<' always does: it is not allowed in a
+     * tag or a value, so the open tag is reported as missing its '>' and the
+     * '<' starts the next markup.
+     *
+     * @param lineLimit end of the bytes of the line that may be looked at
+     * @return the offset to continue scanning from
+     */
+    private long scanTag(MemorySegment source, long from, long end, long lineLimit) {
+        long i = from;
+
+        while (i < end) {
+            if (quote != 0) {
+                long next = indexOf(source, quote, LT, i, end);
+                if (next == -1) return end;
+
+                if (source.get(ValueLayout.JAVA_BYTE, next) == LT) {
+                    missingBracket(source, lineLimit);
+                    return next;
+                }
+                quote = 0;
+                i = next + 1;
+                continue;
+            }
+
+            long next = indexOfTagDelimiter(source, i, end);
+            if (next == -1) return end;
+
+            byte b = source.get(ValueLayout.JAVA_BYTE, next);
+            if (b == GT) {
+                state = TEXT;
+                emitTag(source, markupLineStart - bufferOffset, markupStart - bufferOffset, next, markupLine);
+                return next + 1;
+            }
+            if (b == LT) {
+                missingBracket(source, lineLimit);
+                return next;
+            }
+            if (opensValue(source, next)) {
+                quote = b;
+            }
+            i = next + 1;
+        }
+        return end;
+    }
+
+
+    /**
+     * Skips the body of a comment, CDATA section or processing instruction,
+     * looking for its terminator: {@code count} copies of {@code b} followed by '>'.
+     * Terminators never span lines, and must not overlap the opening delimiter.
+     *
+     * @param bodyStart the first offset the terminator may start at
+     * @return the offset to continue scanning from
+     */
+    private long skipPast(MemorySegment source, long from, long end, long bodyStart, byte b, int count) {
+        for (long close = indexOf(source, GT, from, end); close != -1; close = indexOf(source, GT, close + 1, end)) {
+            if (close - count >= bodyStart && repeats(source, close - count, close, b)) {
+                state = TEXT;
+                return close + 1;
+            }
+        }
+        return end;
+    }
+
+
+    /**
+     * Skips a declaration such as {@code <!DOCTYPE ...>}, including a bracketed internal subset.
+     *
+     * @return the offset to continue scanning from
+     */
+    private long skipDeclaration(MemorySegment source, long from, long end) {
+        for (long i = from; i < end; i++) {
+            byte b = source.get(ValueLayout.JAVA_BYTE, i);
+
+            if (b == BRACKET_OPEN) {
+                bracketDepth++;
+            } else if (b == BRACKET_CLOSE && bracketDepth > 0) {
+                bracketDepth--;
+            } else if (b == GT && bracketDepth == 0) {
+                state = TEXT;
+                return i + 1;
+            }
+        }
+        return end;
+    }
+
+
+    /**
+     * Reports markup left open at the end of the input and returns to the text state.
+     *
+     * @param source the bytes last scanned
+     * @param limit  the end of the valid bytes in the source
+     */
+    private void finish(MemorySegment source, long limit) {
+        if (stopped) {
+            state = TEXT;
+            return;
+        }
+
+        int column = (int) (markupStart - markupLineStart + 1);
+
+        if (state == TAG) {
+            missingBracket(source, limit);
+        } else if (state == COMMENT) {
+            listener.markupError(ErrorKind.UNCLOSED_COMMENT, "<!--", markupLine, column, markupStart);
+        } else if (state == CDATA) {
+            listener.markupError(ErrorKind.UNCLOSED_CDATA, "<![CDATA[", markupLine, column, markupStart);
+        } else if (state == PROCESSING_INSTRUCTION) {
+            listener.markupError(ErrorKind.UNCLOSED_PROCESSING_INSTRUCTION, "<?", markupLine, column, markupStart);
+        } else if (state == DECLARATION) {
+            listener.markupError(ErrorKind.UNCLOSED_DECLARATION, "<!", markupLine, column, markupStart);
+        }
+        state = TEXT;
+    }
+
+
+    /**
+     * Reports the open tag as missing its '>', with the trimmed line it starts
+     * on as the text, and returns to the text state.
+     *
+     * @param limit the end of the valid bytes; the tag's line ends here if no newline comes first
+     */
+    private void missingBracket(MemorySegment source, long limit) {
+        long newline = indexOf(source, NEWLINE, markupStart - bufferOffset, limit);
+
+        state = TEXT;
+        lineError(source, markupLineStart - bufferOffset, newline == -1 ? limit : newline, ErrorKind.MISSING_CLOSING_BRACKET, markupLine);
+    }
+
+
+    /**
+     * Checks whether a quote inside the open tag starts an attribute value,
+     * meaning the last non-whitespace byte before it is '='.
+     */
+    private boolean opensValue(MemorySegment source, long quotePos) {
+        long tagStart = markupStart - bufferOffset;
+        long i = quotePos - 1;
+
+        while (i > tagStart && (source.get(ValueLayout.JAVA_BYTE, i) & 0xFF) <= SPACE) {
+            i--;
+        }
+        return i > tagStart && source.get(ValueLayout.JAVA_BYTE, i) == EQUALS;
+    }
+
+
+    /**
+     * Finds the tag name of the tag between {@code open} and {@code close}.
+     * Attributed tags are reduced to the word before the first whitespace.
+     * An '=' inside a quoted attribute value does not make a tag attributed.
+     *
+     * @param source    the bytes being scanned
+     * @param lineStart offset of the first byte of the line the tag starts on
+     * @param open      offset of the '<'
+     * @param close     offset of the '>'
+     * @param lineNum   the line the tag starts on
+     */
+    private void emitTag(MemorySegment source, long lineStart, long open, long close, int lineNum) {
+        long contentStart = open + 1;
+        long contentEnd = close;
+        contentStart = skipSpace(source, contentStart, contentEnd);
+        contentEnd = trimSpace(source, contentStart, contentEnd);
+
+        long nameEnd = indexOfSpace(source, contentStart, contentEnd);
+        if (nameEnd != -1 && source.get(ValueLayout.JAVA_BYTE, contentEnd - 1) != SLASH
+                && hasAttribute(source, contentStart, contentEnd)) {
+            contentEnd = nameEnd;
+        }
+
+        // Self-closing tag, no stack operation required
+        if (contentEnd > contentStart && source.get(ValueLayout.JAVA_BYTE, contentEnd - 1) == SLASH) {
+            return;
+        }
+
+        listener.tag(source, lineStart, open, close, contentStart, contentEnd, lineNum);
+    }
+
+
+    /**
+     * Checks whether a tag interior has an '=' outside quoted attribute values.
+     */
+    private static boolean hasAttribute(MemorySegment source, long from, long limit) {
+        while (true) {
+            long equals = indexOf(source, EQUALS, from, limit);
+            if (equals == -1) return false;
+
+            long quote = indexOfQuote(source, from, equals);
+            if (quote == -1) return true;
+
+            long quoteEnd = indexOf(source, source.get(ValueLayout.JAVA_BYTE, quote), quote + 1, limit);
+            from = quoteEnd == -1 ? quote + 1 : quoteEnd + 1;
+        }
+    }
+
+
+    /**
+     * Builds the text {@code processLine} reports for a tag. For attributed
+     * tags this is the second space-separated word followed by '>'.
+     *
+     * @param source   the bytes being scanned
+     * @param tagStart offset of the tag's '<'
+     * @param tagEnd   offset of the tag's '>'
+     * @return the tag text used in error messages
+     */
+    public static String fullTag(MemorySegment source, long tagStart, long tagEnd) {
+        if (indexOf(source, EQUALS, tagStart, tagEnd) == -1) {
+            return decode(source, tagStart, tagEnd + 1);
+        }
+
+        long tokenStart = indexOf(source, SPACE, tagStart, tagEnd);
+        if (tokenStart == -1) {
+            return decode(source, tagStart, tagEnd + 1);
+        }
+
+        long tokenEnd = indexOf(source, SPACE, tokenStart + 1, tagEnd + 1);
+        return decode(source, tokenStart + 1, tokenEnd == -1 ? tagEnd + 1 : tokenEnd) + ">";
+    }
+
+
+    /**
+     * Decodes a range of the source as UTF-8 text. A range too long to be
+     * shown in a {@link ParseError} is only decoded as far as it would be
+     * shown, so a huge line is never copied onto the heap in full.
+     *
+     * @param source the bytes being scanned
+     * @param from   the first offset
+     * @param to     the end offset (exclusive)
+     * @return the decoded text, possibly ending part way through a character
+     *         after the first {@link ParseError#MAX_TEXT_LENGTH} characters
+     */
+    public static String decode(MemorySegment source, long from, long to) {
+        // Every character takes at most 4 bytes, so this still decodes more than can be shown
+        to = Math.min(to, from + LINE_HEAD_SIZE);
+        byte[] bytes = source.asSlice(from, to - from).toArray(ValueLayout.JAVA_BYTE);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Finds the first occurrence of a byte in the source.
+     *
+     * @param source the bytes to search
+     * @param b      the byte to find
+     * @param from   the first offset to search
+     * @param limit  the offset to stop at (exclusive)
+     * @return the offset of the byte, or -1 if it is not present
+     */
+    static long indexOf(MemorySegment source, byte b, long from, long limit) {
+        return SCANNER.indexOf(source, b, from, limit);
+    }
+
+
+    /**
+     * Finds the first occurrence of either of two bytes in the source.
+     */
+    private static long indexOf(MemorySegment source, byte a, byte b, long from, long limit) {
+        return SCANNER.indexOf(source, a, b, from, limit);
+    }
+
+
+    /**
+     * Returns the offset of the first '>', '<', '"' or '\'' in a range, or -1.
+     */
+    private static long indexOfTagDelimiter(MemorySegment source, long from, long limit) {
+        return SCANNER.indexOf(source, GT, LT, QUOTE, APOSTROPHE, from, limit);
+    }
+
+
+    /**
+     * Checks whether every byte in a range equals {@code b}.
+     */
+    private static boolean repeats(MemorySegment source, long from, long to, byte b) {
+        for (long i = from; i < to; i++) {
+            if (source.get(ValueLayout.JAVA_BYTE, i) != b) return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * Returns the offset of the first '"' or '\'' in a range, or -1.
+     */
+    private static long indexOfQuote(MemorySegment source, long from, long limit) {
+        return SCANNER.indexOf(source, QUOTE, APOSTROPHE, from, limit);
+    }
+
+
+    /**
+     * Returns the offset of the first whitespace byte in a range, or -1.
+     */
+    private static long indexOfSpace(MemorySegment source, long from, long limit) {
+        for (long i = from; i < limit; i++) {
+            if ((source.get(ValueLayout.JAVA_BYTE, i) & 0xFF) <= SPACE) return i;
+        }
+        return -1;
+    }
+
+
+    /**
+     * Returns the offset of the first non-whitespace byte in a range, or {@code end}.
+     * Whitespace is what {@code String.trim} removes; bytes of multi-byte characters never are.
+     */
+    private static long skipSpace(MemorySegment source, long start, long end) {
+        for (long i = start; i < end; i++) {
+            if ((source.get(ValueLayout.JAVA_BYTE, i) & 0xFF) > SPACE) return i;
+        }
+        return end;
+    }
+
+
+    /**
+     * Returns the end of a range with trailing whitespace removed.
+     */
+    private static long trimSpace(MemorySegment source, long start, long end) {
+        long last = end - 1;
+        while (last >= start && (source.get(ValueLayout.JAVA_BYTE, last) & 0xFF) <= SPACE) {
+            last--;
+        }
+        return last + 1;
+    }
+
+
+    /**
+     * Checks whether the bytes at {@code start} begin with an ASCII prefix.
+     */
+    private static boolean startsWith(MemorySegment source, long start, long end, String prefix) {
+        if (end - start < prefix.length()) return false;
+
+        for (int i = 0; i < prefix.length(); i++) {
+            if (source.get(ValueLayout.JAVA_BYTE, start + i) != prefix.charAt(i)) return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * The start of a line, from its first non-whitespace byte to as much of it
+     * as an error can show, kept while the rest of the line passes through the buffer.
+     */
+    private static final class LineHead {
+        final byte[] bytes = new byte[LINE_HEAD_SIZE];
+        final MemorySegment segment = MemorySegment.ofArray(bytes);
+        boolean active;
+        long lineOffset; // Stream offset of the line
+        long textOffset; // Stream offset of the first byte kept, or -1 while the line is all whitespace
+        long next;       // Stream offset of the next byte of the line to look at
+        int length;
+        boolean complete; // Full, or the line has ended
+
+
+        /**
+         * Starts keeping a line whose first byte is still in the buffer.
+         */
+        void start(long lineOffset) {
+            active = true;
+            this.lineOffset = lineOffset;
+            textOffset = -1;
+            next = lineOffset;
+            length = 0;
+            complete = false;
+        }
+
+
+        /**
+         * Keeps the line's bytes from the buffer, up to an offset.
+         *
+         * @param buffer       the stream buffer
+         * @param bufferOffset the stream offset of the buffer's first byte
+         * @param limit        the end of the bytes to look at
+         */
+        void capture(byte[] buffer, long bufferOffset, int limit) {
+            if (!active || complete) return;
+
+            int i = (int) (next - bufferOffset);
+            for (; i < limit; i++) {
+                byte b = buffer[i];
+                if (b == NEWLINE) {
+                    complete = true;
+                    break;
+                }
+                if (textOffset == -1) {
+                    if ((b & 0xFF) <= SPACE) continue;
+                    textOffset = bufferOffset + i;
+                }
+                bytes[length++] = b;
+                if (length == bytes.length) {
+                    complete = true;
+                    i++;
+                    break;
+                }
+            }
+            next = bufferOffset + i;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package implementations;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A thread-safe, fixed-capacity FIFO queue for handing work from one thread
+ * to another. Elements are kept in a circular array, so adding and removing
+ * allocate nothing.
+ *
+ * The queue applies backpressure: a producer that gets ahead blocks in
+ * {@link #put} until the consumer has taken something. The elements are
+ * meant to be batches, such as filled buffers or groups of tokens, so the
+ * threads meet once per batch rather than once per item, and
+ * {@link #takeAll} lets the consumer take every waiting batch in one call.
+ *
+ * The producer calls {@link #close()} when it has nothing more to add; the
+ * consumer then drains what is left and receives null. The consumer may also
+ * close the queue to tell the producer to stop.
+ *
+ * @param <E> the type of elements stored in the queue
+ * @author Developed collaboratively by Team 3, CPRG304, Fall 2024.
+ */
+public class MyBoundedQueue<E> {
+    private final Object[] elements; // Circular array of queued elements
+    private int head;                // Index of the first element
+    private int size;                // The current number of elements in the queue
+    private boolean closed;          // Set when no more elements will be added
+
+
+    /**
+     * Initializes an empty queue.
+     *
+     * @param capacity the maximum number of elements held at once
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public MyBoundedQueue(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be positive");
+        this.elements = new Object[capacity];
+    }
+
+
+    /**
+     * Adds an element at the back, waiting while the queue is full.
+     *
+     * @param toAdd the element to add
+     * @return false if the queue was closed, in which case the element was not added
+     * @throws NullPointerException if the element is null
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public synchronized boolean put(E toAdd) throws InterruptedException {
+        if (toAdd == null) throw new NullPointerException("Cannot add null element to queue");
+
+        while (size == elements.length && !closed) {
+            wait();
+        }
+        if (closed) return false;
+
+        elements[(head + size) % elements.length] = toAdd;
+        size++;
+        notifyAll();
+        return true;
+    }
+
+
+    /**
+     * Removes the element at the front, waiting while the queue is empty and open.
+     *
+     * @return the element, or null if the queue is closed and empty
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public synchronized E take() throws InterruptedException {
+        while (size == 0 && !closed) {
+            wait();
+        }
+        if (size == 0) return null;
+
+        E front = removeFront();
+        notifyAll();
+        return front;
+    }
+
+
+    /**
+     * Removes every waiting element, up to the length of the array, waiting
+     * while the queue is empty and open.
+     *
+     * @param holder the array the elements are moved into, front first
+     * @return the number of elements moved, or 0 if the queue is closed and empty
+     * @throws InterruptedException if the thread is interrupted while waiting
+     * @throws IllegalArgumentException if the array is empty
+     */
+    public synchronized int takeAll(E[] holder) throws InterruptedException {
+        if (holder.length == 0) throw new IllegalArgumentException("Holder cannot be empty");
+
+        while (size == 0 && !closed) {
+            wait();
+        }
+
+        int count = Math.min(size, holder.length);
+        for (int i = 0; i < count; i++) {
+            holder[i] = removeFront();
+        }
+        if (count > 0) notifyAll();
+        return count;
+    }
+
+
+    /**
+     * Closes the queue. Waiting producers return false and waiting consumers
+     * receive the elements that are left, then null.
+     */
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+
+    /**
+     * Checks whether the queue has been closed.
+     *
+     * @return true if no more elements can be added
+     */
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+
+    /**
+     * Checks whether the queue holds as many elements as it can.
+     *
+     * @return true if a put would wait
+     */
+    public synchronized boolean isFull() {
+        return size == elements.length;
+    }
+
+
+    /**
+     * Checks whether the queue is empty.
+     *
+     * @return true if the queue holds no elements
+     */
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+
+    /**
+     * Returns the number of elements in the queue.
+     *
+     * @return the current size
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+
+    /**
+     * Returns the maximum number of elements the queue holds.
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return elements.length;
+    }
+
+
+    /**
+     * Removes the front element. The caller holds the lock and has checked the size.
+     */
+    @SuppressWarnings("unchecked")
+    private E removeFront() {
+        if (size == 0) throw new NoSuchElementException("Queue is empty");
+
+        E front = (E) elements[head];
+        elements[head] = null; // Let the element be collected
+        head = (head + 1) % elements.length;
+        size--;
+        return front;
+    }
+}
@@ -0,0 +1,173 @@
+package appDomain;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Class Description:
+ * Tests for batch validation: every file and archive entry is reported once,
+ * in order, under its own name, with the errors a single check finds.
+ */
+
+public class BatchValidatorTest
+{
+	// Attributes
+	private static final String VALID = "<doc><a>text</a></doc>\n";
+	private static final String INVALID = "<a><b></a>\n";
+
+	private Path directory;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		directory = Files.createTempDirectory( "batch" );
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		try ( Stream<Path> paths = Files.walk( directory ) )
+		{
+			for ( Path path : paths.sorted( ( a, b ) -> b.compareTo( a ) ).toArray( Path[]::new ) )
+			{
+				Files.deleteIfExists( path );
+			}
+		}
+		directory = null;
+	}
+
+	/**
+	 * Compresses a document with gzip.
+	 */
+	private static byte[] gzip( String text ) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try ( OutputStream out = new GZIPOutputStream( bytes ) )
+		{
+			out.write( text.getBytes( StandardCharsets.UTF_8 ) );
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Adds one entry to an archive being written.
+	 */
+	private static void entry( ZipOutputStream zip, String name, byte[] bytes ) throws IOException
+	{
+		zip.putNextEntry( new ZipEntry( name ) );
+		zip.write( bytes );
+		zip.closeEntry();
+	}
+
+	/**
+	 * Checks files with a batch validator and returns the text report.
+	 */
+	private static String report( BatchValidator validator, Path[] files, int[] failed )
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		TextReportWriter report = new TextReportWriter( out, null );
+		failed[0] = validator.validate( files, report );
+		report.close();
+		return out.toString( StandardCharsets.UTF_8 );
+	}
+
+	/**
+	 * Test method for {@link appDomain.BatchValidator#validate(java.nio.file.Path[], ReportWriter)}.
+	 * The {@code .xml.gz} entries of an archive are inflated before they are checked.
+	 */
+	@Test
+	public void testValidate_GzipEntriesOfArchive() throws IOException
+	{
+		Path archive = directory.resolve( "documents.zip" );
+		try ( ZipOutputStream zip = new ZipOutputStream( Files.newOutputStream( archive ) ) )
+		{
+			entry( zip, "bad.xml.gz", gzip( INVALID ) );
+			entry( zip, "good.xml.gz", gzip( VALID ) );
+			entry( zip, "plain.xml", INVALID.getBytes( StandardCharsets.UTF_8 ) );
+			entry( zip, "notes.txt", INVALID.getBytes( StandardCharsets.UTF_8 ) );
+		}
+
+		int[] failed = new int[1];
+		String text = report( new BatchValidator( 4 ), new Path[] { archive }, failed );
+
+		assertEquals( 2, failed[0] );
+		assertTrue( text.contains( "Checked 3 files, 2 with errors." ) );
+		assertFalse( text.contains( "notes.txt" ) );
+
+		int bad = text.indexOf( "documents.zip!/bad.xml.gz" );
+		int good = text.indexOf( "documents.zip!/good.xml.gz" );
+		int plain = text.indexOf( "documents.zip!/plain.xml" );
+		assertTrue( bad >= 0 && bad < good && good < plain );
+		assertTrue( text.substring( bad, good ).contains( "Error  at line 1" ) );
+		assertTrue( text.substring( good, plain ).contains( "No errors found." ) );
+	}
+
+	/**
+	 * Test method for {@link appDomain.BatchValidator#validate(java.nio.file.Path[], ReportWriter)}.
+	 * A {@code .xml.gz} file outside an archive finds the same errors as its entry.
+	 */
+	@Test
+	public void testValidate_GzipFile() throws IOException
+	{
+		Path file = directory.resolve( "bad.xml.gz" );
+		Files.write( file, gzip( INVALID ) );
+
+		int[] failed = new int[1];
+		String text = report( new BatchValidator( 4 ), new Path[] { file }, failed );
+
+		assertEquals( 1, failed[0] );
+		assertTrue( text.contains( "Error  at line 1" ) );
+	}
+
+	/**
+	 * Test method for {@link appDomain.BatchValidator#validate(java.nio.file.Path[], ReportWriter)}.
+	 * With many more files than may be open at once, every file is still
+	 * reported, in order, with its own result.
+	 */
+	@Test
+	public void testValidate_MoreFilesThanOpenLimit() throws IOException
+	{
+		Path[] files = new Path[40];
+		for ( int i = 0; i < files.length; i++ )
+		{
+			files[i] = directory.resolve( String.format( "file%02d.xml", i ) );
+			Files.writeString( files[i], i % 3 == 0 ? INVALID : VALID );
+		}
+		files[7] = directory.resolve( "missing.xml" );
+
+		for ( int maxOpenFiles : new int[] { 1, 3 } )
+		{
+			int[] failed = new int[1];
+			String text = report( new BatchValidator( maxOpenFiles ), files, failed );
+
+			assertEquals( 15, failed[0] );
+			assertTrue( text.contains( "Checked 40 files, 15 with errors." ) );
+			int previous = -1;
+			for ( Path file : files )
+			{
+				int at = text.indexOf( file.toString() );
+				assertTrue( at > previous );
+				previous = at;
+			}
+		}
+	}
+}
@@ -0,0 +1,326 @@
+package appDomain;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Class Description:
+ * Tests for the incremental validator: after each edit, a check resumed
+ * from the sidecar must report exactly what a full check of the file does.
+ * A small checkpoint interval puts many checkpoints in a small document, so
+ * the splice at a changed interval and the catch-up with the old run are
+ * both exercised.
+ */
+
+public class IncrementalValidatorTest
+{
+	// Attributes
+	private static final long INTERVAL = 256;
+	private static final String[] NAMES = { "a", "b", "item", "note", "record" };
+
+	private Path directory;
+	private Path file;
+	private Random random;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		directory = Files.createTempDirectory( "incremental" );
+		file = directory.resolve( "document.xml" );
+		random = new Random( 304 );
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		Files.deleteIfExists( IncrementalValidator.sidecarOf( file ) );
+		Files.deleteIfExists( file );
+		Files.deleteIfExists( directory );
+		directory = null;
+		file = null;
+		random = null;
+	}
+
+	/**
+	 * Describes an error in one line, so two runs can be compared.
+	 */
+	private static String describe( ParseError error )
+	{
+		return error.getKind() + " " + error.getLine() + ":" + error.getColumn() + " @" + error.getOffset() + " " + error.getText();
+	}
+
+	/**
+	 * Checks the file in full, without a sidecar.
+	 */
+	private ArrayList<String> fullCheck() throws IOException
+	{
+		ArrayList<String> errors = new ArrayList<String>();
+		new MappedXMLValidator( error -> errors.add( describe( error ) ) ).validate( file.toString() );
+		return errors;
+	}
+
+	/**
+	 * Checks the file incrementally, resuming from its sidecar if there is one.
+	 */
+	private ArrayList<String> incrementalCheck( IncrementalValidator[] used ) throws IOException
+	{
+		ArrayList<String> errors = new ArrayList<String>();
+		IncrementalValidator validator = new IncrementalValidator( error -> errors.add( describe( error ) ), INTERVAL );
+		validator.validate( file.toString() );
+		used[0] = validator;
+		return errors;
+	}
+
+	/**
+	 * Writes a document of records, with an error in about one record in ten.
+	 */
+	private String document( int records )
+	{
+		StringBuilder text = new StringBuilder( "<?xml version=\"1.0\"?>\n<doc>\n" );
+		for ( int i = 0; i < records; i++ )
+		{
+			text.append( record( i ) );
+		}
+		return text.append( "</doc>\n" ).toString();
+	}
+
+	/**
+	 * Writes one record of a few lines, which is sometimes broken.
+	 */
+	private String record( int i )
+	{
+		String name = NAMES[random.nextInt( NAMES.length )];
+		StringBuilder text = new StringBuilder();
+		text.append( "  <record id=\"" ).append( i ).append( "\">\n" );
+		text.append( "    <" ).append( name ).append( ">value ").append( i ).append( "</" ).append( name ).append( ">\n" );
+		switch ( random.nextInt( 10 ) )
+		{
+			case 0:
+				text.append( "    <open>never closed\n" );
+				break;
+			case 1:
+				text.append( "    </stray>\n" );
+				break;
+			case 2:
+				text.append( "    <!-- a comment\n    over two lines -->\n" );
+				break;
+			default:
+				text.append( "    <note>text</note>\n" );
+		}
+		return text.append( "  </record>\n" ).toString();
+	}
+
+	/**
+	 * Writes the file, checks it incrementally and in full, and compares the two.
+	 *
+	 * @return the validator of the incremental check
+	 */
+	private IncrementalValidator checkAfterWriting( String text ) throws IOException
+	{
+		Files.writeString( file, text );
+		IncrementalValidator[] used = new IncrementalValidator[1];
+		ArrayList<String> incremental = incrementalCheck( used );
+		assertEquals( fullCheck(), incremental );
+		return used[0];
+	}
+
+	/**
+	 * Replaces the text between two offsets.
+	 */
+	private static String splice( String text, int from, int to, String replacement )
+	{
+		return text.substring( 0, from ) + replacement + text.substring( to );
+	}
+
+	/**
+	 * Test method for {@link appDomain.IncrementalValidator#validate(String)}.
+	 * Without a sidecar, the whole file is scanned and the sidecar is written.
+	 */
+	@Test
+	public void testValidate_FirstRun() throws IOException
+	{
+		String text = document( 200 );
+		IncrementalValidator validator = checkAfterWriting( text );
+
+		assertEquals( text.length(), validator.getBytesScanned() );
+		assertTrue( Files.exists( IncrementalValidator.sidecarOf( file ) ) );
+	}
+
+	/**
+	 * Test method for {@link appDomain.IncrementalValidator#validate(String)}.
+	 * An unchanged file is reported from the sidecar without being scanned.
+	 */
+	@Test
+	public void testValidate_Unchanged() throws IOException
+	{
+		String text = document( 200 );
+		checkAfterWriting( text );
+		IncrementalValidator validator = checkAfterWriting( text );
+
+		assertEquals( 0, validator.getBytesScanned() );
+	}
+
+	/**
+	 * Test method for {@link appDomain.IncrementalValidator#validate(String)}.
+	 * A one-line edit in the middle is scanned around the change only.
+	 */
+	@Test
+	public void testValidate_EditInMiddle() throws IOException
+	{
+		String text = document( 400 );
+		checkAfterWriting( text );
+
+		int at = text.indexOf( "<record id=\"200\">" );
+		text = splice( text, at, at, "<extra>inserted</extra>\n  " );
+		IncrementalValidator validator = checkAfterWriting( text );
+
+		assertTrue( validator.getBytesScanned() < text.length() / 4 );
+	}
+
+	/**
+	 * Test method for {@link appDomain.IncrementalValidator#validate(String)}.
+	 * Inserting and removing lines moves the lines and offsets of the errors after the edit.
+	 */
+	@Test
+	public void testValidate_LinesInsertedAndRemoved() throws IOException
+	{
+		String text = document( 300 );
+		checkAfterWriting( text );
+
+		int at = text.indexOf( "<record id=\"100\">" );
+		text = splice( text, at, at, "\n\n\n</broken>\n\n  " );
+		checkAfterWriting( text );
+
+		int from = text.indexOf( "<record id=\"150\">" );
+		int to = text.indexOf( "<record id=\"160\">" );
+		text = splice( text, from, to, "" );
+		checkAfterWriting( text );
+	}
+
+	/**
+	 * Test method for {@link appDomain.IncrementalValidator#validate(String)}.
+	 * An edit that leaves a tag open changes the stack of every later
+	 * checkpoint, so the old run cannot be caught up with.
+	 */
+	@Test
+	public void testValidate_EditChangesStack() throws IOException
+	{
+		String text = document( 300 );
+		checkAfterWriting( text );
+
+		int at = text.indexOf( "<record id=\"50\">" );
+		text = splice( text, at, at, "<unclosed>\n  " );
+		checkAfterWriting( text );
+
+		at = text.indexOf( "<unclosed>" );
+		text = splice( text, at, at + "<unclosed>".length(), "" );
+		checkAfterWriting( text );
+	}
+
+	/**
+	 * Test method for {@link appDomain.IncrementalValidator#validate(String)}.
+	 * Edits at the very start and end, and an edit that opens a comment
+	 * across a checkpoint.
+	 */
+	@Test
+	public void testValidate_EditsAtEdges() throws IOException
+	{
+		String text = document( 200 );
+		checkAfterWriting( text );
+
+		text = splice( text, 0, 0, "<!-- leading comment -->\n" );
+		checkAfterWriting( text );
+
+		text = text + "<trailing>\n";
+		checkAfterWriting( text );
+
+		int at = text.indexOf( "<record id=\"80\">" );
+		text = splice( text, at, at, "<!-- opened here\n" );
+		checkAfterWriting( text );
+
+		text = text.substring( 0, text.length() / 2 );
+		checkAfterWriting( text );
+	}
+
+	/**
+	 * Test method for {@link appDomain.IncrementalValidator#validate(String)}.
+	 * Random insertions, deletions and replacements, each followed by an
+	 * incremental check that must match a full one.
+	 */
+	@Test
+	public void testValidate_RandomEdits() throws IOException
+	{
+		String[] snippets = { "<a>", "</a>", "<b>x</b>", "</record>", "<record>\n", "\n", "<!--", "-->", "text\n",
+				"<item id=\">\">", "<![CDATA[ <a> ]]>", "<note/>", "<", ">" };
+		String text = document( 300 );
+		checkAfterWriting( text );
+
+		for ( int edit = 0; edit < 60; edit++ )
+		{
+			int from = random.nextInt( text.length() + 1 );
+			int to = Math.min( text.length(), from + random.nextInt( 3 ) * random.nextInt( 40 ) );
+			String replacement = random.nextInt( 3 ) == 0 ? "" : snippets[random.nextInt( snippets.length )];
+			text = splice( text, from, to, replacement );
+			checkAfterWriting( text );
+		}
+	}
+
+	/**
+	 * Test method for {@link appDomain.IncrementalValidator#setErrorLimit(int)}.
+	 * A check stopped at the error limit does not write a sidecar.
+	 */
+	@Test
+	public void testValidate_ErrorLimit() throws IOException
+	{
+		Files.writeString( file, document( 200 ) );
+		ArrayList<String> errors = new ArrayList<String>();
+		IncrementalValidator validator = new IncrementalValidator( error -> errors.add( describe( error ) ), INTERVAL );
+		validator.setErrorLimit( 2 );
+		validator.validate( file.toString() );
+
+		assertTrue( validator.isStopped() );
+		assertEquals( fullCheck().subList( 0, 2 ), errors );
+		assertFalse( Files.exists( IncrementalValidator.sidecarOf( file ) ) );
+	}
+
+	/**
+	 * Test method for {@link appDomain.IncrementalValidator#validate(String)}.
+	 * A sidecar that cannot be written leaves the result of the check as it is.
+	 */
+	@Test
+	public void testValidate_UnwritableSidecar() throws IOException
+	{
+		Path sidecar = IncrementalValidator.sidecarOf( file );
+		Path blocker = sidecar.resolve( "blocker" );
+		Files.createDirectory( sidecar );
+		Files.writeString( blocker, "" );
+		try
+		{
+			checkAfterWriting( document( 200 ) );
+			assertTrue( Files.isDirectory( sidecar ) );
+			try ( Stream<Path> left = Files.list( directory ) )
+			{
+				assertEquals( 2, left.count() );
+			}
+		}
+		finally
+		{
+			Files.deleteIfExists( blocker );
+		}
+	}
+}
@@ -0,0 +1,189 @@
+package appDomain;
+import static org.junit.Assert.*;
+
+import implementations.MyQueue;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Class Description:
+ * Tests for the depth and memory limits of the parser engine, which keep a
+ * hostile document from exhausting the heap.
+ */
+
+public class ParserEngineLimitsTest
+{
+	// Attributes
+	private ParserEngine engine;
+	private Path file;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		engine = new ParserEngine();
+		file = null;
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		engine = null;
+		if ( file != null )
+		{
+			Files.deleteIfExists( file );
+		}
+	}
+
+	/**
+	 * Writes a document of tags nested one in another, each with a name of its own.
+	 */
+	private static String distinctNames( int count )
+	{
+		StringBuilder document = new StringBuilder();
+		for ( int i = 0; i < count; i++ )
+		{
+			document.append( "<t" ).append( i ).append( ">\n" );
+		}
+		return document.toString();
+	}
+
+	/**
+	 * Parses a document from memory and returns its errors.
+	 */
+	private MyQueue<ParseError> parse( String document ) throws IOException
+	{
+		engine.reset();
+		engine.parse( new ByteArrayInputStream( document.getBytes( StandardCharsets.UTF_8 ) ) );
+		engine.finish();
+		return engine.errors();
+	}
+
+	/**
+	 * Test method for {@link appDomain.ParserEngine#setStackMemoryLimit(long)}.
+	 * A document with more distinct names than the limit holds stops at the
+	 * first name past it, with one error.
+	 */
+	@Test
+	public void testStackMemoryLimit_DistinctNamesStop() throws IOException
+	{
+		engine.setStackMemoryLimit( 64 * 1024 );
+		MyQueue<ParseError> errors = parse( distinctNames( 100000 ) );
+
+		assertTrue( engine.isStopped() );
+		assertEquals( 1, errors.size() );
+		ParseError error = errors.dequeue();
+		assertEquals( ErrorKind.TOO_MANY_NAMES, error.getKind() );
+		assertTrue( error.getLine() > 1000 );
+		assertTrue( error.getLine() < 64 * 1024 / SymbolTable.BYTES_PER_NAME );
+		assertEquals( "<t" + ( error.getLine() - 1 ) + ">", error.getText() );
+	}
+
+	/**
+	 * Test method for {@link appDomain.ParserEngine#setStackMemoryLimit(long)}.
+	 * Without a limit every name is kept, and the tags are reported unclosed.
+	 */
+	@Test
+	public void testStackMemoryLimit_NoLimit() throws IOException
+	{
+		MyQueue<ParseError> errors = parse( distinctNames( 5000 ) );
+
+		assertFalse( engine.isStopped() );
+		assertEquals( 5000, errors.size() );
+		assertEquals( ErrorKind.UNCLOSED_TAG, errors.dequeue().getKind() );
+	}
+
+	/**
+	 * Test method for {@link appDomain.ParserEngine#setStackMemoryLimit(long)}.
+	 * A deep document that repeats a few names is checked in full: its tag
+	 * stack spills to disk, but its names fit.
+	 */
+	@Test
+	public void testStackMemoryLimit_RepeatedNamesFit() throws IOException
+	{
+		StringBuilder document = new StringBuilder();
+		for ( int i = 0; i < 100000; i++ )
+		{
+			document.append( "<t" ).append( i % 10 ).append( ">" );
+		}
+		for ( int i = 100000 - 1; i >= 0; i-- )
+		{
+			document.append( "</t" ).append( i % 10 ).append( ">" );
+		}
+
+		engine.setStackMemoryLimit( 64 * 1024 );
+		MyQueue<ParseError> errors = parse( document.toString() );
+
+		assertFalse( engine.isStopped() );
+		assertTrue( errors.isEmpty() );
+	}
+
+	/**
+	 * Test method for {@link appDomain.ParserEngine#reset()}.
+	 * A pooled engine checks a small document in full after one that reached the limit.
+	 */
+	@Test
+	public void testStackMemoryLimit_ResetAfterLimit() throws IOException
+	{
+		engine.setStackMemoryLimit( 64 * 1024 );
+		parse( distinctNames( 100000 ) );
+		assertTrue( engine.isStopped() );
+
+		MyQueue<ParseError> errors = parse( "<a><b></b></a>" );
+		assertFalse( engine.isStopped() );
+		assertTrue( errors.isEmpty() );
+	}
+
+	/**
+	 * Test method for {@link appDomain.ParserEngine#parseFilePipelined(String)}.
+	 * The pipelined parse, whose lexer adds names ahead of their tags, stops
+	 * at the same tag as the streaming parse.
+	 */
+	@Test
+	public void testStackMemoryLimit_PipelinedStopsAtSameTag() throws IOException
+	{
+		file = Files.createTempFile( "limits", ".xml" );
+		Files.writeString( file, distinctNames( 100000 ) );
+		engine.setStackMemoryLimit( 64 * 1024 );
+
+		engine.parseFile( file.toString() );
+		engine.finish();
+		ParseError streamed = engine.errors().dequeue();
+
+		engine.reset();
+		engine.parseFilePipelined( file.toString() );
+		engine.finish();
+		assertTrue( engine.isStopped() );
+		ParseError pipelined = engine.errors().dequeue();
+
+		assertEquals( ErrorKind.TOO_MANY_NAMES, pipelined.getKind() );
+		assertEquals( streamed.getLine(), pipelined.getLine() );
+		assertEquals( streamed.getOffset(), pipelined.getOffset() );
+	}
+
+	/**
+	 * Test method for {@link appDomain.ParserEngine#setMaxDepth(int)}.
+	 */
+	@Test
+	public void testMaxDepth_Stop() throws IOException
+	{
+		engine.setMaxDepth( 3 );
+		MyQueue<ParseError> errors = parse( "<a><b><c><d></d></c></b></a>" );
+
+		assertTrue( engine.isStopped() );
+		assertEquals( 1, errors.size() );
+		assertEquals( ErrorKind.TOO_DEEP, errors.dequeue().getKind() );
+	}
+}
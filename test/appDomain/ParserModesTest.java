@@ -0,0 +1,259 @@
+package appDomain;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import implementations.MyQueue;
+
+/**
+ * Class Description:
+ * Tests that every way of reading a document reports what the streaming
+ * parse reports: the mapped scan, the parallel scan split into many small
+ * chunks, the pipelined parse, and UTF-16 input in either byte order, with
+ * and without a byte order mark. The documents put markup across chunk and
+ * buffer boundaries, surrogate pairs across UTF-16 reads, and text after
+ * the last tag of a line and after the root.
+ */
+
+public class ParserModesTest
+{
+	// Attributes
+	private static final String[] PIECES = { "<a>", "</a>", "<b x='1'>", "</b>", " > ", "text", "<c", "<!-- c > -->",
+			"<![CDATA[ <x> ]]>", "<?pi ?>", "é€𝄞", "<d y=\">\">", "</d>", "<e/>", ">", "<", "<𝄞n>", "</𝄞n>",
+			"<!--\n<a>\n-->", "<![CDATA[\n</a>\n]]>", "<f\n g='1'\n>", "</f>", "<?pi\n?>", "\n", "\n", "\n", " tail ", "\t" };
+	private static final long[] CHUNK_SIZES = { 1, 17, 64, 1000 };
+
+	private Path directory;
+	private Random random;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		directory = Files.createTempDirectory( "modes" );
+		random = new Random( 304 );
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		try ( Stream<Path> paths = Files.list( directory ) )
+		{
+			for ( Path path : paths.toArray( Path[]::new ) )
+			{
+				Files.deleteIfExists( path );
+			}
+		}
+		Files.deleteIfExists( directory );
+		directory = null;
+		random = null;
+	}
+
+	/**
+	 * Describes an error in one line, so two runs can be compared.
+	 */
+	private static String describe( ParseError error )
+	{
+		return error.getKind() + " " + error.getLine() + ":" + error.getColumn() + " @" + error.getOffset() + " " + error.getText();
+	}
+
+	/**
+	 * Describes the errors in a queue, in order.
+	 */
+	private static ArrayList<String> describe( MyQueue<ParseError> errors )
+	{
+		ArrayList<String> lines = new ArrayList<String>();
+		while ( !errors.isEmpty() )
+		{
+			lines.add( describe( errors.dequeue() ) );
+		}
+		return lines;
+	}
+
+	/**
+	 * Reading modes of the engine.
+	 */
+	private interface Mode
+	{
+		void parse( ParserEngine engine, String filePath ) throws IOException;
+	}
+
+	/**
+	 * Checks a file with a new engine in one mode and returns its errors.
+	 */
+	private static ArrayList<String> check( Mode mode, Path file ) throws IOException
+	{
+		ParserEngine engine = new ParserEngine();
+		mode.parse( engine, file.toString() );
+		engine.finish();
+		MyQueue<ParseError> errors = new MyQueue<ParseError>();
+		engine.drainErrorsTo( errors );
+		return describe( errors );
+	}
+
+	/**
+	 * Checks a file split into chunks of about the given size.
+	 */
+	private static ArrayList<String> checkInChunks( Path file, long chunkSize ) throws IOException
+	{
+		MyQueue<ParseError> errors = new MyQueue<ParseError>();
+		new ChunkedXMLValidator( errors, chunkSize ).validate( file.toString() );
+		return describe( errors );
+	}
+
+	/**
+	 * Writes a document of random pieces, which ends with text after the root.
+	 */
+	private String document( int size )
+	{
+		StringBuilder text = new StringBuilder( "<?xml version=\"1.0\"?>\n<doc>\n" );
+		while ( text.length() < size )
+		{
+			text.append( PIECES[random.nextInt( PIECES.length )] );
+		}
+		return text.append( "\n</doc> text after the root\n" ).toString();
+	}
+
+	/**
+	 * Writes text to a file in an encoding, with a byte order mark if one is given.
+	 */
+	private Path write( String name, String text, Charset charset, byte[] byteOrderMark ) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		bytes.write( byteOrderMark );
+		bytes.write( text.getBytes( charset ) );
+		Path file = directory.resolve( name );
+		Files.write( file, bytes.toByteArray() );
+		return file;
+	}
+
+	/**
+	 * Test method for {@link appDomain.ParserEngine#parseMappedFile(String)},
+	 * {@link appDomain.ParserEngine#parseFilePipelined(String)} and {@link appDomain.ChunkedXMLValidator#validate(String)}.
+	 */
+	@Test
+	public void testModes_MatchStreaming() throws IOException
+	{
+		for ( int i = 0; i < 8; i++ )
+		{
+			Path file = write( "document" + i + ".xml", document( 20_000 ), StandardCharsets.UTF_8, new byte[0] );
+			ArrayList<String> expected = check( ParserEngine::parseFile, file );
+
+			assertFalse( expected.isEmpty() );
+			assertEquals( expected, check( ParserEngine::parseMappedFile, file ) );
+			assertEquals( expected, check( ParserEngine::parseFilePipelined, file ) );
+			assertEquals( expected, check( ParserEngine::parseFileInParallel, file ) );
+			for ( long chunkSize : CHUNK_SIZES )
+			{
+				assertEquals( "chunk size " + chunkSize, expected, checkInChunks( file, chunkSize ) );
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link appDomain.ParserEngine#parseFile(String)}.
+	 * A UTF-16 document reports the same errors as its UTF-8 form, with
+	 * offsets that count the UTF-8 bytes. The documents are larger than one
+	 * read, so surrogate pairs fall across reads.
+	 */
+	@Test
+	public void testModes_Utf16MatchesUtf8() throws IOException
+	{
+		byte[] none = new byte[0];
+		for ( int i = 0; i < 3; i++ )
+		{
+			String text = document( 150_000 );
+			ArrayList<String> expected = check( ParserEngine::parseFile, write( "utf8.xml", text, StandardCharsets.UTF_8, none ) );
+
+			Path[] files = {
+				write( "le-bom.xml", text, StandardCharsets.UTF_16LE, new byte[] { (byte) 0xFF, (byte) 0xFE } ),
+				write( "be-bom.xml", text, StandardCharsets.UTF_16BE, new byte[] { (byte) 0xFE, (byte) 0xFF } ),
+				write( "le.xml", text, StandardCharsets.UTF_16LE, none ),
+				write( "be.xml", text, StandardCharsets.UTF_16BE, none ) };
+			for ( Path file : files )
+			{
+				assertEquals( file.toString(), expected, check( ParserEngine::parseFile, file ) );
+				assertEquals( file.toString(), expected, check( ParserEngine::parseMappedFile, file ) );
+				assertEquals( file.toString(), expected, check( ParserEngine::parseFilePipelined, file ) );
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link appDomain.ParserEngine#parse(java.io.InputStream)}.
+	 * A UTF-16 stream handed over a few bytes at a time, splitting byte pairs
+	 * and surrogate pairs, reads the same as the file.
+	 */
+	@Test
+	public void testParse_Utf16InOddPieces() throws IOException
+	{
+		String text = document( 30_000 );
+		ArrayList<String> expected = check( ParserEngine::parseFile, write( "utf8.xml", text, StandardCharsets.UTF_8, new byte[0] ) );
+		byte[] bytes = text.getBytes( StandardCharsets.UTF_16LE );
+		Random sizes = new Random( 3 );
+
+		ParserEngine engine = new ParserEngine();
+		engine.parse( new ByteArrayInputStream( bytes )
+		{
+			@Override
+			public synchronized int read( byte[] b, int off, int len )
+			{
+				return super.read( b, off, Math.min( len, 1 + 2 * sizes.nextInt( 7 ) ) );
+			}
+		} );
+		engine.finish();
+		MyQueue<ParseError> errors = new MyQueue<ParseError>();
+		engine.drainErrorsTo( errors );
+		assertEquals( expected, describe( errors ) );
+	}
+
+	/**
+	 * Test method for {@link appDomain.ParserEngine#parseFile(String)}.
+	 * Text after the last tag of a line, and after the root, is not an error
+	 * in any mode; a '>' in that text is.
+	 */
+	@Test
+	public void testModes_TextAfterLastTag() throws IOException
+	{
+		String text = "<?xml version=\"1.0\"?>\n<doc> intro\n  <a>value</a> trailing words\n  <b/> more\n</doc> after the root\n";
+		Path file = write( "after.xml", text, StandardCharsets.UTF_8, new byte[0] );
+		Mode[] modes = { ParserEngine::parseFile, ParserEngine::parseMappedFile, ParserEngine::parseFilePipelined,
+				ParserEngine::parseFileInParallel };
+
+		for ( Mode mode : modes )
+		{
+			assertEquals( new ArrayList<String>(), check( mode, file ) );
+		}
+		for ( long chunkSize : CHUNK_SIZES )
+		{
+			assertEquals( new ArrayList<String>(), checkInChunks( file, chunkSize ) );
+		}
+
+		file = write( "stray.xml", text.replace( "after the root", "after > the root" ), StandardCharsets.UTF_8, new byte[0] );
+		ArrayList<String> expected = check( ParserEngine::parseFile, file );
+		assertEquals( 1, expected.size() );
+		assertTrue( expected.get( 0 ).startsWith( ErrorKind.INVALID_CLOSING_TAG + " 5:" ) );
+		for ( Mode mode : modes )
+		{
+			assertEquals( expected, check( mode, file ) );
+		}
+	}
+}
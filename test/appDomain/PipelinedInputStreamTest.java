@@ -0,0 +1,98 @@
+package appDomain;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.Test;
+
+/**
+ * Class Description:
+ * Tests for the pipelined stream: bytes arrive in order, and a source that
+ * fails, with a checked or an unchecked exception, is reported to the
+ * consumer instead of ending the stream quietly.
+ */
+
+public class PipelinedInputStreamTest
+{
+	/**
+	 * A source that gives some bytes, then throws.
+	 */
+	private static InputStream failingAfter( byte[] bytes, RuntimeException unchecked )
+	{
+		return new InputStream()
+		{
+			private final ByteArrayInputStream data = new ByteArrayInputStream( bytes );
+
+			@Override
+			public int read()
+			{
+				return data.read();
+			}
+
+			@Override
+			public int read( byte[] b, int off, int len ) throws IOException
+			{
+				int count = data.read( b, off, len );
+				if ( count > 0 ) return count;
+				if ( unchecked != null ) throw unchecked;
+				throw new IOException( "source failed" );
+			}
+		};
+	}
+
+	/**
+	 * Test method for {@link appDomain.PipelinedInputStream#read(byte[], int, int)}.
+	 */
+	@Test
+	public void testRead_AllBytesInOrder() throws IOException
+	{
+		byte[] bytes = new byte[10_000];
+		for ( int i = 0; i < bytes.length; i++ )
+		{
+			bytes[i] = (byte) i;
+		}
+		try ( PipelinedInputStream in = new PipelinedInputStream( new ByteArrayInputStream( bytes ), 64, 2 ) )
+		{
+			assertArrayEquals( bytes, in.readAllBytes() );
+			assertEquals( -1, in.read() );
+		}
+	}
+
+	/**
+	 * Test method for {@link appDomain.PipelinedInputStream#read(byte[], int, int)}.
+	 */
+	@Test
+	public void testRead_CheckedFailure() throws IOException
+	{
+		try ( PipelinedInputStream in = new PipelinedInputStream( failingAfter( new byte[100], null ), 64, 2 ) )
+		{
+			in.readAllBytes();
+			fail( "The failure of the source was not reported" );
+		}
+		catch ( IOException e )
+		{
+			assertEquals( "source failed", e.getMessage() );
+		}
+	}
+
+	/**
+	 * Test method for {@link appDomain.PipelinedInputStream#read(byte[], int, int)}.
+	 * An unchecked exception on the reading thread must not read as the end of the input.
+	 */
+	@Test
+	public void testRead_UncheckedFailure() throws IOException
+	{
+		IllegalStateException thrown = new IllegalStateException( "broken" );
+		try ( PipelinedInputStream in = new PipelinedInputStream( failingAfter( new byte[100], thrown ), 64, 2 ) )
+		{
+			in.readAllBytes();
+			fail( "The failure of the source was read as its end" );
+		}
+		catch ( IOException e )
+		{
+			assertSame( thrown, e.getCause() );
+		}
+	}
+}
@@ -0,0 +1,303 @@
+package appDomain;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import implementations.MyQueue;
+
+/**
+ * Class Description:
+ * Tests for the result cache: a stored result is served only while the file
+ * still has the bytes it was checked with, the error limit it was checked
+ * with covers the limit asked for, and saved results survive reopening.
+ */
+
+public class ResultCacheTest
+{
+	// Attributes
+	private Path directory;
+	private Path cacheDirectory;
+	private Path file;
+	private ParseError first;
+	private ParseError second;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		directory = Files.createTempDirectory( "resultcache" );
+		cacheDirectory = directory.resolve( "cache" );
+		file = directory.resolve( "document.xml" );
+		Files.writeString( file, "<doc>\n</stray>\n<a></b>\n</doc>\n" );
+		first = new ParseError( ErrorKind.UNMATCHED_CLOSING_TAG, 2, 1, 6, "</stray>" );
+		second = new ParseError( ErrorKind.MISMATCHED_TAG, 3, 4, 18, "</b>" );
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		try ( Stream<Path> paths = Files.walk( directory ) )
+		{
+			for ( Path path : paths.sorted( ( a, b ) -> b.compareTo( a ) ).toArray( Path[]::new ) )
+			{
+				Files.deleteIfExists( path );
+			}
+		}
+		directory = null;
+		cacheDirectory = null;
+		file = null;
+		first = null;
+		second = null;
+	}
+
+	/**
+	 * Returns the errors found in the test file.
+	 */
+	private MyQueue<ParseError> errors()
+	{
+		MyQueue<ParseError> errors = new MyQueue<ParseError>();
+		errors.enqueue( first );
+		errors.enqueue( second );
+		return errors;
+	}
+
+	/**
+	 * Returns the errors of a result, in order.
+	 */
+	private static Object[] errorsOf( ResultCache.Result result )
+	{
+		MyQueue<ParseError> errors = new MyQueue<ParseError>();
+		result.copyTo( errors );
+		return errors.toArray();
+	}
+
+	/**
+	 * Stores the complete result of the test file.
+	 */
+	private ResultCache storeComplete() throws IOException
+	{
+		ResultCache cache = ResultCache.open( cacheDirectory );
+		cache.store( file, ResultCache.stamp( file ), errors(), false, 0 );
+		return cache;
+	}
+
+	/**
+	 * Test method for {@link appDomain.ResultCache#open(java.nio.file.Path, long, long)}.
+	 */
+	@Test
+	public void testOpen_LimitsMustBePositive() throws IOException
+	{
+		try
+		{
+			ResultCache.open( cacheDirectory, 0, 1024 );
+			fail( "An age limit of 0 was accepted" );
+		}
+		catch ( IllegalArgumentException e )
+		{
+			assertTrue( true );
+		}
+		try
+		{
+			ResultCache.open( cacheDirectory, 1000, 0 );
+			fail( "A size limit of 0 was accepted" );
+		}
+		catch ( IllegalArgumentException e )
+		{
+			assertTrue( true );
+		}
+	}
+
+	/**
+	 * Test method for {@link appDomain.ResultCache#lookup(java.nio.file.Path, int)}.
+	 */
+	@Test
+	public void testLookup_Miss() throws IOException
+	{
+		ResultCache cache = ResultCache.open( cacheDirectory );
+		assertNull( cache.lookup( file, 0 ) );
+		assertEquals( 0, cache.size() );
+	}
+
+	/**
+	 * Test method for {@link appDomain.ResultCache#store}.
+	 */
+	@Test
+	public void testStore_ThenLookup() throws IOException
+	{
+		ResultCache cache = storeComplete();
+		ResultCache.Result result = cache.lookup( file, 0 );
+
+		assertNotNull( result );
+		assertFalse( result.isStopped() );
+		assertArrayEquals( new Object[] { first, second }, errorsOf( result ) );
+	}
+
+	/**
+	 * Test method for {@link appDomain.ResultCache#save()}.
+	 */
+	@Test
+	public void testSave_SurvivesReopen() throws IOException
+	{
+		storeComplete().save();
+		ResultCache cache = ResultCache.open( cacheDirectory );
+		ResultCache.Result result = cache.lookup( file, 0 );
+
+		assertEquals( 1, cache.size() );
+		assertNotNull( result );
+		Object[] errors = errorsOf( result );
+		assertEquals( 2, errors.length );
+		assertEquals( second.getKind(), ( (ParseError) errors[1] ).getKind() );
+		assertEquals( second.getLine(), ( (ParseError) errors[1] ).getLine() );
+		assertEquals( second.getColumn(), ( (ParseError) errors[1] ).getColumn() );
+		assertEquals( second.getOffset(), ( (ParseError) errors[1] ).getOffset() );
+		assertEquals( second.getText(), ( (ParseError) errors[1] ).getText() );
+	}
+
+	/**
+	 * Test method for {@link appDomain.ResultCache#lookup(java.nio.file.Path, int)}.
+	 * A file whose size changed is parsed again.
+	 */
+	@Test
+	public void testLookup_SizeChanged() throws IOException
+	{
+		ResultCache cache = storeComplete();
+		Files.writeString( file, "<doc></doc>\n" );
+
+		assertNull( cache.lookup( file, 0 ) );
+	}
+
+	/**
+	 * Test method for {@link appDomain.ResultCache#lookup(java.nio.file.Path, int)}.
+	 * A file rewritten with the same size and modification time, within the
+	 * clock's resolution of the check, is told apart by its hash.
+	 */
+	@Test
+	public void testLookup_SameSizeAndTimeDifferentBytes() throws IOException
+	{
+		ResultCache cache = storeComplete();
+		FileTime modified = Files.getLastModifiedTime( file );
+		Files.writeString( file, "<doc>\n</strax>\n<a></b>\n</doc>\n" );
+		Files.setLastModifiedTime( file, modified );
+
+		assertNull( cache.lookup( file, 0 ) );
+	}
+
+	/**
+	 * Test method for {@link appDomain.ResultCache#lookup(java.nio.file.Path, int)}.
+	 * A file that was only touched keeps its result.
+	 */
+	@Test
+	public void testLookup_TouchedButUnchanged() throws IOException
+	{
+		ResultCache cache = storeComplete();
+		Files.setLastModifiedTime( file, FileTime.fromMillis( System.currentTimeMillis() - 60_000 ) );
+
+		assertNotNull( cache.lookup( file, 0 ) );
+	}
+
+	/**
+	 * Test method for {@link appDomain.ResultCache#lookup(java.nio.file.Path, int)}.
+	 * A check stopped at a limit only serves checks with a limit as low.
+	 */
+	@Test
+	public void testLookup_StoppedResult() throws IOException
+	{
+		ResultCache cache = ResultCache.open( cacheDirectory );
+		cache.store( file, ResultCache.stamp( file ), errors(), true, 2 );
+
+		assertNull( cache.lookup( file, 0 ) );
+		assertNull( cache.lookup( file, 3 ) );
+
+		ResultCache.Result result = cache.lookup( file, 2 );
+		assertTrue( result.isStopped() );
+		assertEquals( 2, errorsOf( result ).length );
+
+		result = cache.lookup( file, 1 );
+		assertTrue( result.isStopped() );
+		assertArrayEquals( new Object[] { first }, errorsOf( result ) );
+	}
+
+	/**
+	 * Test method for {@link appDomain.ResultCache#lookup(java.nio.file.Path, int)}.
+	 * A complete result serves any limit, and is stopped where the check would have stopped.
+	 */
+	@Test
+	public void testLookup_CompleteResultCutToLimit() throws IOException
+	{
+		ResultCache cache = storeComplete();
+
+		ResultCache.Result result = cache.lookup( file, 1 );
+		assertTrue( result.isStopped() );
+		assertEquals( 1, errorsOf( result ).length );
+
+		result = cache.lookup( file, 5 );
+		assertFalse( result.isStopped() );
+		assertEquals( 2, errorsOf( result ).length );
+	}
+
+	/**
+	 * Test method for {@link appDomain.ResultCache#store}.
+	 * A file that changed during its check is not stored.
+	 */
+	@Test
+	public void testStore_FileChangedDuringCheck() throws IOException
+	{
+		ResultCache cache = ResultCache.open( cacheDirectory );
+		ResultCache.Stamp before = ResultCache.stamp( file );
+		Files.writeString( file, "<doc></doc>\n" );
+		cache.store( file, before, errors(), false, 0 );
+
+		assertEquals( 0, cache.size() );
+		assertNull( cache.lookup( file, 0 ) );
+	}
+
+	/**
+	 * Test method for {@link appDomain.ResultCache#save()}.
+	 * Two runs saving to one directory keep each other's results.
+	 */
+	@Test
+	public void testSave_Merges() throws IOException
+	{
+		Path other = directory.resolve( "other.xml" );
+		Files.writeString( other, "<doc></doc>\n" );
+
+		ResultCache one = ResultCache.open( cacheDirectory );
+		ResultCache two = ResultCache.open( cacheDirectory );
+		one.store( file, ResultCache.stamp( file ), errors(), false, 0 );
+		two.store( other, ResultCache.stamp( other ), new MyQueue<ParseError>(), false, 0 );
+		one.save();
+		two.save();
+
+		ResultCache cache = ResultCache.open( cacheDirectory );
+		assertEquals( 2, cache.size() );
+		assertNotNull( cache.lookup( file, 0 ) );
+		assertEquals( 0, errorsOf( cache.lookup( other, 0 ) ).length );
+	}
+
+	/**
+	 * Test method for {@link appDomain.ResultCache#save()}.
+	 * Results that do not fit the size limit are evicted.
+	 */
+	@Test
+	public void testSave_EvictsOverSizeLimit() throws IOException
+	{
+		ResultCache cache = ResultCache.open( cacheDirectory, 60_000, 1 );
+		cache.store( file, ResultCache.stamp( file ), errors(), false, 0 );
+		cache.save();
+
+		assertEquals( 0, ResultCache.open( cacheDirectory ).size() );
+	}
+}
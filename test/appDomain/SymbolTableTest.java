@@ -0,0 +1,100 @@
+package appDomain;
+import static org.junit.Assert.*;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Class Description:
+ * Tests for the symbol table: a name gets the same id whether it is looked
+ * up in a segment or in a line of text, and names that all collide under a
+ * plain {@code 31 * h + b} hash still get their own ids.
+ */
+
+public class SymbolTableTest
+{
+	/**
+	 * Returns every name made of {@code count} pairs of "Aa" and "BB", which
+	 * share one {@link String#hashCode()}.
+	 */
+	private static String[] collidingNames( int count )
+	{
+		String[] names = new String[1 << count];
+		for ( int i = 0; i < names.length; i++ )
+		{
+			StringBuilder name = new StringBuilder();
+			for ( int bit = 0; bit < count; bit++ )
+			{
+				name.append( ( i >> bit & 1 ) == 0 ? "Aa" : "BB" );
+			}
+			names[i] = name.toString();
+		}
+		return names;
+	}
+
+	/**
+	 * Test method for {@link appDomain.SymbolTable#intern(java.lang.foreign.MemorySegment, long, int)}.
+	 */
+	@Test
+	public void testIntern_CollidingNames()
+	{
+		SymbolTable symbols = new SymbolTable();
+		String[] names = collidingNames( 12 );
+
+		for ( int i = 0; i < names.length; i++ )
+		{
+			byte[] bytes = names[i].getBytes( StandardCharsets.UTF_8 );
+			assertEquals( i, symbols.intern( MemorySegment.ofArray( bytes ), 0, bytes.length ) );
+		}
+		assertEquals( names.length, symbols.size() );
+		for ( int i = 0; i < names.length; i++ )
+		{
+			assertEquals( i, symbols.find( names[i], 0, names[i].length() ) );
+			assertEquals( names[i], symbols.name( i ) );
+		}
+	}
+
+	/**
+	 * Test method for {@link appDomain.SymbolTable#find(java.lang.String, int, int)}.
+	 * Text and bytes of the same name, ASCII or not, find the same id.
+	 */
+	@Test
+	public void testFind_TextAndBytesAgree()
+	{
+		SymbolTable symbols = new SymbolTable();
+		String line = "<item> <café> <𝄞note>";
+		int item = symbols.intern( line, 1, 5 );
+		int cafe = symbols.intern( line, 8, 12 );
+		int note = symbols.intern( line, 15, 21 );
+
+		byte[] bytes = line.getBytes( StandardCharsets.UTF_8 );
+		MemorySegment source = MemorySegment.ofArray( bytes );
+		assertEquals( item, symbols.find( source, 1, 4 ) );
+		assertEquals( cafe, symbols.find( source, 8, 5 ) );
+		assertEquals( note, symbols.find( source, 16, 8 ) );
+		assertEquals( -1, symbols.find( source, 0, 1 ) );
+	}
+
+	/**
+	 * Test method for {@link appDomain.SymbolTable#clear()}.
+	 * A cleared table, hashed with a new seed, still finds the names added after it.
+	 */
+	@Test
+	public void testClear_ThenReuse()
+	{
+		SymbolTable symbols = new SymbolTable();
+		String[] names = collidingNames( 6 );
+		for ( String name : names )
+		{
+			symbols.intern( name, 0, name.length() );
+		}
+		symbols.clear();
+
+		assertEquals( 0, symbols.size() );
+		assertEquals( -1, symbols.find( names[0], 0, names[0].length() ) );
+		assertEquals( 0, symbols.intern( names[5], 0, names[5].length() ) );
+		assertEquals( 0, symbols.find( names[5], 0, names[5].length() ) );
+	}
+}
@@ -0,0 +1,202 @@
+package appDomain;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Class Description:
+ * Tests for the tokenizer's stream reading: a document read through the
+ * buffer, in whatever pieces the stream hands it over, must give the same
+ * tags and errors, at the same lines, columns and offsets, as the same bytes
+ * scanned in place. Lines much longer than the buffer are scanned in parts.
+ */
+
+public class XMLTokenizerTest
+{
+	// Attributes
+	private static final String[] PIECES = { "<a>", "</a>", "<b x='1'>", "</b>", " > ", "text", "<c", "<!-- c > -->",
+			"<![CDATA[ <x> ]]>", "<?pi ?>", "é€𝄞", "<d y=\">\">", "</d>", "<e/>", ">", "<",
+			"<!DOCTYPE x [ <!ENTITY a 'b'> ]>", "<f\n g='1'>", "</f>", "<!--\n-->", "  \t" };
+
+	private Random random;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		random = new Random( 304 );
+	}
+
+	/**
+	 * Records every event of a tokenizer as a line of text.
+	 */
+	private static final class Recorder implements XMLTokenizer.TagListener
+	{
+		final ArrayList<String> events = new ArrayList<String>();
+		XMLTokenizer tokenizer;
+
+		@Override
+		public void tag( MemorySegment source, long lineStart, long tagStart, long tagEnd, long contentStart, long contentEnd, int lineNum )
+		{
+			long offset = tokenizer.bufferOffset();
+			events.add( "tag " + lineNum + ":" + ( tagStart - lineStart + 1 ) + " @" + ( offset + tagStart ) + " line@" + ( offset + lineStart )
+					+ " " + XMLTokenizer.decode( source, contentStart, contentEnd ) + " " + XMLTokenizer.fullTag( source, tagStart, tagEnd ) );
+		}
+
+		@Override
+		public void lineError( MemorySegment source, long lineStart, long textStart, long textEnd, ErrorKind kind, int lineNum )
+		{
+			events.add( kind + " " + lineNum + ":" + ( textStart - lineStart + 1 ) + " @" + ( tokenizer.bufferOffset() + textStart )
+					+ " " + XMLTokenizer.decode( source, textStart, textEnd ) );
+		}
+
+		@Override
+		public void markupError( ErrorKind kind, String text, int lineNum, int column, long offset )
+		{
+			events.add( kind + " " + lineNum + ":" + column + " @" + offset + " " + text );
+		}
+	}
+
+	/**
+	 * A stream that hands over at most a few bytes at a time.
+	 */
+	private static final class Trickle extends ByteArrayInputStream
+	{
+		private final Random sizes;
+
+		Trickle( byte[] bytes, long seed )
+		{
+			super( bytes );
+			sizes = new Random( seed );
+		}
+
+		@Override
+		public synchronized int read( byte[] b, int off, int len )
+		{
+			return super.read( b, off, Math.min( len, 1 + sizes.nextInt( 5000 ) ) );
+		}
+	}
+
+	/**
+	 * Writes a document of random pieces, with runs of text and whitespace
+	 * and attribute values long enough to push lines past the buffer.
+	 */
+	private String document( int size )
+	{
+		StringBuilder text = new StringBuilder();
+		while ( text.length() < size )
+		{
+			double kind = random.nextDouble();
+			if ( kind < 0.01 )
+			{
+				text.append( " ".repeat( 1 + random.nextInt( 90_000 ) ) );
+			}
+			else if ( kind < 0.02 )
+			{
+				text.append( "w".repeat( 1 + random.nextInt( 90_000 ) ) );
+			}
+			else if ( kind < 0.06 )
+			{
+				text.append( '\n' );
+			}
+			else if ( kind < 0.062 )
+			{
+				text.append( "<g h='" ).append( "v".repeat( 1 + random.nextInt( 40_000 ) ) ).append( "'>" );
+			}
+			else
+			{
+				text.append( PIECES[random.nextInt( PIECES.length )] );
+			}
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Scans bytes in place.
+	 */
+	private static ArrayList<String> scanInPlace( byte[] bytes )
+	{
+		Recorder recorder = new Recorder();
+		recorder.tokenizer = new XMLTokenizer( recorder );
+		recorder.tokenizer.tokenize( MemorySegment.ofArray( bytes ), 1 );
+		return recorder.events;
+	}
+
+	/**
+	 * Reads bytes from a stream through a buffer of the given size.
+	 */
+	private static ArrayList<String> read( InputStream in, int bufferSize ) throws IOException
+	{
+		Recorder recorder = new Recorder();
+		recorder.tokenizer = new XMLTokenizer( recorder, bufferSize );
+		recorder.tokenizer.tokenize( in );
+		return recorder.events;
+	}
+
+	/**
+	 * Test method for {@link appDomain.XMLTokenizer#tokenize(java.io.InputStream)}.
+	 */
+	@Test
+	public void testTokenize_LongLinesMatchScanInPlace() throws IOException
+	{
+		for ( int i = 0; i < 12; i++ )
+		{
+			byte[] bytes = document( 400_000 ).getBytes( StandardCharsets.UTF_8 );
+			ArrayList<String> expected = scanInPlace( bytes );
+
+			assertEquals( expected, read( new ByteArrayInputStream( bytes ), XMLTokenizer.DEFAULT_BUFFER_SIZE ) );
+			assertEquals( expected, read( new Trickle( bytes, i ), 1 ) );
+		}
+	}
+
+	/**
+	 * Test method for {@link appDomain.XMLTokenizer#tokenize(java.io.InputStream)}.
+	 * An error on a line much longer than the buffer quotes the start of the line.
+	 */
+	@Test
+	public void testTokenize_ErrorOnLongLine() throws IOException
+	{
+		String start = "   <doc> stray > ";
+		String document = start + "x".repeat( 500_000 ) + " <a> <b\n<c>\n";
+		byte[] bytes = document.getBytes( StandardCharsets.UTF_8 );
+		ArrayList<String> events = read( new ByteArrayInputStream( bytes ), 1 );
+
+		assertEquals( scanInPlace( bytes ), events );
+		assertTrue( events.get( 1 ).startsWith( "INVALID_OPENING_TAG 1:4 @3 <doc> stray > xxx" ) );
+		assertTrue( events.get( events.size() - 2 ).startsWith( "MISSING_CLOSING_BRACKET 1:4 @3 <doc> stray > xxx" ) );
+		assertEquals( "tag 2:1 @" + document.indexOf( "<c>" ) + " line@" + document.indexOf( "<c>" ) + " c <c>", events.get( events.size() - 1 ) );
+	}
+
+	/**
+	 * Test method for {@link appDomain.XMLTokenizer#tokenize(java.io.InputStream)}.
+	 * A document on one line much larger than the buffer is read in full, with
+	 * the columns of its last tags counted from the start of the line.
+	 */
+	@Test
+	public void testTokenize_OneLineDocument() throws IOException
+	{
+		StringBuilder document = new StringBuilder( "<doc>" );
+		for ( int i = 0; i < 100_000; i++ )
+		{
+			document.append( "<item id='" ).append( i ).append( "'>value</item>" );
+		}
+		document.append( "</doc>" );
+		byte[] bytes = document.toString().getBytes( StandardCharsets.UTF_8 );
+
+		ArrayList<String> events = read( new ByteArrayInputStream( bytes ), 1 );
+		assertEquals( 200_002, events.size() );
+		int close = document.length() - "</doc>".length();
+		assertEquals( "tag 1:" + ( close + 1 ) + " @" + close + " line@0 /doc </doc>", events.get( events.size() - 1 ) );
+	}
+}
@@ -0,0 +1,205 @@
+package implementations;
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Class Description:
+ * Tests for the thread-safe bounded queue used to hand batches between
+ * pipeline stages.
+ */
+
+public class BoundedQueueTest
+{
+	// Attributes
+	private MyBoundedQueue<Integer> queue;
+	private Integer one;
+	private Integer two;
+	private Integer three;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		queue = new MyBoundedQueue<Integer>( 2 );
+		one = Integer.valueOf( 111 );
+		two = Integer.valueOf( 222 );
+		three = Integer.valueOf( 333 );
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		queue = null;
+		one = null;
+		two = null;
+		three = null;
+	}
+
+	/**
+	 * Test method for {@link implementations.MyBoundedQueue#MyBoundedQueue(int)}.
+	 */
+	@Test( expected = IllegalArgumentException.class )
+	public void testConstructor_ZeroCapacity()
+	{
+		new MyBoundedQueue<Integer>( 0 );
+	}
+
+	/**
+	 * Test method for {@link implementations.MyBoundedQueue#put(Object)}.
+	 */
+	@Test
+	public void testPut_Size() throws InterruptedException
+	{
+		assertTrue( "Put was refused ", queue.put( one ) );
+		assertEquals( "Queue size is incorrect ", 1, queue.size() );
+		assertFalse( "Queue should not be empty ", queue.isEmpty() );
+	}
+
+	/**
+	 * Test method for {@link implementations.MyBoundedQueue#put(Object)}.
+	 */
+	@Test( expected = NullPointerException.class )
+	public void testPut_Null() throws InterruptedException
+	{
+		queue.put( null );
+	}
+
+	/**
+	 * Test method for {@link implementations.MyBoundedQueue#isFull()}.
+	 */
+	@Test
+	public void testIsFull() throws InterruptedException
+	{
+		queue.put( one );
+		assertFalse( "Queue should not be full ", queue.isFull() );
+		queue.put( two );
+		assertTrue( "Queue should be full ", queue.isFull() );
+	}
+
+	/**
+	 * Test method for {@link implementations.MyBoundedQueue#take()}.
+	 */
+	@Test
+	public void testTake_Order() throws InterruptedException
+	{
+		queue.put( one );
+		queue.put( two );
+		assertEquals( "Take returned the wrong element ", one, queue.take() );
+		queue.put( three );
+		assertEquals( "Take returned the wrong element ", two, queue.take() );
+		assertEquals( "Take returned the wrong element ", three, queue.take() );
+		assertTrue( "Queue should be empty ", queue.isEmpty() );
+	}
+
+	/**
+	 * Test method for {@link implementations.MyBoundedQueue#takeAll(Object[])}.
+	 */
+	@Test
+	public void testTakeAll() throws InterruptedException
+	{
+		queue.put( one );
+		queue.put( two );
+		Integer[] holder = new Integer[4];
+
+		assertEquals( "Wrong number of elements taken ", 2, queue.takeAll( holder ) );
+		assertEquals( "First element is incorrect ", one, holder[0] );
+		assertEquals( "Second element is incorrect ", two, holder[1] );
+		assertTrue( "Queue should be empty ", queue.isEmpty() );
+	}
+
+	/**
+	 * Test method for {@link implementations.MyBoundedQueue#takeAll(Object[])}.
+	 */
+	@Test
+	public void testTakeAll_SmallHolder() throws InterruptedException
+	{
+		queue.put( one );
+		queue.put( two );
+		Integer[] holder = new Integer[1];
+
+		assertEquals( "Wrong number of elements taken ", 1, queue.takeAll( holder ) );
+		assertEquals( "First element is incorrect ", one, holder[0] );
+		assertEquals( "Queue size is incorrect ", 1, queue.size() );
+	}
+
+	/**
+	 * Test method for {@link implementations.MyBoundedQueue#close()}.
+	 */
+	@Test
+	public void testClose_DrainsThenNull() throws InterruptedException
+	{
+		queue.put( one );
+		queue.close();
+
+		assertFalse( "Put after close was accepted ", queue.put( two ) );
+		assertEquals( "Take returned the wrong element ", one, queue.take() );
+		assertNull( "Take on a closed, empty queue should return null ", queue.take() );
+		assertEquals( "TakeAll on a closed, empty queue should take nothing ", 0, queue.takeAll( new Integer[1] ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.MyBoundedQueue#put(Object)}.
+	 */
+	@Test
+	public void testPut_BlocksWhenFull() throws InterruptedException
+	{
+		queue.put( one );
+		queue.put( two );
+
+		Thread producer = new Thread( () -> {
+			try
+			{
+				queue.put( three );
+			}
+			catch( InterruptedException e )
+			{
+				Thread.currentThread().interrupt();
+			}
+		} );
+		producer.start();
+		producer.join( 100 );
+		assertTrue( "Put on a full queue should wait ", producer.isAlive() );
+		assertEquals( "Queue size is incorrect ", 2, queue.size() );
+
+		queue.take();
+		producer.join( 5000 );
+		assertFalse( "Put should finish once there is room ", producer.isAlive() );
+		assertEquals( "Take returned the wrong element ", two, queue.take() );
+		assertEquals( "Take returned the wrong element ", three, queue.take() );
+	}
+
+	/**
+	 * Test method for {@link implementations.MyBoundedQueue#close()}.
+	 */
+	@Test
+	public void testClose_WakesWaitingConsumer() throws InterruptedException
+	{
+		Integer[] result = new Integer[] { one };
+		Thread consumer = new Thread( () -> {
+			try
+			{
+				result[0] = queue.take();
+			}
+			catch( InterruptedException e )
+			{
+				Thread.currentThread().interrupt();
+			}
+		} );
+		consumer.start();
+		consumer.join( 100 );
+		assertTrue( "Take on an empty queue should wait ", consumer.isAlive() );
+
+		queue.close();
+		consumer.join( 5000 );
+		assertFalse( "Close should wake the consumer ", consumer.isAlive() );
+		assertNull( "Take should return null after close ", result[0] );
+	}
+}